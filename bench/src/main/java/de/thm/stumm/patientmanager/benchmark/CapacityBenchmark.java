@@ -0,0 +1,196 @@
+package de.thm.stumm.patientmanager.benchmark;
+
+import de.thm.stumm.patientmanager.model.MalformedCsvLineException;
+import de.thm.stumm.patientmanager.model.Patient;
+import de.thm.stumm.patientmanager.model.PatientList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the capacity management of the lists of the model package.
+ *
+ * The benchmarks measure the time of growing a list while adding, of adding to a pre-sized list and of loading a
+ * CSV-File, whereby the list gets pre-sized by the estimated amount of rows. At the end of every trial the footprint of
+ * the backing array gets printed after loading, after removing most of the items (for lists up to 100K items) and
+ * after trimming. The results can be written in the CSV format of JMH with `-rf csv` and compared by
+ * `CompareResults`.
+ *
+ * Usage: java -cp bench/target/benchmarks.jar:libs/SHA1-Lib_j9.jar org.openjdk.jmh.Main -rf csv -rff bench-results/capacity.csv CapacityBenchmark
+ *
+ * @author Dennis Stumm
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CapacityBenchmark {
+    /**
+     * The fraction of the patients, that are kept when measuring the footprint after mass deletions.
+     */
+    private static final int KEPT_FRACTION = 100;
+
+    /**
+     * The maximum size of the lists, whose footprint gets measured after mass deletions, because every removal shifts
+     * the remaining patients.
+     */
+    private static final int MAX_DELETIONS = 100000;
+
+    /**
+     * The amount of patients in the list.
+     */
+    @Param({"100000", "1000000", "5000000"})
+    public int size;
+
+    /**
+     * The patients, that are added to the lists.
+     */
+    private Patient[] patients;
+
+    /**
+     * The temporary directory containing the CSV-Files of the benchmark.
+     */
+    private Path directory;
+
+    /**
+     * The CSV-File, which never gets persisted, so the lists opened with it start empty.
+     */
+    private Path emptyFile;
+
+    /**
+     * The CSV-File containing all patients.
+     */
+    private Path file;
+
+    /**
+     * Creates the patients and persists them to the CSV-File, that gets loaded.
+     *
+     * @throws MalformedCsvLineException If some of the lines in the CSV-File contain errors.
+     * @throws IOException               If an error gets thrown while writing the CSV-File.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws MalformedCsvLineException, IOException {
+        patients = new Patient[size];
+        Date admission = new Date();
+        for (int i = 0; i < size; i++) {
+            patients[i] = new Patient(i + 1, "Vorname" + (i % 1000), "Name" + (i % 100), i % 100, "I" + (i % 100),
+                    admission, null);
+        }
+
+        directory = Files.createTempDirectory("patientmanager-bench");
+        emptyFile = directory.resolve("empty.csv");
+        file = directory.resolve("patients.csv");
+        PatientList list = PatientList.open(file);
+        for (Patient patient : patients) {
+            list.add(patient);
+        }
+        list.persist();
+    }
+
+    /**
+     * Prints the footprint of the loaded list and deletes the CSV-Files of the benchmark.
+     *
+     * @throws MalformedCsvLineException If some of the lines in the CSV-File contain errors.
+     * @throws IOException               If an error gets thrown while reading or deleting the CSV-File.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws MalformedCsvLineException, IOException {
+        StringBuilder footprints = new StringBuilder("Größe;Phase;Elemente;Kapazität;Array (MB)\n");
+        PatientList list = PatientList.open(file);
+        appendFootprint(footprints, "geladen", list);
+
+        // Removing the first patient finds it at once, so the time is spent on shifting only.
+        if (size <= MAX_DELETIONS) {
+            for (int i = 0; i < size - size / KEPT_FRACTION; i++) {
+                list.remove(patients[i]);
+            }
+            appendFootprint(footprints, "gelöscht", list);
+        }
+
+        list.trimToSize();
+        appendFootprint(footprints, "getrimmt", list);
+        System.out.println();
+        System.out.print(footprints);
+
+        ModelBenchmark.deleteDirectory(directory);
+    }
+
+    /**
+     * Adds all patients to an empty list, which grows while adding.
+     *
+     * @return The filled list.
+     * @throws MalformedCsvLineException If some of the lines in the CSV-File contain errors.
+     * @throws IOException               If an error gets thrown while reading the CSV-File.
+     */
+    @Benchmark
+    public PatientList addGrowing() throws MalformedCsvLineException, IOException {
+        PatientList list = PatientList.open(emptyFile);
+        for (Patient patient : patients) {
+            list.add(patient);
+        }
+
+        return list;
+    }
+
+    /**
+     * Adds all patients to an empty list, which was pre-sized for all of them.
+     *
+     * @return The filled list.
+     * @throws MalformedCsvLineException If some of the lines in the CSV-File contain errors.
+     * @throws IOException               If an error gets thrown while reading the CSV-File.
+     */
+    @Benchmark
+    public PatientList addPresized() throws MalformedCsvLineException, IOException {
+        PatientList list = PatientList.open(emptyFile);
+        list.ensureCapacity(size);
+        for (Patient patient : patients) {
+            list.add(patient);
+        }
+
+        return list;
+    }
+
+    /**
+     * Loads the CSV-File containing all patients.
+     *
+     * @return The loaded list.
+     * @throws MalformedCsvLineException If some of the lines in the CSV-File contain errors.
+     * @throws IOException               If an error gets thrown while reading the CSV-File.
+     */
+    @Benchmark
+    public PatientList loadItems() throws MalformedCsvLineException, IOException {
+        return PatientList.open(file);
+    }
+
+    /**
+     * Appends the amount of items, the capacity and the size of the backing array of the passed list.
+     *
+     * @param footprints Builder the footprint gets appended to.
+     * @param phase      The name of the phase, after which the footprint is taken.
+     * @param list       The list to take the footprint of.
+     */
+    private void appendFootprint(StringBuilder footprints, String phase, PatientList list) {
+        // Every slot of the array is a reference, which takes 4 bytes with compressed oops.
+        double megabytes = list.capacity() * 4 / 1e6;
+        footprints.append(size).append(';').append(phase).append(';').append(list.size()).append(';')
+                .append(list.capacity()).append(';').append(String.format("%.2f", megabytes)).append('\n');
+    }
+}
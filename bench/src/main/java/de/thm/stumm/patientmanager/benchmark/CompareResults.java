@@ -0,0 +1,181 @@
+package de.thm.stumm.patientmanager.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares two result files written by JMH with `-rf csv` and reports the change of every benchmark.
+ *
+ * Benchmarks, that got slower by more than the threshold and by more than the measurement error, are marked as
+ * regression and make the program exit with status 1, so that it can be used in scripts. The columns are found by
+ * their names in the header, so any amount of parameters is supported, and numbers written with a decimal comma by
+ * JMH running in a German locale are read as well.
+ *
+ * Usage: CompareResults baseline.csv current.csv [threshold in percent]
+ *
+ * @author Dennis Stumm
+ */
+public class CompareResults {
+    /**
+     * Compares the passed result files.
+     *
+     * @param args The baseline file, the current file and optionally the threshold in percent (default 10).
+     * @throws IOException If one of the files can't be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: CompareResults baseline.csv current.csv [threshold in percent]");
+            return;
+        }
+
+        Map<String, Result> baseline = read(args[0]);
+        Map<String, Result> current = read(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        boolean regression = false;
+
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result after = entry.getValue();
+            Result before = baseline.get(entry.getKey());
+            if (before == null || !before.unit.equals(after.unit)) {
+                System.out.printf(Locale.ROOT, "%-60s %14.3f %s (new)%n", entry.getKey(), after.score, after.unit);
+                continue;
+            }
+
+            // Throughput gets better when it grows, all other modes measure times, which get better when they shrink.
+            double sign = after.unit.startsWith("ops/") ? -1 : 1;
+            double change = sign * (after.score - before.score) / before.score * 100;
+            double errors = (Double.isNaN(before.error) ? 0 : before.error) + (Double.isNaN(after.error) ? 0 : after.error);
+            boolean slower = change > threshold && sign * (after.score - before.score) > errors;
+            regression |= slower;
+
+            System.out.printf(Locale.ROOT, "%-60s %14.3f -> %14.3f %s %+8.1f%%%s%n", entry.getKey(), before.score,
+                    after.score, after.unit, change, slower ? "  REGRESSION" : "");
+        }
+
+        if (regression) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reads the scores and errors of the passed result file.
+     *
+     * @param file Path to the result file.
+     * @return Map from the benchmark name and its parameters to the result.
+     * @throws IOException If the file can't be read or isn't a CSV result file of JMH.
+     */
+    private static Map<String, Result> read(String file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        java.util.List<String> lines = Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8);
+        if (lines.isEmpty()) {
+            return results;
+        }
+
+        java.util.List<String> header = split(lines.get(0));
+        int benchmark = header.indexOf("Benchmark");
+        int score = header.indexOf("Score");
+        int unit = header.indexOf("Unit");
+        int error = -1;
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i).startsWith("Score Error")) {
+                error = i;
+            }
+        }
+        if (benchmark == -1 || score == -1 || unit == -1 || error == -1) {
+            throw new IOException("Die Datei " + file + " ist keine CSV-Datei von JMH!");
+        }
+
+        for (String line : lines.subList(1, lines.size())) {
+            java.util.List<String> values = split(line);
+            if (values.size() != header.size()) {
+                continue;
+            }
+
+            // The package of the benchmark classes is the same for all benchmarks, so it gets dropped.
+            String name = values.get(benchmark);
+            StringBuilder key = new StringBuilder(name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1));
+            for (int i = 0; i < header.size(); i++) {
+                if (header.get(i).startsWith("Param: ")) {
+                    key.append(' ').append(header.get(i).substring(7)).append('=').append(values.get(i));
+                }
+            }
+            results.put(key.toString(), new Result(parse(values.get(score)), parse(values.get(error)), values.get(unit)));
+        }
+
+        return results;
+    }
+
+    /**
+     * Splits the passed line of a CSV-File, whereby the separators in quoted values are kept.
+     *
+     * @param line The line to split.
+     * @return The values of the line without the quotes.
+     */
+    private static java.util.List<String> split(String line) {
+        java.util.List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char current = line.charAt(i);
+            if (current == '"') {
+                quoted = !quoted;
+            } else if (current == ',' && !quoted) {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(current);
+            }
+        }
+        values.add(value.toString());
+
+        return values;
+    }
+
+    /**
+     * @param value A number written by JMH, which may use a decimal comma, or NaN.
+     * @return The parsed number or NaN, if the value is empty.
+     */
+    private static double parse(String value) {
+        return value.isEmpty() ? Double.NaN : Double.parseDouble(value.replace(',', '.'));
+    }
+
+    /**
+     * Score of a benchmark with its error and unit.
+     */
+    private static class Result {
+        /**
+         * The score of the benchmark.
+         */
+        private final double score;
+
+        /**
+         * The half width of the confidence interval of the score or NaN, if it is unknown.
+         */
+        private final double error;
+
+        /**
+         * The unit of the score, e.g. ns/op.
+         */
+        private final String unit;
+
+        /**
+         * Initializes the result.
+         *
+         * @param score The score of the benchmark.
+         * @param error The half width of the confidence interval of the score or NaN, if it is unknown.
+         * @param unit  The unit of the score.
+         */
+        Result(double score, double error, String unit) {
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+        }
+    }
+}
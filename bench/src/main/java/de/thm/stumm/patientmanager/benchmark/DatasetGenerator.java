@@ -0,0 +1,483 @@
+package de.thm.stumm.patientmanager.benchmark;
+
+import de.thm.stumm.patientmanager.model.ColumnarExporter;
+import de.thm.stumm.patientmanager.model.Patient;
+import de.thm.stumm.patientmanager.model.PatientExporter;
+import de.thm.stumm.patientmanager.model.Sha1PasswordHasher;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.DateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tool generating large, realistic patients.csv and user.csv files for load and scale tests.
+ *
+ * Names and ICD codes are drawn from weighted distributions of common German names and frequent hospital diagnoses.
+ * Admissions are spread over the last years with fewer admissions at weekends, the length of stay follows a skewed
+ * distribution, so that recently admitted patients may still be in house (no discharge date).
+ *
+ * The rows are generated in chunks of `CHUNK_SIZE` rows, whereby each chunk has its own random generator derived from
+ * the seed and the number of the chunk. Therefore the chunks can be generated in parallel and the output only depends
+ * on the seed, but not on the amount of threads. The CSV-Files are written in the format, that gets parsed by
+ * `PatientList` and `UserList`, so the dates are formatted with the default locale of the JVM.
+ *
+ * The admissions are spread over the years before a fixed reference day, so the same seed generates the same files on
+ * every day. The files are written to `./generated` by default, so the data of the application isn't overwritten.
+ *
+ * Usage: DatasetGenerator [--patients n] [--users n] [--seed n] [--years n] [--today yyyy-MM-dd] [--threads n]
+ * [--format csv|columnar|both] [--out directory]
+ *
+ * @author Dennis Stumm
+ */
+public class DatasetGenerator {
+    /**
+     * Amount of rows, that get generated by one task.
+     */
+    private static final int CHUNK_SIZE = 65536;
+
+    /**
+     * The day, that is considered as today, if no other day is passed.
+     */
+    private static final LocalDate DEFAULT_TODAY = LocalDate.of(2025, 1, 1);
+
+    /**
+     * The usage of the tool, which gets printed with invalid arguments.
+     */
+    private static final String USAGE = "Verwendung: DatasetGenerator [--patients n] [--users n] [--seed n] [--years n] "
+            + "[--today yyyy-MM-dd] [--threads n] [--format csv|columnar|both] [--out directory]";
+
+    /**
+     * Common German last names and their relative frequency.
+     */
+    private static final Distribution LAST_NAMES = new Distribution(new String[]{
+            "Müller", "Schmidt", "Schneider", "Fischer", "Weber", "Meyer", "Wagner", "Becker", "Schulz", "Hoffmann",
+            "Schäfer", "Koch", "Bauer", "Richter", "Klein", "Wolf", "Schröder", "Neumann", "Schwarz", "Zimmermann",
+            "Braun", "Krüger", "Hofmann", "Hartmann", "Lange", "Schmitt", "Werner", "Schmitz", "Krause", "Meier",
+            "Lehmann", "Schmid", "Schulze", "Maier", "Köhler", "Herrmann", "König", "Walter", "Mayer", "Huber",
+            "Kaiser", "Fuchs", "Peters", "Lang", "Scholz", "Möller", "Weiß", "Jung", "Hahn", "Yilmaz"
+    }, new int[]{
+            256, 190, 116, 97, 86, 77, 68, 67, 62, 57, 50, 48, 47, 46, 45, 44, 43, 42, 41, 40,
+            38, 38, 37, 36, 35, 35, 34, 34, 33, 32, 31, 31, 30, 30, 29, 29, 28, 28, 27, 27,
+            26, 26, 25, 25, 25, 24, 24, 24, 23, 22
+    });
+
+    /**
+     * Common German first names and their relative frequency.
+     */
+    private static final Distribution FIRST_NAMES = new Distribution(new String[]{
+            "Peter", "Michael", "Thomas", "Andreas", "Wolfgang", "Klaus", "Jürgen", "Günter", "Stefan", "Christian",
+            "Hans", "Uwe", "Werner", "Frank", "Horst", "Lukas", "Leon", "Paul", "Jonas", "Felix",
+            "Ursula", "Monika", "Petra", "Elisabeth", "Sabine", "Renate", "Helga", "Karin", "Brigitte", "Ingrid",
+            "Erika", "Andrea", "Gisela", "Claudia", "Susanne", "Gabriele", "Christa", "Emma", "Mia", "Hannah"
+    }, new int[]{
+            60, 58, 55, 50, 45, 44, 40, 38, 37, 36, 35, 32, 30, 30, 28, 18, 17, 16, 15, 14,
+            58, 52, 48, 45, 44, 42, 40, 38, 37, 36, 35, 34, 32, 31, 30, 30, 28, 16, 15, 14
+    });
+
+    /**
+     * Frequent ICD-10 codes of hospital diagnoses and their relative frequency. The empty code stands for patients
+     * without diagnosis yet.
+     */
+    private static final Distribution ICD_CODES = new Distribution(new String[]{
+            "I50.1", "F10.0", "I48.0", "J18.9", "I63.4", "S06.0", "I21.4", "J44.1", "S72.0", "E86",
+            "I10.0", "K80.1", "N39.0", "R07.3", "I20.0", "K56.7", "A09.0", "E11.9", "C34.1", "M17.1",
+            "K35.8", "G40.2", "O80", "Z38.0", "F33.2", "I70.2", "J20.9", "K57.3", "S52.5", ""
+    }, new int[]{
+            46, 33, 30, 27, 26, 25, 23, 22, 21, 20, 19, 19, 18, 18, 17, 16, 16, 15, 14, 14,
+            13, 13, 30, 30, 12, 12, 11, 11, 10, 25
+    });
+
+    /**
+     * Runs the generator with the passed arguments.
+     *
+     * @param args The arguments, see the description of the class.
+     * @throws Exception If the files can't be generated.
+     */
+    public static void main(String[] args) throws Exception {
+        int patients = 1000000;
+        int users = 1000;
+        long seed = 42;
+        int years = 10;
+        int threads = Runtime.getRuntime().availableProcessors();
+        LocalDate today = DEFAULT_TODAY;
+        String format = "csv";
+        Path directory = Paths.get("./generated");
+
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Der Option " + args[i] + " fehlt ein Wert! " + USAGE);
+            }
+
+            switch (args[i]) {
+                case "--patients":
+                    patients = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--users":
+                    users = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[i + 1]);
+                    break;
+                case "--years":
+                    years = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--today":
+                    today = LocalDate.parse(args[i + 1]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--format":
+                    format = args[i + 1];
+                    break;
+                case "--out":
+                    directory = Paths.get(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unbekannte Option " + args[i] + "! " + USAGE);
+            }
+        }
+        if (!format.equals("csv") && !format.equals("columnar") && !format.equals("both")) {
+            throw new IllegalArgumentException("Unbekanntes Format " + format + "! " + USAGE);
+        }
+
+        Files.createDirectories(directory);
+        DatasetGenerator generator = new DatasetGenerator(seed, years, today);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+
+        try {
+            boolean csv = format.equals("csv") || format.equals("both");
+            boolean columnar = format.equals("columnar") || format.equals("both");
+            generator.writePatients(executor, threads, patients, csv ? directory.resolve("patients.csv") : null,
+                    columnar ? directory.resolve("patients.col") : null);
+            generator.writeUsers(users, directory.resolve("user.csv"));
+        } finally {
+            executor.shutdown();
+        }
+
+        System.out.printf("%,d Patienten und %,d Benutzer in %.1f s generiert%n", patients, users,
+                (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * The seed all random generators are derived from.
+     */
+    private long seed;
+
+    /**
+     * The amount of years, over which the admissions are spread.
+     */
+    private int years;
+
+    /**
+     * The day, that is considered as today. Patients, whose stay ends after this day, are still in house.
+     */
+    private LocalDate today;
+
+    /**
+     * Initializes the generator.
+     *
+     * @param seed  The seed all random generators are derived from.
+     * @param years The amount of years, over which the admissions are spread.
+     * @param today The day, that is considered as today.
+     */
+    public DatasetGenerator(long seed, int years, LocalDate today) {
+        this.seed = seed;
+        this.years = years;
+        this.today = today;
+    }
+
+    /**
+     * Generates the passed amount of patients in parallel and writes them in order to the passed files.
+     *
+     * At most twice as many chunks as threads are generated ahead of the writer, so that the memory needed does not
+     * depend on the amount of patients.
+     *
+     * @param executor     The executor to generate the chunks with.
+     * @param threads      The amount of threads of the executor.
+     * @param patients     The amount of patients to generate.
+     * @param csvFile      The CSV-File to write or null.
+     * @param columnarFile The file to write in the columnar export format or null.
+     * @throws Exception If the files can't be written.
+     */
+    public void writePatients(ExecutorService executor, int threads, int patients, Path csvFile, Path columnarFile)
+            throws Exception {
+        Writer csv = csvFile == null ? null : Files.newBufferedWriter(csvFile, Charset.defaultCharset());
+        PatientExporter columnar = columnarFile == null ? null : new ColumnarExporter(columnarFile);
+        boolean withCsv = csv != null;
+        Deque<Future<Chunk>> pending = new ArrayDeque<>();
+        int chunks = (patients + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+        try {
+            for (int next = 0, written = 0; written < chunks; ) {
+                while (next < chunks && pending.size() < threads * 2) {
+                    int index = next++;
+                    int rows = Math.min(CHUNK_SIZE, patients - index * CHUNK_SIZE);
+                    pending.add(executor.submit(() -> generateChunk(index, rows, withCsv)));
+                }
+
+                Chunk chunk = pending.poll().get();
+                if (csv != null) {
+                    csv.write(chunk.csv.toString());
+                }
+                if (columnar != null) {
+                    chunk.export(columnar);
+                }
+                written++;
+            }
+        } finally {
+            if (csv != null) {
+                csv.close();
+            }
+            if (columnar != null) {
+                columnar.close();
+            }
+        }
+    }
+
+    /**
+     * Writes the passed amount of users to the passed file. The password of each user is "passwort" followed by the
+     * number of the user.
+     *
+     * @param users The amount of users to generate.
+     * @param file  The CSV-File to write.
+     * @throws IOException If the file can't be written.
+     */
+    public void writeUsers(int users, Path file) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed ^ 0x5DEECE66DL);
+
+        try (Writer writer = Files.newBufferedWriter(file, Charset.defaultCharset())) {
+            for (int i = 0; i < users; i++) {
+                String name = FIRST_NAMES.sample(random).toLowerCase() + "." + LAST_NAMES.sample(random).toLowerCase();
+                writer.write(name + i + ";" + Sha1PasswordHasher.INSTANCE.hash("passwort" + i) + "\n");
+            }
+        }
+    }
+
+    /**
+     * Generates the patients of the chunk with the passed number.
+     *
+     * @param index   The number of the chunk.
+     * @param rows    The amount of patients in the chunk.
+     * @param withCsv Boolean value, that indicates whether the CSV lines should be formatted.
+     * @return The generated chunk.
+     */
+    private Chunk generateChunk(int index, int rows, boolean withCsv) {
+        SplittableRandom random = new SplittableRandom(seed + index * 0x9E3779B97F4A7C15L);
+        DateFormat dateFormat = DateFormat.getDateInstance();
+        Chunk chunk = new Chunk(rows);
+        long lastDay = today.toEpochDay();
+        long firstDay = today.minusYears(years).toEpochDay();
+
+        for (int i = 0; i < rows; i++) {
+            chunk.ids[i] = index * CHUNK_SIZE + i + 1;
+            chunk.firstNames[i] = FIRST_NAMES.sample(random);
+            chunk.lastNames[i] = LAST_NAMES.sample(random);
+            chunk.ages[i] = age(random);
+            chunk.icds[i] = ICD_CODES.sample(random);
+
+            long admission;
+            do {
+                admission = random.nextLong(firstDay, lastDay + 1);
+                // Saturdays and sundays have only about half of the admissions of a weekday.
+            } while (LocalDate.ofEpochDay(admission).getDayOfWeek().getValue() >= 6 && random.nextInt(2) == 0);
+
+            long discharge = admission + lengthOfStay(random);
+            chunk.admissions[i] = toDate(admission);
+            chunk.discharges[i] = discharge > lastDay ? null : toDate(discharge);
+
+            if (withCsv) {
+                chunk.csv.append(chunk.ids[i]).append(';')
+                        .append(chunk.firstNames[i]).append(';')
+                        .append(chunk.lastNames[i]).append(';')
+                        .append(chunk.ages[i]).append(';')
+                        .append(dateFormat.format(chunk.admissions[i])).append(';')
+                        .append(chunk.discharges[i] == null ? "" : dateFormat.format(chunk.discharges[i])).append(';')
+                        .append(chunk.icds[i]).append('\n');
+            }
+        }
+
+        return chunk;
+    }
+
+    /**
+     * Draws the age of a patient, whereby elderly patients are much more frequent than young ones.
+     *
+     * @param random The random generator to use.
+     * @return The age between 0 and 105.
+     */
+    private static int age(SplittableRandom random) {
+        if (random.nextInt(100) < 8) {
+            return random.nextInt(18);
+        }
+
+        double age = 64 + 18 * gaussian(random);
+        return (int) Math.max(18, Math.min(105, age));
+    }
+
+    /**
+     * Draws the length of a stay in days from a log-normal distribution with a median of about 5 days.
+     *
+     * @param random The random generator to use.
+     * @return The length of the stay in days.
+     */
+    private static int lengthOfStay(SplittableRandom random) {
+        return (int) Math.min(365, Math.exp(1.6 + 0.8 * gaussian(random)));
+    }
+
+    /**
+     * @param random The random generator to use.
+     * @return A normally distributed value with mean 0 and standard deviation 1 (Box-Muller transform).
+     */
+    private static double gaussian(SplittableRandom random) {
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    /**
+     * @param epochDay The amount of days since 1970-01-01.
+     * @return The date at the start of the passed day in the default time zone.
+     */
+    private static Date toDate(long epochDay) {
+        return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * Discrete distribution over a set of values with relative weights.
+     */
+    private static class Distribution {
+        /**
+         * The values of the distribution.
+         */
+        private final String[] values;
+
+        /**
+         * The cumulative weights of the values.
+         */
+        private final int[] cumulative;
+
+        /**
+         * Initializes the distribution.
+         *
+         * @param values  The values of the distribution.
+         * @param weights The relative weights of the values.
+         */
+        Distribution(String[] values, int[] weights) {
+            this.values = values;
+            this.cumulative = new int[weights.length];
+            int sum = 0;
+            for (int i = 0; i < weights.length; i++) {
+                sum += weights[i];
+                cumulative[i] = sum;
+            }
+        }
+
+        /**
+         * @param random The random generator to use.
+         * @return A value drawn from the distribution.
+         */
+        String sample(SplittableRandom random) {
+            int target = random.nextInt(cumulative[cumulative.length - 1]);
+            int low = 0;
+            int high = cumulative.length - 1;
+
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cumulative[middle] > target) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+
+            return values[low];
+        }
+    }
+
+    /**
+     * The generated patients of one chunk.
+     */
+    private static class Chunk {
+        /**
+         * The ids of the patients.
+         */
+        final int[] ids;
+
+        /**
+         * The first names of the patients.
+         */
+        final String[] firstNames;
+
+        /**
+         * The last names of the patients.
+         */
+        final String[] lastNames;
+
+        /**
+         * The ages of the patients.
+         */
+        final int[] ages;
+
+        /**
+         * The admission dates of the patients.
+         */
+        final Date[] admissions;
+
+        /**
+         * The discharge dates of the patients, null for patients still in house.
+         */
+        final Date[] discharges;
+
+        /**
+         * The ICD codes of the patients.
+         */
+        final String[] icds;
+
+        /**
+         * The CSV lines of the patients, empty if no CSV lines were requested.
+         */
+        final StringBuilder csv;
+
+        /**
+         * Initializes the chunk for the passed amount of patients.
+         *
+         * @param rows The amount of patients.
+         */
+        Chunk(int rows) {
+            ids = new int[rows];
+            firstNames = new String[rows];
+            lastNames = new String[rows];
+            ages = new int[rows];
+            admissions = new Date[rows];
+            discharges = new Date[rows];
+            icds = new String[rows];
+            csv = new StringBuilder();
+        }
+
+        /**
+         * Writes the patients of this chunk with the passed exporter.
+         *
+         * @param exporter The exporter to write the patients with.
+         * @throws IOException If the patients can't be written.
+         */
+        void export(PatientExporter exporter) throws IOException {
+            for (int i = 0; i < ids.length; i++) {
+                exporter.write(new Patient(ids[i], firstNames[i], lastNames[i], ages[i], icds[i], admissions[i],
+                        discharges[i]));
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package de.thm.stumm.patientmanager.benchmark;
+
+import de.thm.stumm.patientmanager.model.MalformedCsvLineException;
+import de.thm.stumm.patientmanager.model.Sha1PasswordHasher;
+import de.thm.stumm.patientmanager.model.User;
+import de.thm.stumm.patientmanager.model.UserList;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Benchmark measuring the login throughput of the UserList with many staff accounts.
+ *
+ * The benchmark adds the passed amount of users to a UserList (without persisting them) and simulates a login storm
+ * with 90% successful logins, 5% wrong passwords and 5% unknown usernames. It compares the login by the username index
+ * with the linear search of the list, that was used for the login before. All users have SHA1 hashed passwords, so
+ * both variants include hashing the password once. The list is opened independently of the singleton in a temporary
+ * directory, so the users of the application are not touched.
+ *
+ * Usage: LoginBenchmark [users] [logins]
+ *
+ * @author Dennis Stumm
+ */
+public class LoginBenchmark {
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The amount of users (default 10000) and the amount of logins per round (default 1000000).
+     * @throws MalformedCsvLineException If some of the lines in the user CSV-File contain errors.
+     * @throws IOException               If an error gets thrown while reading the user CSV-File.
+     */
+    public static void main(String[] args) throws MalformedCsvLineException, IOException {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int loginCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+
+        Path directory = Files.createTempDirectory("patientmanager-bench");
+        UserList users = UserList.open(directory.resolve("user.csv"));
+        for (int i = 0; i < userCount; i++) {
+            users.add(new User("bench-user-" + i, Sha1PasswordHasher.INSTANCE.hash(password(i))));
+        }
+
+        Random random = new Random(42);
+        String[] usernames = new String[loginCount];
+        String[] passwords = new String[loginCount];
+        for (int i = 0; i < loginCount; i++) {
+            int user = random.nextInt(userCount);
+            int kind = random.nextInt(100);
+            usernames[i] = kind < 95 ? "bench-user-" + user : "unknown-user-" + user;
+            passwords[i] = kind < 90 || kind >= 95 ? password(user) : password(user + 1);
+        }
+
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            int successful = 0;
+            for (int i = 0; i < loginCount; i++) {
+                if (users.authenticate(usernames[i], passwords[i])) {
+                    successful++;
+                }
+            }
+            report("index", round, loginCount, System.nanoTime() - start, successful);
+        }
+
+        int linearCount = Math.max(1, Math.min(loginCount, 20000000 / userCount));
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            int successful = 0;
+            for (int i = 0; i < linearCount; i++) {
+                String hash = Sha1PasswordHasher.INSTANCE.hash(passwords[i]);
+                if (users.find(new User(usernames[i], hash)) != null) {
+                    successful++;
+                }
+            }
+            report("linear", round, linearCount, System.nanoTime() - start, successful);
+        }
+
+        ModelBenchmark.deleteDirectory(directory);
+    }
+
+    /**
+     * @param user The number of the benchmark user.
+     * @return The password of the passed benchmark user.
+     */
+    private static String password(int user) {
+        return "password-" + user;
+    }
+
+    /**
+     * Prints the result of one round to the console.
+     *
+     * @param variant    The name of the measured login variant.
+     * @param round      The number of the round.
+     * @param logins     The amount of logins in the round.
+     * @param nanos      The time the round took in nanoseconds.
+     * @param successful The amount of successful logins in the round.
+     */
+    private static void report(String variant, int round, int logins, long nanos, int successful) {
+        System.out.printf("%-6s round %d: %,12.0f logins/s (%,d of %,d successful)%n",
+                variant, round, logins / (nanos / 1e9), successful, logins);
+    }
+}
@@ -0,0 +1,367 @@
+package de.thm.stumm.patientmanager.benchmark;
+
+import de.thm.stumm.patientmanager.model.MalformedCsvLineException;
+import de.thm.stumm.patientmanager.model.Patient;
+import de.thm.stumm.patientmanager.model.PatientList;
+import de.thm.stumm.patientmanager.model.User;
+import de.thm.stumm.patientmanager.model.UserList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of the lists of the model package.
+ *
+ * For every list size the benchmarks measure adding, removing, searching and iterating the items of a PatientList and
+ * UserList as well as persisting and loading the PatientList. The lists are created independently of the singletons
+ * in a temporary directory, so the data of the application is not touched. The results can be written in the CSV
+ * format of JMH with `-rf csv` and compared by `CompareResults`.
+ *
+ * Lists with 10M patients need a large heap, e.g. `-jvmArgs -Xmx8g`.
+ *
+ * Usage: java -cp bench/target/benchmarks.jar:libs/SHA1-Lib_j9.jar org.openjdk.jmh.Main -p size=1000,100000 -rf csv -rff bench-results/model.csv ModelBenchmark
+ *
+ * @author Dennis Stumm
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+// The last names contain umlauts, which have to be encodable by the default charset of the forked JVM.
+@Fork(value = 1, jvmArgsAppend = "-Dfile.encoding=UTF-8")
+public class ModelBenchmark {
+    /**
+     * Last names used for the patients of the benchmark.
+     */
+    private static final String[] LAST_NAMES = {"Müller", "Schmidt", "Schneider", "Fischer", "Weber", "Meyer",
+            "Wagner", "Becker", "Schulz", "Hoffmann"};
+
+    /**
+     * PatientList with the passed amount of patients, that is persisted to a CSV-File in a temporary directory.
+     */
+    @State(Scope.Benchmark)
+    public static class Patients {
+        /**
+         * The amount of patients in the list.
+         */
+        @Param({"1000", "100000", "10000000"})
+        public int size;
+
+        /**
+         * The patients, that are contained in the list.
+         */
+        Patient[] patients;
+
+        /**
+         * The list containing all patients.
+         */
+        PatientList list;
+
+        /**
+         * The CSV-File, which never gets persisted, so the lists opened with it start empty.
+         */
+        Path emptyFile;
+
+        /**
+         * The CSV-File, the list is persisted to.
+         */
+        Path file;
+
+        /**
+         * The last patient of the list.
+         */
+        Patient last;
+
+        /**
+         * The patient in the middle of the list.
+         */
+        Patient middle;
+
+        /**
+         * The temporary directory containing the CSV-Files of the benchmark.
+         */
+        private Path directory;
+
+        /**
+         * Creates the patients, adds them to the list and persists it, so it can be loaded.
+         *
+         * @throws MalformedCsvLineException If some of the lines in the CSV-File contain errors.
+         * @throws IOException               If an error gets thrown while writing the CSV-File.
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws MalformedCsvLineException, IOException {
+            patients = new Patient[size];
+            Date admission = new Date();
+            for (int i = 0; i < size; i++) {
+                patients[i] = new Patient(i + 1, "Vorname" + (i % 1000), LAST_NAMES[i % LAST_NAMES.length], i % 100,
+                        "I" + (i % 100), admission, null);
+            }
+
+            directory = Files.createTempDirectory("patientmanager-bench");
+            emptyFile = directory.resolve("empty.csv");
+            file = directory.resolve("patients.csv");
+            list = PatientList.open(file);
+            for (Patient patient : patients) {
+                list.add(patient);
+            }
+            list.persist();
+
+            last = patients[size - 1];
+            middle = patients[size / 2];
+        }
+
+        /**
+         * Deletes the CSV-Files of the benchmark.
+         *
+         * @throws IOException If a file can't be deleted.
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * UserList with the passed amount of users, that is opened with a CSV-File in a temporary directory.
+     */
+    @State(Scope.Benchmark)
+    public static class Users {
+        /**
+         * The amount of users in the list.
+         */
+        @Param({"1000", "100000", "10000000"})
+        public int size;
+
+        /**
+         * The users, that are contained in the list.
+         */
+        User[] users;
+
+        /**
+         * The list containing all users.
+         */
+        UserList list;
+
+        /**
+         * The CSV-File, which never gets persisted, so the lists opened with it start empty.
+         */
+        Path emptyFile;
+
+        /**
+         * The last user of the list.
+         */
+        User last;
+
+        /**
+         * The temporary directory containing the CSV-File of the benchmark.
+         */
+        private Path directory;
+
+        /**
+         * Creates the users and adds them to the list.
+         *
+         * @throws MalformedCsvLineException If some of the lines in the CSV-File contain errors.
+         * @throws IOException               If an error gets thrown while reading the CSV-File.
+         */
+        @Setup(Level.Trial)
+        public void setUp() throws MalformedCsvLineException, IOException {
+            users = new User[size];
+            for (int i = 0; i < size; i++) {
+                users[i] = new User("user" + i, "3e5c5f0ee799eb1965756f590546061b77167f43");
+            }
+
+            directory = Files.createTempDirectory("patientmanager-bench");
+            emptyFile = directory.resolve("users.csv");
+            list = UserList.open(emptyFile);
+            for (User user : users) {
+                list.add(user);
+            }
+
+            last = users[size - 1];
+        }
+
+        /**
+         * Deletes the temporary directory of the benchmark.
+         *
+         * @throws IOException If the directory can't be deleted.
+         */
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            deleteDirectory(directory);
+        }
+    }
+
+    /**
+     * Adds all patients to an empty PatientList.
+     *
+     * @param state The patients of the benchmark.
+     * @return The filled list.
+     * @throws MalformedCsvLineException If some of the lines in the CSV-File contain errors.
+     * @throws IOException               If an error gets thrown while reading the CSV-File.
+     */
+    @Benchmark
+    public PatientList patientListAdd(Patients state) throws MalformedCsvLineException, IOException {
+        PatientList list = PatientList.open(state.emptyFile);
+        for (Patient patient : state.patients) {
+            list.add(patient);
+        }
+
+        return list;
+    }
+
+    /**
+     * Searches for the last patient by the patient itself.
+     *
+     * @param state The patients of the benchmark.
+     * @return The found patient.
+     */
+    @Benchmark
+    public Patient patientListFindItem(Patients state) {
+        return state.list.find(state.last);
+    }
+
+    /**
+     * Searches for the last patient by its id.
+     *
+     * @param state The patients of the benchmark.
+     * @return The found patient.
+     */
+    @Benchmark
+    public Patient patientListFindProperty(Patients state) {
+        return state.list.find("id", state.last.getId());
+    }
+
+    /**
+     * Searches for all patients with the same ICD.
+     *
+     * @param state The patients of the benchmark.
+     * @return The found patients.
+     */
+    @Benchmark
+    public Object[] patientListFindAll(Patients state) {
+        return state.list.findAll("icd", "I42");
+    }
+
+    /**
+     * Iterates over all patients.
+     *
+     * @param state The patients of the benchmark.
+     * @return The sum of the ids of the patients.
+     */
+    @Benchmark
+    public long patientListIterate(Patients state) {
+        long sum = 0;
+        for (Patient patient : state.list) {
+            sum += patient.getId();
+        }
+
+        return sum;
+    }
+
+    /**
+     * Loads the persisted PatientList.
+     *
+     * @param state The patients of the benchmark.
+     * @return The loaded list.
+     * @throws MalformedCsvLineException If some of the lines in the CSV-File contain errors.
+     * @throws IOException               If an error gets thrown while reading the CSV-File.
+     */
+    @Benchmark
+    public PatientList patientListLoadItems(Patients state) throws MalformedCsvLineException, IOException {
+        return PatientList.open(state.file);
+    }
+
+    /**
+     * Persists the PatientList.
+     *
+     * @param state The patients of the benchmark.
+     * @throws IOException If an error gets thrown while writing the CSV-File.
+     */
+    @Benchmark
+    public void patientListPersist(Patients state) throws IOException {
+        state.list.persist();
+    }
+
+    /**
+     * Removes the patient in the middle of the list and adds it again, so the size of the list stays the same.
+     *
+     * @param state The patients of the benchmark.
+     */
+    @Benchmark
+    public void patientListRemove(Patients state) {
+        state.list.remove(state.middle);
+        state.list.add(state.middle);
+    }
+
+    /**
+     * Adds all users to an empty UserList.
+     *
+     * @param state The users of the benchmark.
+     * @return The filled list.
+     * @throws MalformedCsvLineException If some of the lines in the CSV-File contain errors.
+     * @throws IOException               If an error gets thrown while reading the CSV-File.
+     */
+    @Benchmark
+    public UserList userListAdd(Users state) throws MalformedCsvLineException, IOException {
+        UserList list = UserList.open(state.emptyFile);
+        for (User user : state.users) {
+            list.add(user);
+        }
+
+        return list;
+    }
+
+    /**
+     * Searches for the last user by the user itself.
+     *
+     * @param state The users of the benchmark.
+     * @return The found user.
+     */
+    @Benchmark
+    public User userListFindItem(Users state) {
+        return state.list.find(state.last);
+    }
+
+    /**
+     * Searches for the last user by its username.
+     *
+     * @param state The users of the benchmark.
+     * @return The found user.
+     */
+    @Benchmark
+    public User userListFindUsername(Users state) {
+        return state.list.find("username", state.last.getUsername());
+    }
+
+    /**
+     * Deletes the passed directory with the files in it.
+     *
+     * @param directory The directory to delete.
+     * @throws IOException If a file can't be deleted.
+     */
+    static void deleteDirectory(Path directory) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
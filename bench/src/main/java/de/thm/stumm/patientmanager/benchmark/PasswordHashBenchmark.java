@@ -0,0 +1,75 @@
+package de.thm.stumm.patientmanager.benchmark;
+
+import de.thm.Sha1;
+import de.thm.stumm.patientmanager.model.Pbkdf2PasswordHasher;
+import de.thm.stumm.patientmanager.model.Sha1PasswordHasher;
+
+/**
+ * Benchmark comparing the password verification of the SHA1 library with the pooled SHA1 hasher and calibrating the
+ * PBKDF2 hasher to a latency budget.
+ *
+ * Usage: PasswordHashBenchmark [budget in milliseconds]
+ *
+ * @author Dennis Stumm
+ */
+public class PasswordHashBenchmark {
+    /**
+     * Amount of verifications per SHA1 round.
+     */
+    private static final int VERIFICATIONS = 1000000;
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args The latency budget for the PBKDF2 hasher in milliseconds (default 100).
+     */
+    public static void main(String[] args) {
+        long budget = args.length > 0 ? Long.parseLong(args[0]) : 100;
+        String stored = Sha1PasswordHasher.INSTANCE.hash("password");
+        int matches = 0;
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < VERIFICATIONS; i++) {
+                if (new Sha1().getHash("password").equals(stored)) {
+                    matches++;
+                }
+            }
+            report("SHA1 library", System.nanoTime() - start, VERIFICATIONS);
+
+            start = System.nanoTime();
+            for (int i = 0; i < VERIFICATIONS; i++) {
+                if (Sha1PasswordHasher.INSTANCE.verify("password", stored)) {
+                    matches++;
+                }
+            }
+            report("SHA1 pooled", System.nanoTime() - start, VERIFICATIONS);
+        }
+
+        int iterations = Pbkdf2PasswordHasher.calibrate(budget);
+        Pbkdf2PasswordHasher hasher = new Pbkdf2PasswordHasher(iterations);
+        String strongHash = hasher.hash("password");
+        System.out.printf("PBKDF2 calibrated to %d ms: %,d iterations%n", budget, iterations);
+
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            if (hasher.verify("password", strongHash)) {
+                matches++;
+            }
+            System.out.printf("PBKDF2 login latency: %.1f ms%n", (System.nanoTime() - start) / 1e6);
+        }
+
+        System.out.println("(" + matches + " successful verifications)");
+    }
+
+    /**
+     * Prints the result of one round to the console.
+     *
+     * @param variant The name of the measured variant.
+     * @param nanos   The time the round took in nanoseconds.
+     * @param count   The amount of verifications in the round.
+     */
+    private static void report(String variant, long nanos, int count) {
+        System.out.printf("%-13s %,12.0f verifications/s%n", variant, count / (nanos / 1e9));
+    }
+}
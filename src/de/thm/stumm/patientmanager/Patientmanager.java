@@ -1,6 +1,15 @@
 package de.thm.stumm.patientmanager;
 
 import de.thm.stumm.patientmanager.controller.LoginController;
+import de.thm.stumm.patientmanager.model.ChangeEventBus;
+import de.thm.stumm.patientmanager.model.ChangeLogSink;
+import de.thm.stumm.patientmanager.model.MalformedCsvLineException;
+import de.thm.stumm.patientmanager.model.PatientList;
+import de.thm.stumm.patientmanager.model.ReplicationServer;
+import de.thm.stumm.patientmanager.model.UserList;
+
+import java.io.IOException;
+import java.nio.file.Paths;
 
 /**
  * The main class of the application containing the main method.
@@ -9,11 +18,45 @@ import de.thm.stumm.patientmanager.controller.LoginController;
  */
 public class Patientmanager {
     /**
-     * Initializes the LoginController, which initializes the view to force the user to login to the application.
+     * Starts loading the patients in the background and initializes the LoginController, which initializes the view
+     * to force the user to login to the application.
+     * <p>
+     * If the system property `patientmanager.changeLog` is set, the changes of the patients get appended to the file
+     * with this path. If the system property `patientmanager.replication` is set to `primary`, followers on the same
+     * machine can connect to the port `patientmanager.replicationPort`, when the patients are loaded. If it is set to
+     * `follower`, the patients and users are received from the primary on this port instead of being loaded.
      *
      * @param args Arguments passed to the application.
      */
     public static void main(String[] args) {
+        PatientList.loadAsync();
+
+        String changeLog = System.getProperty("patientmanager.changeLog");
+        if (changeLog != null) {
+            try {
+                ChangeEventBus.getInstance().subscribe("changeLog", new ChangeLogSink(Paths.get(changeLog)));
+            } catch (IOException exception) {
+                System.err.println("Das Änderungsprotokoll " + changeLog + " konnte nicht geöffnet werden (" + exception.getLocalizedMessage() + ")!");
+            }
+        }
+
+        if ("primary".equals(System.getProperty("patientmanager.replication"))) {
+            PatientList.loadAsync().thenAccept(Patientmanager::startReplication);
+        }
+
         new LoginController();
     }
+
+    /**
+     * Starts streaming the passed patients and the users to the followers.
+     *
+     * @param patients The loaded patients.
+     */
+    private static void startReplication(PatientList patients) {
+        try {
+            new ReplicationServer(patients, UserList.getInstance()).start();
+        } catch (MalformedCsvLineException | IOException exception) {
+            System.err.println("Die Replikation konnte nicht gestartet werden (" + exception.getLocalizedMessage() + ")!");
+        }
+    }
 }
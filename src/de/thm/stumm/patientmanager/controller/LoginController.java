@@ -1,7 +1,8 @@
 package de.thm.stumm.patientmanager.controller;
 
+import de.thm.stumm.patientmanager.metrics.Metrics;
+import de.thm.stumm.patientmanager.metrics.OperationMetrics;
 import de.thm.stumm.patientmanager.model.MalformedCsvLineException;
-import de.thm.stumm.patientmanager.model.User;
 import de.thm.stumm.patientmanager.model.UserList;
 import de.thm.stumm.patientmanager.view.LoginView;
 
@@ -13,6 +14,11 @@ import java.io.IOException;
  * @author Dennis Stumm
  */
 public class LoginController {
+    /**
+     * Metrics of the login attempts, whereby failed logins are counted as failures.
+     */
+    private static final OperationMetrics loginMetrics = Metrics.operation("LoginController", "login");
+
     /**
      * UserList containing all existing users in the system.
      */
@@ -35,13 +41,21 @@ public class LoginController {
     }
 
     /**
-     * Tries to find the passed user in the UserList.
+     * Checks whether a user with the passed username exists in the UserList and the passed password is correct.
      *
-     * @param user User to search for in the UserList.
-     * @return true if the user could be found in the UserList, false otherwise.
+     * @param username The name of the user, that wants to login.
+     * @param password The password of the user in plain text.
+     * @return true if the user could be authenticated, false otherwise.
      */
-    public boolean login(User user) {
-        return users.find(user) != null;
+    public boolean login(String username, String password) {
+        long start = loginMetrics.start();
+        boolean success;
+        synchronized (users) {
+            success = users.authenticate(username, password);
+        }
+        loginMetrics.stop(start, success);
+
+        return success;
     }
 
     /**
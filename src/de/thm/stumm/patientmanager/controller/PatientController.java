@@ -1,17 +1,151 @@
 package de.thm.stumm.patientmanager.controller;
 
+import de.thm.stumm.patientmanager.metrics.CacheMetrics;
+import de.thm.stumm.patientmanager.metrics.Metrics;
+import de.thm.stumm.patientmanager.metrics.OperationMetrics;
 import de.thm.stumm.patientmanager.model.*;
 import de.thm.stumm.patientmanager.view.PatientView;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Controller that handles the actions from the PatientView including the management of patients and users.
+ * <p>
+ * Patients and users are added and removed, while their list is locked, so the ReplicationServer can take a consistent
+ * snapshot. If this process is the follower of a replication, the lists are read-only replicas and get locked while
+ * reading them, because the changes of the primary are applied concurrently.
  *
  * @author Dennis Stumm
  */
 public class PatientController {
+    /**
+     * The maximum amount of patients, that are read but not yet written by a running export.
+     */
+    private static final int EXPORT_BUFFER_SIZE = 4096;
+
+    /**
+     * The maximum amount of search results kept in the query cache, whereby 0 disables the cache.
+     */
+    private static final int QUERY_CACHE_SIZE = Integer.getInteger("patientmanager.queryCache", 1024);
+
+    /**
+     * Metrics of the hits, misses and evictions of the query cache.
+     */
+    private static final CacheMetrics queryCacheMetrics = Metrics.cache("PatientController", "queries");
+
+    /**
+     * Metrics of creating patients.
+     */
+    private static final OperationMetrics createPatientMetrics = Metrics.operation("PatientController", "createPatient");
+
+    /**
+     * Metrics of creating reports.
+     */
+    private static final OperationMetrics createReportMetrics = Metrics.operation("PatientController", "createReport");
+
+    /**
+     * Metrics of creating users.
+     */
+    private static final OperationMetrics createUserMetrics = Metrics.operation("PatientController", "createUser");
+
+    /**
+     * Metrics of deleting patients.
+     */
+    private static final OperationMetrics deletePatientMetrics = Metrics.operation("PatientController", "deletePatient");
+
+    /**
+     * Metrics of deleting users.
+     */
+    private static final OperationMetrics deleteUserMetrics = Metrics.operation("PatientController", "deleteUser");
+
+    /**
+     * Metrics of discharging patients.
+     */
+    private static final OperationMetrics dischargePatientMetrics = Metrics.operation("PatientController", "dischargePatient");
+
+    /**
+     * Metrics of querying the daily trend of the occupancy.
+     */
+    private static final OperationMetrics getDailyTrendMetrics = Metrics.operation("PatientController", "getDailyTrend");
+
+    /**
+     * Metrics of querying the hourly trend of the occupancy.
+     */
+    private static final OperationMetrics getHourlyTrendMetrics = Metrics.operation("PatientController", "getHourlyTrend");
+
+    /**
+     * Metrics of listing a page of the sorted patients.
+     */
+    private static final OperationMetrics getSortedPatientsMetrics = Metrics.operation("PatientController", "getSortedPatients");
+
+    /**
+     * Metrics of selecting the most frequent ICDs.
+     */
+    private static final OperationMetrics getTopIcdsMetrics = Metrics.operation("PatientController", "getTopIcds");
+
+    /**
+     * Metrics of selecting the top patients of a ranking.
+     */
+    private static final OperationMetrics getTopPatientsMetrics = Metrics.operation("PatientController", "getTopPatients");
+
+    /**
+     * Metrics of searching a single patient.
+     */
+    private static final OperationMetrics searchPatientMetrics = Metrics.operation("PatientController", "searchPatient");
+
+    /**
+     * Metrics of searching all patients with a property value.
+     */
+    private static final OperationMetrics searchPatientsMetrics = Metrics.operation("PatientController", "searchPatients");
+
+    /**
+     * Metrics of the searches in the PatientList, that weren't answered by the query cache.
+     */
+    private static final OperationMetrics uncachedSearchMetrics = Metrics.operation("PatientController", "uncachedSearch");
+
+    /**
+     * Cache of the results of the recent searches, which are only valid as long as the version of the PatientList for
+     * the searched property didn't change. The least recently used results get evicted first.
+     */
+    private final Map<Query, CachedResult> queryCache = new LinkedHashMap<Query, CachedResult>(QUERY_CACHE_SIZE * 2, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Query, CachedResult> eldest) {
+            if (size() <= QUERY_CACHE_SIZE) {
+                return false;
+            }
+
+            queryCacheMetrics.eviction();
+            return true;
+        }
+    };
+
+    /**
+     * Executor running the exports in the background, while the user keeps working with the application.
+     */
+    private ExecutorService exportExecutor = Executors.newSingleThreadExecutor();
+
+    /**
+     * The exports that were started, whose failures get reported, when the exports are finished.
+     */
+    private final Collection<Future<Integer>> exports = new ArrayList<>();
+
     /**
      * PatientList containing all existing patients in the system.
      */
@@ -29,7 +163,7 @@ public class PatientController {
         PatientView view = new PatientView(this);
 
         try {
-            patients = PatientList.getInstance();
+            patients = awaitPatients(view);
             users = UserList.getInstance();
             view.render();
         } catch (MalformedCsvLineException exception) {
@@ -39,6 +173,18 @@ public class PatientController {
         }
     }
 
+    /**
+     * Changes the ICD of the passed patient to the passed value.
+     *
+     * @param patient The patient, whose ICD gets changed.
+     * @param icd     The new ICD of the patient.
+     */
+    public void changeIcd(Patient patient, String icd) {
+        synchronized (patients) {
+            this.patients.changeIcd(patient, icd);
+        }
+    }
+
     /**
      * Adds a new patient to the application with the passed properties.
      * <p>
@@ -50,17 +196,61 @@ public class PatientController {
      * @param icd       ICD of the patient.
      */
     public void createPatient(String firstName, String lastName, int age, String icd) {
-        patients.add(firstName, lastName, age, icd);
+        long start = createPatientMetrics.start();
+        synchronized (patients) {
+            patients.add(firstName, lastName, age, icd);
+        }
+        createPatientMetrics.stop(start);
     }
 
     /**
-     * Adds a new user to the application with the passed username and SHA1 hashed password.
+     * Creates the report of the passed type over all patients.
+     *
+     * @param type The type of the report.
+     * @return The created report.
+     */
+    public Report createReport(ReportType type) {
+        long start = createReportMetrics.start();
+        Report result;
+        synchronized (patients) {
+            result = patients.createReport(type);
+        }
+        createReportMetrics.stop(start);
+
+        return result;
+    }
+
+    /**
+     * Adds a new user to the application with the passed username and password.
+     *
+     * The password gets hashed with the default PasswordHasher before it gets stored.
      *
      * @param username Name of the user that should be created.
-     * @param password SHA1 hashed password of the user that should be created.
+     * @param password Password of the user in plain text.
+     * @return Boolean value, that indicates whether the user was created or not, because the username already exists.
+     */
+    public boolean createUser(String username, String password) {
+        long start = createUserMetrics.start();
+        boolean success;
+
+        synchronized (users) {
+            success = users.findByUsername(username) == null;
+            if (success) {
+                users.add(new User(username, PasswordHasher.getDefault().hash(password)));
+            }
+        }
+
+        createUserMetrics.stop(start, success);
+        return success;
+    }
+
+    /**
+     * @return The amount of patients in the application.
      */
-    public void createUser(String username, String password) {
-        users.add(new User(username, password));
+    public int countPatients() {
+        synchronized (patients) {
+            return patients.size();
+        }
     }
 
     /**
@@ -70,14 +260,18 @@ public class PatientController {
      * @return Boolean value, that indicates whether the patient was deleted successfully or not.
      */
     public boolean deletePatient(int id) {
-        Patient patient = searchPatient("id", id);
+        long start = deletePatientMetrics.start();
+        Patient patient;
 
-        if (patient != null) {
-            this.patients.remove(patient);
-            return true;
+        synchronized (patients) {
+            patient = searchPatient("id", id);
+            if (patient != null) {
+                this.patients.remove(patient);
+            }
         }
 
-        return false;
+        deletePatientMetrics.stop(start, patient != null);
+        return patient != null;
     }
 
     /**
@@ -87,21 +281,214 @@ public class PatientController {
      * @return Boolean value, that indicates whether the user was deleted successfully or not.
      */
     public boolean deleteUser(String username) {
-        User user = this.users.find("username", username);
+        long start = deleteUserMetrics.start();
+        User user;
 
-        if (user != null) {
-            this.users.remove(user);
-            return true;
+        synchronized (users) {
+            user = this.users.findByUsername(username);
+            if (user != null) {
+                this.users.remove(user);
+            }
+        }
+
+        deleteUserMetrics.stop(start, user != null);
+        return user != null;
+    }
+
+    /**
+     * Discharges the passed patient with the current date, whereby the patient gets archived if the patients are
+     * stored tiered.
+     *
+     * @param patient The patient to discharge.
+     * @return Boolean value, that indicates whether the patient was discharged or not, because it was discharged before.
+     */
+    public boolean dischargePatient(Patient patient) {
+        long start = dischargePatientMetrics.start();
+        boolean success = patient.getDischargeDate() == null;
+
+        if (success) {
+            synchronized (patients) {
+                this.patients.discharge(patient);
+            }
         }
 
-        return false;
+        dischargePatientMetrics.stop(start, success);
+        return success;
+    }
+
+    /**
+     * Starts exporting all patients into the passed file in the compact columnar format in the background.
+     *
+     * @param filePath Path to the file, where the patients should be exported to.
+     * @return Future that completes with the amount of exported patients.
+     * @throws IOException If the export file can't be opened.
+     */
+    public Future<Integer> exportPatientsAsColumnar(Path filePath) throws IOException {
+        return startExport(new ColumnarExporter(filePath));
+    }
+
+    /**
+     * Starts exporting all patients as JSON Lines into the passed file in the background.
+     *
+     * @param filePath Path to the file, where the patients should be exported to.
+     * @return Future that completes with the amount of exported patients.
+     * @throws IOException If the export file can't be opened.
+     */
+    public Future<Integer> exportPatientsAsJsonLines(Path filePath) throws IOException {
+        return startExport(new JsonLinesExporter(filePath));
     }
 
     /**
-     * @return PatientList containing all patients of the application.
+     * Waits until all started exports are finished and stops the background thread for the exports.
+     *
+     * @throws IOException If any of the exports failed. If several exports failed, the exception contains the messages
+     *                     of all failures and the failures themselves as suppressed exceptions.
      */
-    public PatientList getPatients() {
-        return patients;
+    public void finishExports() throws IOException {
+        exportExecutor.shutdown();
+
+        Collection<Throwable> failures = new ArrayList<>();
+        for (Future<Integer> export : exports) {
+            try {
+                export.get();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException exception) {
+                failures.add(exception.getCause());
+            }
+        }
+
+        if (failures.isEmpty()) {
+            return;
+        }
+
+        Throwable failure = failures.iterator().next();
+        if (failures.size() == 1) {
+            throw failure instanceof IOException ? (IOException) failure : new IOException(failure);
+        }
+
+        StringJoiner messages = new StringJoiner("; ");
+        failures.forEach(cause -> messages.add(cause.getLocalizedMessage()));
+        IOException exception = new IOException(failures.size() + " Exporte sind fehlgeschlagen (" + messages + ")");
+        failures.forEach(exception::addSuppressed);
+        throw exception;
+    }
+
+    /**
+     * Returns all patients of the application. If the patients are a replica, a copy of the patients gets returned,
+     * because the changes of the primary are applied concurrently.
+     *
+     * @return The patients of the application.
+     */
+    public Iterable<Patient> getPatients() {
+        if (!patients.isReadOnly()) {
+            return patients;
+        }
+
+        return copyPatients();
+    }
+
+    /**
+     * Returns the admissions, discharges and the occupancy per day in the passed period from the rollups.
+     *
+     * @param from The first day of the period.
+     * @param to   The last day of the period.
+     * @return The trend of the days in the period.
+     */
+    public OccupancyTrend getDailyTrend(Date from, Date to) {
+        long start = getDailyTrendMetrics.start();
+        OccupancyTrend result;
+        synchronized (patients) {
+            result = patients.getDailyTrend(from, to);
+        }
+        getDailyTrendMetrics.stop(start);
+
+        return result;
+    }
+
+    /**
+     * Returns the admissions, discharges and the occupancy per hour of the passed day from the rollups.
+     *
+     * @param day The day.
+     * @return The trend of the hours of the day.
+     */
+    public OccupancyTrend getHourlyTrend(Date day) {
+        long start = getHourlyTrendMetrics.start();
+        OccupancyTrend result;
+        synchronized (patients) {
+            result = patients.getHourlyTrend(day);
+        }
+        getHourlyTrendMetrics.stop(start);
+
+        return result;
+    }
+
+    /**
+     * Returns a page of all patients sorted in the passed order.
+     * <p>
+     * The patients get sorted only on the first listing in an order and the sorted view gets reused for the following
+     * pages and listings.
+     *
+     * @param order    The order of the patients.
+     * @param page     The number of the page starting with 0.
+     * @param pageSize The amount of patients on a page.
+     * @return The patients on the page, which are fewer than the page size on the last page.
+     */
+    public Patient[] getSortedPatients(PatientOrder order, int page, int pageSize) {
+        long start = getSortedPatientsMetrics.start();
+        Patient[] result;
+        synchronized (patients) {
+            result = patients.getSortedPage(order, page * pageSize, pageSize);
+        }
+        getSortedPatientsMetrics.stop(start);
+
+        return result;
+    }
+
+    /**
+     * Returns the most frequent ICDs of the patients admitted in the passed period.
+     *
+     * @param k    The maximum amount of returned ICDs.
+     * @param from The first day of the period.
+     * @param to   The last day of the period.
+     * @return The ICDs mapped to the amount of admitted patients, starting with the most frequent ICD.
+     */
+    public Map<String, Integer> getTopIcds(int k, Date from, Date to) {
+        long start = getTopIcdsMetrics.start();
+        Map<String, Integer> result;
+        synchronized (patients) {
+            result = patients.getTopIcds(k, from, to);
+        }
+        getTopIcdsMetrics.stop(start);
+
+        return result;
+    }
+
+    /**
+     * Returns the top patients in the passed ranking without sorting all patients.
+     *
+     * @param ranking The ranking of the patients.
+     * @param k       The maximum amount of returned patients.
+     * @return The top patients starting with the highest ranked one.
+     */
+    public Patient[] getTopPatients(PatientRanking ranking, int k) {
+        long start = getTopPatientsMetrics.start();
+        Patient[] result;
+        synchronized (patients) {
+            result = patients.getTop(ranking, k);
+        }
+        getTopPatientsMetrics.stop(start);
+
+        return result;
+    }
+
+    /**
+     * @return Whether the patients and the users are read-only replicas of a primary, which can't be changed or
+     * persisted.
+     */
+    public boolean isReadOnly() {
+        return patients.isReadOnly();
     }
 
     /**
@@ -124,24 +511,269 @@ public class PatientController {
 
     /**
      * Searches for the first occurrence, where the patient has for the passed property the passed value.
+     * <p>
+     * Repeated searches are answered by the query cache, until patients are added or removed or the property of a
+     * patient is changed.
      *
      * @param property Name of property on the object to check the value on.
      * @param value    Value of the property to search the patient with.
      * @return The first matching patient.
      */
     public Patient searchPatient(String property, Object value) {
-        return patients.find(property, value);
+        long start = searchPatientMetrics.start();
+        Patient[] result = search(new Query(false, property, value));
+        searchPatientMetrics.stop(start);
+
+        return result.length == 0 ? null : result[0];
     }
 
     /**
      * Searches for all patients, where the passed property has the passed value.
+     * <p>
+     * Repeated searches are answered by the query cache, until patients are added or removed or the property of a
+     * patient is changed.
      *
      * @param property Name of property on the object to check the value on.
      * @param value    Value of the property to search the patients with.
      * @return Array containing all matching patients.
      */
     public Patient[] searchPatients(String property, Object value) {
-        Object[] foundPatients = patients.findAll(property, value);
-        return Arrays.copyOf(foundPatients, foundPatients.length, Patient[].class);
+        long start = searchPatientsMetrics.start();
+        Patient[] result = search(new Query(true, property, value)).clone();
+        searchPatientsMetrics.stop(start);
+
+        return result;
+    }
+
+    /**
+     * Waits until the patients are loaded and shows the progress of loading in the passed view meanwhile.
+     *
+     * @param view The view to show the progress in.
+     * @return The loaded PatientList.
+     * @throws MalformedCsvLineException If some of the lines in the CSV-File contains errors.
+     * @throws IOException               If an error gets thrown while reading the CSV-File.
+     */
+    private PatientList awaitPatients(PatientView view) throws MalformedCsvLineException, IOException {
+        Future<PatientList> loading = PatientList.loadAsync();
+
+        if (!loading.isDone()) {
+            LoadProgress progress = PatientList.getLoadProgress();
+            while (!loading.isDone()) {
+                view.printLoadProgress(progress.getFraction(), progress.getRows());
+                try {
+                    loading.get(200, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException | TimeoutException exception) {
+                    // Errors get thrown by getInstance, timeouts only update the progress.
+                }
+            }
+            view.printLoadProgress(1, progress.getRows());
+            System.out.println();
+        }
+
+        return PatientList.getInstance();
+    }
+
+    /**
+     * Answers the passed query from the query cache or searches the PatientList and caches the result. The cache is
+     * only used, if the patients are kept in memory, because otherwise the found objects may not be the patients of
+     * the list anymore, when the query is repeated.
+     *
+     * @param query The query to answer.
+     * @return The found patients, which mustn't be changed, because the array may be cached.
+     */
+    private Patient[] search(Query query) {
+        synchronized (patients) {
+            boolean cacheable = QUERY_CACHE_SIZE > 0 && patients.isInMemory();
+            long version = patients.getVersion(query.property);
+
+            if (cacheable) {
+                CachedResult cached = queryCache.get(query);
+                if (cached != null && cached.version == version) {
+                    queryCacheMetrics.hit();
+                    return cached.patients;
+                }
+                queryCacheMetrics.miss();
+            }
+
+            long start = uncachedSearchMetrics.start();
+            Patient[] result;
+            if (query.all) {
+                Object[] foundPatients = patients.findAll(query.property, query.value);
+                result = Arrays.copyOf(foundPatients, foundPatients.length, Patient[].class);
+            } else {
+                Patient patient = patients.find(query.property, query.value);
+                result = patient == null ? new Patient[0] : new Patient[]{patient};
+            }
+            uncachedSearchMetrics.stop(start);
+
+            if (cacheable) {
+                queryCache.put(query, new CachedResult(version, result));
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * @return A copy of all patients, which is taken while the patients are locked.
+     */
+    private Iterable<Patient> copyPatients() {
+        synchronized (patients) {
+            Patient[] copy = new Patient[patients.size()];
+            int index = 0;
+            for (Patient patient : patients) {
+                copy[index++] = patient;
+            }
+
+            return Arrays.asList(copy);
+        }
+    }
+
+    /**
+     * Returns the patients for an export, which reads them on another thread, while patients are added and removed by
+     * this thread.
+     * <p>
+     * If the patients are kept in memory, they get copied at once, which only copies the references. Otherwise the
+     * patients are copied in chunks of EXPORT_BUFFER_SIZE patients, while the patients are locked, so the export
+     * doesn't hold all patients in memory.
+     *
+     * @return The patients, that can be iterated by another thread.
+     */
+    private Iterable<Patient> getExportedPatients() {
+        if (patients.isInMemory()) {
+            return copyPatients();
+        }
+
+        return () -> new Iterator<Patient>() {
+            private final Patient[] chunk = new Patient[EXPORT_BUFFER_SIZE];
+            private Iterator<Patient> source;
+            private int length;
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                if (index == length && (source == null || source.hasNext())) {
+                    synchronized (patients) {
+                        if (source == null) {
+                            source = patients.iterator();
+                        }
+
+                        length = 0;
+                        while (length < chunk.length && source.hasNext()) {
+                            chunk[length++] = source.next();
+                        }
+                    }
+                    index = 0;
+                }
+
+                return index < length;
+            }
+
+            @Override
+            public Patient next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                return chunk[index++];
+            }
+        };
+    }
+
+    /**
+     * Submits an export task for all patients with the passed exporter to the background thread.
+     *
+     * @param exporter The exporter to write the patients with.
+     * @return Future that completes with the amount of exported patients.
+     */
+    private Future<Integer> startExport(PatientExporter exporter) {
+        Future<Integer> export = exportExecutor.submit(new PatientExportTask(getExportedPatients(), exporter, EXPORT_BUFFER_SIZE));
+        exports.add(export);
+        return export;
+    }
+
+    /**
+     * Search for the first or all patients, where a property has a value, which is used as key of the query cache.
+     */
+    private static final class Query {
+        /**
+         * Whether all matching patients are searched or only the first one.
+         */
+        private final boolean all;
+
+        /**
+         * Name of the searched property.
+         */
+        private final String property;
+
+        /**
+         * The searched value of the property.
+         */
+        private final Object value;
+
+        /**
+         * Creates the query.
+         *
+         * @param all      Whether all matching patients are searched or only the first one.
+         * @param property Name of the searched property.
+         * @param value    The searched value of the property.
+         */
+        private Query(boolean all, String property, Object value) {
+            this.all = all;
+            this.property = property;
+            this.value = value;
+        }
+
+        /**
+         * @param obj The object to compare with.
+         * @return Whether the passed object is a query for the same property and value.
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Query)) {
+                return false;
+            }
+
+            Query query = (Query) obj;
+            return all == query.all && property.equals(query.property) && Objects.equals(value, query.value);
+        }
+
+        /**
+         * @return The hash code of the property and the value.
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hash(all, property, value);
+        }
+    }
+
+    /**
+     * Result of a query, which is valid as long as the version of the PatientList for the searched property doesn't
+     * change.
+     */
+    private static final class CachedResult {
+        /**
+         * The version of the PatientList for the searched property, when the query was answered.
+         */
+        private final long version;
+
+        /**
+         * The found patients.
+         */
+        private final Patient[] patients;
+
+        /**
+         * Creates the result.
+         *
+         * @param version  The version of the PatientList for the searched property.
+         * @param patients The found patients.
+         */
+        private CachedResult(long version, Patient[] patients) {
+            this.version = version;
+            this.patients = patients;
+        }
     }
 }
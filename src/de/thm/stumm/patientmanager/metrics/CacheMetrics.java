@@ -0,0 +1,75 @@
+package de.thm.stumm.patientmanager.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of one cache of the application, counting the hits, misses and evictions.
+ *
+ * @author Dennis Stumm
+ */
+public class CacheMetrics implements CacheMetricsMXBean {
+    /**
+     * The amount of lookups, that were answered by the cache.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * The amount of lookups, that had to load the value.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * The amount of values, that were removed from the cache.
+     */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Records a lookup, that was answered by the cache.
+     */
+    public void hit() {
+        hits.increment();
+    }
+
+    /**
+     * Records a lookup, that had to load the value.
+     */
+    public void miss() {
+        misses.increment();
+    }
+
+    /**
+     * Records a value, that was removed from the cache.
+     */
+    public void eviction() {
+        evictions.increment();
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public double getHitRatio() {
+        long hits = getHits();
+        long lookups = hits + getMisses();
+        return lookups == 0 ? 0 : hits / (double) lookups;
+    }
+
+    @Override
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+}
@@ -0,0 +1,33 @@
+package de.thm.stumm.patientmanager.metrics;
+
+/**
+ * Management interface exposing the efficiency of a cache via JMX.
+ *
+ * @author Dennis Stumm
+ */
+public interface CacheMetricsMXBean {
+    /**
+     * @return The amount of lookups, that were answered by the cache.
+     */
+    long getHits();
+
+    /**
+     * @return The amount of lookups, that had to load the value.
+     */
+    long getMisses();
+
+    /**
+     * @return The amount of values, that were removed from the cache to make room for other values.
+     */
+    long getEvictions();
+
+    /**
+     * @return The fraction of the lookups, that were answered by the cache.
+     */
+    double getHitRatio();
+
+    /**
+     * Removes all recorded lookups and evictions.
+     */
+    void reset();
+}
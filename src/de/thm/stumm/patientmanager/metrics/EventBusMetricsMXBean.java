@@ -0,0 +1,28 @@
+package de.thm.stumm.patientmanager.metrics;
+
+/**
+ * Management interface exposing the throughput and the backlog of an event bus via JMX.
+ *
+ * @author Dennis Stumm
+ */
+public interface EventBusMetricsMXBean {
+    /**
+     * @return The amount of events published since the start of the application.
+     */
+    long getPublished();
+
+    /**
+     * @return The amount of events, that fit into the ring buffer of the bus.
+     */
+    int getCapacity();
+
+    /**
+     * @return The amount of subscriptions consuming the events.
+     */
+    int getSubscribers();
+
+    /**
+     * @return The amount of published events, that weren't handled by the slowest subscription yet.
+     */
+    long getMaxLag();
+}
@@ -0,0 +1,30 @@
+package de.thm.stumm.patientmanager.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for exporting patients into a file.
+ *
+ * @author Dennis Stumm
+ */
+@Name("de.thm.stumm.patientmanager.Export")
+@Label("Patient Export")
+@Category({"Patientmanager", "Persistence"})
+@Description("Exporting patients for downstream systems")
+public class ExportEvent extends Event {
+    /**
+     * The name of the exporter class.
+     */
+    @Label("Exporter")
+    public String exporter;
+
+    /**
+     * The amount of exported rows.
+     */
+    @Label("Rows")
+    public long rows;
+}
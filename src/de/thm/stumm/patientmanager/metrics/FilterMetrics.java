@@ -0,0 +1,75 @@
+package de.thm.stumm.patientmanager.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of one filter of the application, counting the lookups answered by the filter and the false positives.
+ *
+ * @author Dennis Stumm
+ */
+public class FilterMetrics implements FilterMetricsMXBean {
+    /**
+     * The amount of lookups, that were answered by the filter as definitely absent.
+     */
+    private final LongAdder negatives = new LongAdder();
+
+    /**
+     * The amount of lookups, that passed the filter and found the key.
+     */
+    private final LongAdder positives = new LongAdder();
+
+    /**
+     * The amount of lookups, that passed the filter, but didn't find the key.
+     */
+    private final LongAdder falsePositives = new LongAdder();
+
+    /**
+     * Records a lookup, that was answered by the filter as definitely absent.
+     */
+    public void negative() {
+        negatives.increment();
+    }
+
+    /**
+     * Records a lookup, that passed the filter and found the key.
+     */
+    public void positive() {
+        positives.increment();
+    }
+
+    /**
+     * Records a lookup, that passed the filter, but didn't find the key.
+     */
+    public void falsePositive() {
+        falsePositives.increment();
+    }
+
+    @Override
+    public long getNegatives() {
+        return negatives.sum();
+    }
+
+    @Override
+    public long getPositives() {
+        return positives.sum();
+    }
+
+    @Override
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+
+    @Override
+    public double getFalsePositiveRate() {
+        long falsePositives = getFalsePositives();
+        long absent = falsePositives + getNegatives();
+        return absent == 0 ? 0 : falsePositives / (double) absent;
+    }
+
+    @Override
+    public void reset() {
+        negatives.reset();
+        positives.reset();
+        falsePositives.reset();
+    }
+}
@@ -0,0 +1,33 @@
+package de.thm.stumm.patientmanager.metrics;
+
+/**
+ * Management interface exposing the efficiency of a filter, that answers whether a key is definitely absent, via JMX.
+ *
+ * @author Dennis Stumm
+ */
+public interface FilterMetricsMXBean {
+    /**
+     * @return The amount of lookups, that were answered by the filter as definitely absent.
+     */
+    long getNegatives();
+
+    /**
+     * @return The amount of lookups, that passed the filter and found the key.
+     */
+    long getPositives();
+
+    /**
+     * @return The amount of lookups, that passed the filter, but didn't find the key.
+     */
+    long getFalsePositives();
+
+    /**
+     * @return The fraction of the lookups of absent keys, that passed the filter.
+     */
+    double getFalsePositiveRate();
+
+    /**
+     * Removes all recorded lookups.
+     */
+    void reset();
+}
@@ -0,0 +1,151 @@
+package de.thm.stumm.patientmanager.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram recording latencies in nanoseconds with a relative precision of about 6% (HDR style).
+ *
+ * The values are counted in log-linear buckets: every power of two is split into `SUB_BUCKETS` buckets of equal width.
+ * Recording a value needs no locks and no allocation, only a few bit operations and atomic increments, so the
+ * histogram can be updated from any thread on hot paths.
+ *
+ * @author Dennis Stumm
+ */
+public class LatencyHistogram {
+    /**
+     * The amount of sub buckets as power of two, into which each power of two gets split.
+     */
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /**
+     * The amount of sub buckets, into which each power of two gets split.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The amount of recorded values in each bucket.
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray((64 - SUB_BUCKET_BITS) * SUB_BUCKETS);
+
+    /**
+     * The amount of recorded values.
+     */
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * The sum of all recorded values.
+     */
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * The highest recorded value.
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records the passed value.
+     *
+     * @param value The value to record, negative values are recorded as zero.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        buckets.incrementAndGet(bucketOf(value));
+        count.increment();
+        sum.add(value);
+
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * @return The amount of recorded values.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return The highest recorded value.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return The mean of the recorded values or zero if no value was recorded.
+     */
+    public double getMean() {
+        long values = count.sum();
+        return values == 0 ? 0 : sum.sum() / (double) values;
+    }
+
+    /**
+     * Returns the value, below which the passed percentage of the recorded values lie.
+     *
+     * The result is the upper bound of the bucket containing the percentile, but never more than the highest value.
+     *
+     * @param percentile The percentile between 0 and 100.
+     * @return The value at the passed percentile or zero if no value was recorded.
+     */
+    public long getPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            total += buckets.get(i);
+        }
+
+        long target = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < buckets.length(); i++) {
+            seen += buckets.get(i);
+            if (seen >= Math.max(1, target)) {
+                return Math.min(upperBoundOf(i), max.get());
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * Removes all recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    /**
+     * @param value The non negative value to get the bucket for.
+     * @return The index of the bucket, the passed value gets counted in.
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int magnitude = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (magnitude + 1) * SUB_BUCKETS + (int) ((value >>> magnitude) - SUB_BUCKETS);
+    }
+
+    /**
+     * @param bucket The index of the bucket.
+     * @return The highest value, that gets counted in the passed bucket.
+     */
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int magnitude = bucket / SUB_BUCKETS - 1;
+        long subBucket = bucket % SUB_BUCKETS + SUB_BUCKETS;
+
+        return ((subBucket + 1) << magnitude) - 1;
+    }
+}
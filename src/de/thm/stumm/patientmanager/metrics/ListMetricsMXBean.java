@@ -0,0 +1,18 @@
+package de.thm.stumm.patientmanager.metrics;
+
+/**
+ * Management interface exposing the size of a list of the model via JMX.
+ *
+ * @author Dennis Stumm
+ */
+public interface ListMetricsMXBean {
+    /**
+     * @return The amount of items in the list.
+     */
+    int getSize();
+
+    /**
+     * @return The length of the array backing the list.
+     */
+    int getCapacity();
+}
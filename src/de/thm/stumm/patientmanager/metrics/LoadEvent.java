@@ -0,0 +1,55 @@
+package de.thm.stumm.patientmanager.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event for loading the items of a list from its CSV-File.
+ *
+ * Besides the duration of the whole load, the event contains the time spent parsing the lines into models, so that
+ * the time spent reading the file can be told apart from the time spent parsing.
+ *
+ * @author Dennis Stumm
+ */
+@Name("de.thm.stumm.patientmanager.Load")
+@Label("List Load")
+@Category({"Patientmanager", "Persistence"})
+@Description("Loading the items of a list from its CSV-File")
+public class LoadEvent extends Event {
+    /**
+     * The name of the list class.
+     */
+    @Label("List")
+    public String list;
+
+    /**
+     * The path of the loaded file.
+     */
+    @Label("File")
+    public String file;
+
+    /**
+     * The amount of loaded rows.
+     */
+    @Label("Rows")
+    public long rows;
+
+    /**
+     * The size of the loaded file.
+     */
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    /**
+     * The time spent parsing the lines into models.
+     */
+    @Label("Parse Time")
+    @Timespan
+    public long parseTime;
+}
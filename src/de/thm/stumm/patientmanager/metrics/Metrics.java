@@ -0,0 +1,140 @@
+package de.thm.stumm.patientmanager.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+
+/**
+ * Registry of all metrics of the application, which registers them as MBeans at the platform MBeanServer.
+ *
+ * The MBeans get registered in the domain `de.thm.stumm.patientmanager` and can be read locally with tools like
+ * jconsole or any JMX based monitoring.
+ *
+ * @author Dennis Stumm
+ */
+public final class Metrics {
+    /**
+     * The JMX domain of all MBeans of the application.
+     */
+    public static final String DOMAIN = "de.thm.stumm.patientmanager";
+
+    /**
+     * The metrics of all operations by their object name.
+     */
+    private static final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    /**
+     * The metrics of all caches by their object name.
+     */
+    private static final Map<String, CacheMetrics> caches = new ConcurrentHashMap<>();
+
+    /**
+     * The metrics of all filters by their object name.
+     */
+    private static final Map<String, FilterMetrics> filters = new ConcurrentHashMap<>();
+
+    /**
+     * This class only provides static methods.
+     */
+    private Metrics() {
+    }
+
+    /**
+     * Returns the metrics for the passed cache of the passed component and creates and registers them if necessary.
+     *
+     * @param component The name of the component, e.g. the class, the cache belongs to.
+     * @param cache     The name of the cache.
+     * @return The metrics of the cache.
+     */
+    public static CacheMetrics cache(String component, String cache) {
+        String name = DOMAIN + ":type=Cache,component=" + component + ",name=" + cache;
+
+        return caches.computeIfAbsent(name, key -> {
+            CacheMetrics metrics = new CacheMetrics();
+            register(key, metrics);
+            return metrics;
+        });
+    }
+
+    /**
+     * Returns the metrics for the passed filter of the passed component and creates and registers them if necessary.
+     *
+     * @param component The name of the component, e.g. the class, the filter belongs to.
+     * @param filter    The name of the filter.
+     * @return The metrics of the filter.
+     */
+    public static FilterMetrics filter(String component, String filter) {
+        String name = DOMAIN + ":type=Filter,component=" + component + ",name=" + filter;
+
+        return filters.computeIfAbsent(name, key -> {
+            FilterMetrics metrics = new FilterMetrics();
+            register(key, metrics);
+            return metrics;
+        });
+    }
+
+    /**
+     * Returns the metrics for the passed operation of the passed component and creates and registers them if
+     * necessary.
+     *
+     * @param component The name of the component, e.g. the class, the operation belongs to.
+     * @param operation The name of the operation.
+     * @return The metrics of the operation.
+     */
+    public static OperationMetrics operation(String component, String operation) {
+        String name = DOMAIN + ":type=Operation,component=" + component + ",name=" + operation;
+
+        return operations.computeIfAbsent(name, key -> {
+            OperationMetrics metrics = new OperationMetrics();
+            register(key, metrics);
+            return metrics;
+        });
+    }
+
+    /**
+     * Registers an MBean exposing the size and capacity of the list with the passed name. An MBean, that was
+     * registered with the same name before, gets replaced.
+     *
+     * @param name     The name of the list.
+     * @param size     Supplier returning the amount of items in the list.
+     * @param capacity Supplier returning the length of the array backing the list.
+     */
+    public static void registerList(String name, IntSupplier size, IntSupplier capacity) {
+        register(DOMAIN + ":type=List,name=" + name, new ListMetricsMXBean() {
+            @Override
+            public int getSize() {
+                return size.getAsInt();
+            }
+
+            @Override
+            public int getCapacity() {
+                return capacity.getAsInt();
+            }
+        });
+    }
+
+    /**
+     * Registers the passed MBean with the passed name at the platform MBeanServer.
+     *
+     * Failing to register an MBean must not affect the application, so errors are printed only.
+     *
+     * @param name  The object name of the MBean.
+     * @param mBean The MBean to register.
+     */
+    public static void register(String name, Object mBean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(mBean, objectName);
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+}
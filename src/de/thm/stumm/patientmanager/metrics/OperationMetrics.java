@@ -0,0 +1,104 @@
+package de.thm.stumm.patientmanager.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of one operation of the application, containing the latency histogram and the amount of failed calls.
+ *
+ * The operation gets measured by calling `start` before and `stop` after the operation:
+ * <pre>
+ * long start = metrics.start();
+ * ...
+ * metrics.stop(start);
+ * </pre>
+ *
+ * @author Dennis Stumm
+ */
+public class OperationMetrics implements OperationMetricsMXBean {
+    /**
+     * Latencies of the calls of the operation in nanoseconds.
+     */
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    /**
+     * The amount of failed calls of the operation.
+     */
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * @return The current time in nanoseconds, that must be passed to `stop` after the operation.
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records a successful call of the operation.
+     *
+     * @param start The time returned by `start`.
+     */
+    public void stop(long start) {
+        latencies.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Records a call of the operation.
+     *
+     * @param start   The time returned by `start`.
+     * @param success Boolean value, that indicates whether the call was successful or not.
+     */
+    public void stop(long start, boolean success) {
+        stop(start);
+        if (!success) {
+            failures.increment();
+        }
+    }
+
+    /**
+     * @return The histogram containing the latencies of the calls in nanoseconds.
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    @Override
+    public long getCount() {
+        return latencies.getCount();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latencies.getMean() / 1000;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latencies.getPercentile(50) / 1000.0;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latencies.getPercentile(99) / 1000.0;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latencies.getPercentile(99.9) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latencies.getMax() / 1000.0;
+    }
+
+    @Override
+    public void reset() {
+        latencies.reset();
+        failures.reset();
+    }
+}
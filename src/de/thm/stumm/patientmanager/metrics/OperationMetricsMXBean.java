@@ -0,0 +1,48 @@
+package de.thm.stumm.patientmanager.metrics;
+
+/**
+ * Management interface exposing the metrics of one operation via JMX.
+ *
+ * @author Dennis Stumm
+ */
+public interface OperationMetricsMXBean {
+    /**
+     * @return The amount of calls of the operation.
+     */
+    long getCount();
+
+    /**
+     * @return The amount of failed calls of the operation.
+     */
+    long getFailures();
+
+    /**
+     * @return The mean latency of the calls in microseconds.
+     */
+    double getMeanMicros();
+
+    /**
+     * @return The median latency of the calls in microseconds.
+     */
+    double getP50Micros();
+
+    /**
+     * @return The 99th percentile of the latencies of the calls in microseconds.
+     */
+    double getP99Micros();
+
+    /**
+     * @return The 99.9th percentile of the latencies of the calls in microseconds.
+     */
+    double getP999Micros();
+
+    /**
+     * @return The highest latency of a call in microseconds.
+     */
+    double getMaxMicros();
+
+    /**
+     * Removes all recorded calls.
+     */
+    void reset();
+}
@@ -0,0 +1,44 @@
+package de.thm.stumm.patientmanager.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for persisting the items of a list to its CSV-File.
+ *
+ * @author Dennis Stumm
+ */
+@Name("de.thm.stumm.patientmanager.Persist")
+@Label("List Persist")
+@Category({"Patientmanager", "Persistence"})
+@Description("Persisting the items of a list to its CSV-File")
+public class PersistEvent extends Event {
+    /**
+     * The name of the list class.
+     */
+    @Label("List")
+    public String list;
+
+    /**
+     * The path of the written file.
+     */
+    @Label("File")
+    public String file;
+
+    /**
+     * The amount of written rows.
+     */
+    @Label("Rows")
+    public long rows;
+
+    /**
+     * The size of the written file.
+     */
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
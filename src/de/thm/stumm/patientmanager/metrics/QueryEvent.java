@@ -0,0 +1,48 @@
+package de.thm.stumm.patientmanager.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight recorder event for searching items in a list with `find` or `findAll`.
+ *
+ * @author Dennis Stumm
+ */
+@Name("de.thm.stumm.patientmanager.Query")
+@Label("List Query")
+@Category({"Patientmanager", "Query"})
+@Description("Searching items in a list")
+public class QueryEvent extends Event {
+    /**
+     * The name of the list class.
+     */
+    @Label("List")
+    public String list;
+
+    /**
+     * The name of the called method.
+     */
+    @Label("Operation")
+    public String operation;
+
+    /**
+     * The name of the queried property or null, when the items were compared with `equals`.
+     */
+    @Label("Property")
+    public String property;
+
+    /**
+     * The amount of items, that were compared.
+     */
+    @Label("Scanned Rows")
+    public long scannedRows;
+
+    /**
+     * The amount of found items.
+     */
+    @Label("Matches")
+    public long matches;
+}
@@ -0,0 +1,40 @@
+package de.thm.stumm.patientmanager.metrics;
+
+/**
+ * Management interface exposing how far the follower of a replication lags behind the primary via JMX.
+ *
+ * @author Dennis Stumm
+ */
+public interface ReplicationMetricsMXBean {
+    /**
+     * @return The sequence of the last change, that was applied by the follower, or -1, if no change was applied yet.
+     */
+    long getAppliedSequence();
+
+    /**
+     * @return The sequence of the last change, that was published by the primary as far as the follower knows.
+     */
+    long getPrimarySequence();
+
+    /**
+     * @return The amount of changes published by the primary, that weren't applied by the follower yet.
+     */
+    long getSequenceLag();
+
+    /**
+     * @return The time in milliseconds between publishing the last applied change on the primary and applying it on the
+     * follower, 0 if the follower caught up with the primary or the time since the last contact, if the follower is
+     * disconnected.
+     */
+    long getLagMillis();
+
+    /**
+     * @return The amount of times the follower connected to the primary and received a snapshot.
+     */
+    long getSnapshots();
+
+    /**
+     * @return Whether the follower is connected to the primary.
+     */
+    boolean isConnected();
+}
@@ -0,0 +1,150 @@
+package de.thm.stumm.patientmanager.model;
+
+import java.util.Arrays;
+
+/**
+ * Bloom filter over int keys, which answers whether a key is definitely absent in constant time.
+ *
+ * The filter grows by adding a layer with twice the capacity and half the false-positive rate of the last layer, when
+ * the last layer is full, so the false-positive rate of the whole filter stays below twice the configured rate without
+ * rehashing the keys. Keys can't be removed, so the filter has to be rebuilt after removals to drop their bits.
+ *
+ * @author Dennis Stumm
+ */
+class BloomFilter {
+    /**
+     * The bits of the layers, whereby each layer has the size of a power of two.
+     */
+    private long[][] layers = new long[0][];
+
+    /**
+     * The amount of hash functions of each layer.
+     */
+    private int[] hashCounts = new int[0];
+
+    /**
+     * The maximum amount of keys of each layer.
+     */
+    private int[] capacities = new int[0];
+
+    /**
+     * The amount of keys added to the last layer.
+     */
+    private int lastCount;
+
+    /**
+     * The false-positive rate of the first layer.
+     */
+    private final double falsePositiveRate;
+
+    /**
+     * Creates an empty filter.
+     *
+     * @param expectedKeys      The amount of keys, that fit into the first layer.
+     * @param falsePositiveRate The rate of false positives of the first layer.
+     */
+    BloomFilter(int expectedKeys, double falsePositiveRate) {
+        this.falsePositiveRate = falsePositiveRate;
+        addLayer(Math.max(expectedKeys, 64), falsePositiveRate);
+    }
+
+    /**
+     * Adds the passed key to the filter.
+     *
+     * @param key The key to add.
+     */
+    void add(int key) {
+        int layer = layers.length - 1;
+        if (lastCount == capacities[layer]) {
+            int capacity = (int) Math.min(capacities[layer] * 2L, Integer.MAX_VALUE);
+            addLayer(capacity, falsePositiveRate / (1L << layers.length));
+            layer++;
+        }
+
+        long[] bits = layers[layer];
+        long hash = mix(key);
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+        int mask = bits.length * 64 - 1;
+        for (int i = 0; i < hashCounts[layer]; i++) {
+            int bit = (first + i * second) & mask;
+            bits[bit >>> 6] |= 1L << bit;
+        }
+        lastCount++;
+    }
+
+    /**
+     * @param key The key to check.
+     * @return Boolean value, that indicates whether the key might have been added. If this is false, the key was
+     * definitely not added.
+     */
+    boolean mightContain(int key) {
+        long hash = mix(key);
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+
+        layers:
+        for (int layer = 0; layer < layers.length; layer++) {
+            long[] bits = layers[layer];
+            int mask = bits.length * 64 - 1;
+            for (int i = 0; i < hashCounts[layer]; i++) {
+                int bit = (first + i * second) & mask;
+                if ((bits[bit >>> 6] & 1L << bit) == 0) {
+                    continue layers;
+                }
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return The amount of keys, that were added to the filter.
+     */
+    long size() {
+        long size = lastCount;
+        for (int layer = 0; layer < layers.length - 1; layer++) {
+            size += capacities[layer];
+        }
+
+        return size;
+    }
+
+    /**
+     * Spreads the bits of the passed key over a long, whose halves are used as two independent hashes.
+     *
+     * @param key The key to hash.
+     * @return The hash of the key.
+     */
+    private static long mix(int key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ (hash >>> 32)) * 0xD6E8FEB86659FD93L;
+        hash = (hash ^ (hash >>> 32)) * 0xD6E8FEB86659FD93L;
+        hash ^= hash >>> 32;
+
+        // The second hash must be odd, so the probed bits don't repeat within a layer.
+        return hash | 1L << 32;
+    }
+
+    /**
+     * Adds a new layer with the passed capacity and false-positive rate.
+     *
+     * @param capacity          The maximum amount of keys of the layer.
+     * @param falsePositiveRate The rate of false positives of the layer, when it is full.
+     */
+    private void addLayer(int capacity, double falsePositiveRate) {
+        double ln2 = Math.log(2);
+        long bitCount = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+        int words = Math.max(1, Integer.highestOneBit((int) Math.min((bitCount + 63) / 64, 1 << 24) * 2 - 1));
+        int hashCount = Math.max(1, (int) Math.round((double) words * 64 / capacity * ln2));
+
+        layers = Arrays.copyOf(layers, layers.length + 1);
+        hashCounts = Arrays.copyOf(hashCounts, hashCounts.length + 1);
+        capacities = Arrays.copyOf(capacities, capacities.length + 1);
+        layers[layers.length - 1] = new long[words];
+        hashCounts[hashCounts.length - 1] = hashCount;
+        capacities[capacities.length - 1] = capacity;
+        lastCount = 0;
+    }
+}
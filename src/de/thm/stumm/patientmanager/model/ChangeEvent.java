@@ -0,0 +1,232 @@
+package de.thm.stumm.patientmanager.model;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Event describing a change of the patients or the users, which is published by the ChangeEventBus.
+ *
+ * The events are slots of the ring buffer of the bus, which get reused for later changes, so listeners must copy the
+ * values they need, before they return from handling the event.
+ *
+ * @author Dennis Stumm
+ */
+public final class ChangeEvent {
+    /**
+     * The kinds of changes of the patients and the users.
+     */
+    public enum Type {
+        /**
+         * A patient was added to the PatientList.
+         */
+        ADDED,
+
+        /**
+         * A patient was removed from the PatientList.
+         */
+        REMOVED,
+
+        /**
+         * The ICD of a patient was changed.
+         */
+        ICD_CHANGED,
+
+        /**
+         * A patient was discharged.
+         */
+        DISCHARGED,
+
+        /**
+         * A user was added to the UserList.
+         */
+        USER_ADDED,
+
+        /**
+         * A user was removed from the UserList.
+         */
+        USER_REMOVED
+    }
+
+    /**
+     * The position of the event in the stream of all events.
+     */
+    private long sequence;
+
+    /**
+     * The time of the change in milliseconds since 1970-01-01.
+     */
+    private long timestamp;
+
+    /**
+     * The kind of the change.
+     */
+    private Type type;
+
+    /**
+     * The changed patient or null, if a user was changed.
+     */
+    private Patient patient;
+
+    /**
+     * The changed user or null, if a patient was changed.
+     */
+    private User user;
+
+    /**
+     * The id of the changed patient or 0, if a user was changed.
+     */
+    private int patientId;
+
+    /**
+     * The code of the ICD in the StringDictionary or the discharge day, depending on the kind of the change.
+     */
+    private int value;
+
+    /**
+     * Creates an empty slot of the ring buffer.
+     */
+    ChangeEvent() {
+    }
+
+    /**
+     * @return The changed patient or null, if a user was changed. Its properties may have changed again since the event
+     * was published.
+     */
+    public Patient getPatient() {
+        return patient;
+    }
+
+    /**
+     * @return The id of the changed patient or 0, if a user was changed.
+     */
+    public int getPatientId() {
+        return patientId;
+    }
+
+    /**
+     * @return The position of the event in the stream of all events.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return The time of the change in milliseconds since 1970-01-01.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return The kind of the change.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return The changed user or null, if a patient was changed.
+     */
+    public User getUser() {
+        return user;
+    }
+
+    /**
+     * @return The ICD set by the change, if the ICD was changed, otherwise null.
+     */
+    public String getIcd() {
+        return type == Type.ICD_CHANGED ? StringDictionary.getInstance().decode(value) : null;
+    }
+
+    /**
+     * @return The discharge date set by the change formatted like in the CSV-Files, if the patient was discharged,
+     * otherwise null.
+     */
+    public String getDischargeDate() {
+        return type == Type.DISCHARGED ? DateCodec.format(value) : null;
+    }
+
+    /**
+     * Overwrites the slot with the passed change.
+     *
+     * @param sequence  The position of the event in the stream of all events.
+     * @param timestamp The time of the change in milliseconds since 1970-01-01.
+     * @param type      The kind of the change.
+     * @param patient   The changed patient.
+     */
+    void set(long sequence, long timestamp, Type type, Patient patient) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.type = type;
+        this.patient = patient;
+        this.user = null;
+        this.patientId = patient.getId();
+        this.value = type == Type.ICD_CHANGED ? patient.getIcdCode() : type == Type.DISCHARGED ? patient.getDischargeDay() : 0;
+    }
+
+    /**
+     * Overwrites the slot with the passed change of a user.
+     *
+     * @param sequence  The position of the event in the stream of all events.
+     * @param timestamp The time of the change in milliseconds since 1970-01-01.
+     * @param type      The kind of the change.
+     * @param user      The changed user.
+     */
+    void set(long sequence, long timestamp, Type type, User user) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.type = type;
+        this.patient = null;
+        this.user = user;
+        this.patientId = 0;
+        this.value = 0;
+    }
+
+    /**
+     * Writes the event as a line without the line break to the passed writer.
+     * <p>
+     * The line contains the sequence, the timestamp, the kind of the change and the id of the patient separated by
+     * semicolons, followed by the CSV-Line of an added patient, the new ICD or the discharge date. Changes of users
+     * contain the username instead of the id, followed by the CSV-Line of an added user.
+     *
+     * @param writer The writer to write the line to.
+     * @throws IOException If the line can't be written.
+     */
+    void write(Writer writer) throws IOException {
+        writer.write(Long.toString(sequence));
+        writer.write(';');
+        writer.write(Long.toString(timestamp));
+        writer.write(';');
+        writer.write(type.name());
+        writer.write(';');
+
+        switch (type) {
+            case ADDED:
+                writer.write(Integer.toString(patientId));
+                writer.write(';');
+                writer.write(PatientList.format(patient));
+                break;
+            case ICD_CHANGED:
+                writer.write(Integer.toString(patientId));
+                writer.write(';');
+                writer.write(getIcd() == null ? "" : getIcd());
+                break;
+            case DISCHARGED:
+                writer.write(Integer.toString(patientId));
+                writer.write(';');
+                writer.write(getDischargeDate());
+                break;
+            case USER_ADDED:
+                writer.write(user.getUsername());
+                writer.write(';');
+                writer.write(UserList.format(user));
+                break;
+            case USER_REMOVED:
+                writer.write(user.getUsername());
+                break;
+            default:
+                writer.write(Integer.toString(patientId));
+                break;
+        }
+    }
+}
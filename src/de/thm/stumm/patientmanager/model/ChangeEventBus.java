@@ -0,0 +1,280 @@
+package de.thm.stumm.patientmanager.model;
+
+import de.thm.stumm.patientmanager.metrics.EventBusMetricsMXBean;
+import de.thm.stumm.patientmanager.metrics.Metrics;
+
+import java.io.Closeable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Singleton publishing the changes of the patients and the users to subscribed listeners, which handle them
+ * asynchronously.
+ *
+ * The events are written into the preallocated slots of a ring buffer, so publishing doesn't allocate and doesn't lock.
+ * Every subscription has its own thread, which handles all events published since its last batch at once. The
+ * publishing thread only waits, if the slowest subscription lags behind by the whole ring buffer. Without
+ * subscriptions nothing gets published at all.
+ *
+ * The bus is meant for a single writer like the thread of the view, but concurrent writers are ordered correctly.
+ *
+ * @author Dennis Stumm
+ */
+public final class ChangeEventBus {
+    /**
+     * The amount of events in the ring buffer, which gets rounded up to a power of two.
+     */
+    private static final int CAPACITY = Integer.highestOneBit(Math.max(Integer.getInteger("patientmanager.eventBufferSize", 8192) - 1, 1) * 2);
+
+    /**
+     * The time a subscription sleeps, when there are no events to handle.
+     */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Instance of the ChangeEventBus.
+     */
+    private static ChangeEventBus instance;
+
+    /**
+     * The slots of the ring buffer.
+     */
+    private final ChangeEvent[] slots = new ChangeEvent[CAPACITY];
+
+    /**
+     * The sequence of the last event, that was claimed by a publishing thread.
+     */
+    private final AtomicLong claimed = new AtomicLong(-1);
+
+    /**
+     * The sequence of the last event, that was published completely.
+     */
+    private final AtomicLong cursor = new AtomicLong(-1);
+
+    /**
+     * The active subscriptions.
+     */
+    private final java.util.List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Initializes the slots of the ring buffer and registers the metrics of the bus.
+     */
+    private ChangeEventBus() {
+        for (int i = 0; i < CAPACITY; i++) {
+            slots[i] = new ChangeEvent();
+        }
+
+        Metrics.register(Metrics.DOMAIN + ":type=EventBus,name=changes", new EventBusMetricsMXBean() {
+            @Override
+            public long getPublished() {
+                return cursor.get() + 1;
+            }
+
+            @Override
+            public int getCapacity() {
+                return CAPACITY;
+            }
+
+            @Override
+            public int getSubscribers() {
+                return subscriptions.size();
+            }
+
+            @Override
+            public long getMaxLag() {
+                return cursor.get() - getMinimumSequence();
+            }
+        });
+    }
+
+    /**
+     * @return The instance of this singleton.
+     */
+    public static synchronized ChangeEventBus getInstance() {
+        if (instance == null) {
+            instance = new ChangeEventBus();
+        }
+
+        return instance;
+    }
+
+    /**
+     * @return The sequence of the last published event or -1, if no event was published yet.
+     */
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    /**
+     * Subscribes the passed listener to the events published from now on, which get handled on a new daemon thread.
+     *
+     * @param name     The name of the subscription, which is used for the name of its thread.
+     * @param listener The listener handling the events.
+     * @return The subscription, which has to be closed to stop handling the events.
+     */
+    public Subscription subscribe(String name, ChangeListener listener) {
+        Subscription subscription = new Subscription(name, listener);
+        subscriptions.add(subscription);
+        subscription.thread.start();
+
+        return subscription;
+    }
+
+    /**
+     * Publishes the passed change of the passed patient, if there are subscriptions.
+     *
+     * @param type    The kind of the change.
+     * @param patient The changed patient.
+     */
+    void publish(ChangeEvent.Type type, Patient patient) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+
+        long sequence = claim();
+        slots[(int) sequence & (CAPACITY - 1)].set(sequence, System.currentTimeMillis(), type, patient);
+        commit(sequence);
+    }
+
+    /**
+     * Publishes the passed change of the passed user, if there are subscriptions.
+     *
+     * @param type The kind of the change.
+     * @param user The changed user.
+     */
+    void publish(ChangeEvent.Type type, User user) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+
+        long sequence = claim();
+        slots[(int) sequence & (CAPACITY - 1)].set(sequence, System.currentTimeMillis(), type, user);
+        commit(sequence);
+    }
+
+    /**
+     * Claims the next sequence and waits until its slot was handled by all subscriptions.
+     *
+     * @return The claimed sequence.
+     */
+    private long claim() {
+        long sequence = claimed.incrementAndGet();
+        while (sequence - CAPACITY > getMinimumSequence()) {
+            // The slowest subscription didn't handle the event in the slot yet, so it mustn't be overwritten.
+            LockSupport.parkNanos(1000);
+        }
+
+        return sequence;
+    }
+
+    /**
+     * Publishes the event with the passed sequence, after the events with the previous sequences were published.
+     *
+     * @param sequence The sequence of the event, whose slot was overwritten.
+     */
+    private void commit(long sequence) {
+        // The events of concurrent writers get published in the order of their sequences.
+        while (cursor.get() != sequence - 1) {
+            Thread.onSpinWait();
+        }
+        cursor.set(sequence);
+    }
+
+    /**
+     * @return The sequence of the last event, that was handled by all subscriptions, or the cursor, if there are no
+     * subscriptions.
+     */
+    private long getMinimumSequence() {
+        long minimum = cursor.get();
+        for (Subscription subscription : subscriptions) {
+            minimum = Math.min(minimum, subscription.sequence.get());
+        }
+
+        return minimum;
+    }
+
+    /**
+     * Subscription of a listener, that handles the events on its own thread.
+     */
+    public final class Subscription implements Closeable {
+        /**
+         * The sequence of the last event, that was handled by the listener.
+         */
+        private final AtomicLong sequence = new AtomicLong(cursor.get());
+
+        /**
+         * The listener handling the events.
+         */
+        private final ChangeListener listener;
+
+        /**
+         * The thread passing the events to the listener.
+         */
+        private final Thread thread;
+
+        /**
+         * Boolean value, that indicates whether the subscription wasn't closed yet.
+         */
+        private volatile boolean running = true;
+
+        /**
+         * Creates the subscription and its thread, which isn't started yet.
+         *
+         * @param name     The name of the subscription.
+         * @param listener The listener handling the events.
+         */
+        private Subscription(String name, ChangeListener listener) {
+            this.listener = listener;
+            this.thread = new Thread(this::run, "change-listener-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        /**
+         * Stops handling the events after the current batch and waits until the thread is finished.
+         */
+        @Override
+        public void close() {
+            running = false;
+            subscriptions.remove(this);
+            LockSupport.unpark(thread);
+
+            try {
+                thread.join();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * @return The amount of published events, that weren't handled by the listener yet.
+         */
+        public long getLag() {
+            return cursor.get() - sequence.get();
+        }
+
+        /**
+         * Passes the published events in batches to the listener, until the subscription gets closed.
+         */
+        private void run() {
+            while (running) {
+                long next = sequence.get() + 1;
+                long available = cursor.get();
+                if (available < next) {
+                    LockSupport.parkNanos(IDLE_NANOS);
+                    continue;
+                }
+
+                for (long current = next; current <= available; current++) {
+                    try {
+                        listener.onEvent(slots[(int) current & (CAPACITY - 1)], current == available);
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                    }
+                }
+                sequence.set(available);
+            }
+        }
+    }
+}
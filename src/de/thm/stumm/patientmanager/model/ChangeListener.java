@@ -0,0 +1,19 @@
+package de.thm.stumm.patientmanager.model;
+
+/**
+ * Listener handling the changes of the patients and the users published by the ChangeEventBus on the thread of its
+ * subscription.
+ *
+ * @author Dennis Stumm
+ */
+public interface ChangeListener {
+    /**
+     * Handles the passed change. The changes are passed in batches of all changes published since the last batch.
+     *
+     * @param event      The change, which mustn't be kept after returning, because the event gets reused.
+     * @param endOfBatch Boolean value, that indicates whether this is the last change of the current batch, e.g. for
+     *                   flushing buffered output.
+     * @throws Exception If the change can't be handled, which gets printed without stopping the subscription.
+     */
+    void onEvent(ChangeEvent event, boolean endOfBatch) throws Exception;
+}
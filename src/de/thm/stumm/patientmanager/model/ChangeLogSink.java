@@ -0,0 +1,63 @@
+package de.thm.stumm.patientmanager.model;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Listener appending the changes of the patients and the users to a log file, which gets flushed after every batch of
+ * changes.
+ *
+ * Every line contains the sequence, the timestamp, the kind of the change and the id of the patient or the username
+ * separated by semicolons, followed by the CSV-Line of an added patient or user, the new ICD or the discharge date.
+ *
+ * @author Dennis Stumm
+ */
+public class ChangeLogSink implements ChangeListener, Closeable {
+    /**
+     * The writer appending to the log file.
+     */
+    private final BufferedWriter writer;
+
+    /**
+     * Opens the passed log file for appending the changes.
+     *
+     * @param filePath Path to the log file.
+     * @throws IOException If the log file can't be opened.
+     */
+    public ChangeLogSink(Path filePath) throws IOException {
+        Files.createDirectories(filePath.toAbsolutePath().getParent());
+        this.writer = Files.newBufferedWriter(filePath, Charset.defaultCharset(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Closes the log file.
+     *
+     * @throws IOException If an error gets thrown while closing the file.
+     */
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Appends the passed change to the log file.
+     *
+     * @param event      The change to log.
+     * @param endOfBatch Boolean value, that indicates whether the log file should be flushed.
+     * @throws IOException If the change can't be written.
+     */
+    @Override
+    public void onEvent(ChangeEvent event, boolean endOfBatch) throws IOException {
+        event.write(writer);
+        writer.newLine();
+
+        if (endOfBatch) {
+            writer.flush();
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package de.thm.stumm.patientmanager.model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Exporter that writes the patients into a compact column-oriented binary file.
+ *
+ * The file starts with the magic bytes "PMCOL" followed by a version byte. After that the patients follow in row
+ * groups of at most `ROW_GROUP_SIZE` rows. Each row group starts with its row count as varint and contains the
+ * columns id, firstName, lastName, age, admissionDate, dischargeDate and icd in this order. A row count of zero marks
+ * the end of the file.
+ *
+ * Integer columns (dates as epoch days) are written as a list of runs, whereby each run consists of the zigzag
+ * encoded value and the length of the run. String columns start with a dictionary of the distinct values in the row
+ * group (the byte length plus one, zero for null, followed by the UTF-8 bytes) and contain the runs over the
+ * dictionary codes afterwards. All numbers are written as unsigned LEB128 varints.
+ *
+ * Only the current row group is held in memory, so exporting needs constant memory regardless of the list size.
+ *
+ * @author Dennis Stumm
+ */
+public class ColumnarExporter extends PatientExporter {
+    /**
+     * The maximum amount of rows in one row group.
+     */
+    public static final int ROW_GROUP_SIZE = 8192;
+
+    /**
+     * The version of the file format, that gets written.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Stream for the export file.
+     */
+    private DataOutputStream out;
+
+    /**
+     * Amount of rows in the current row group.
+     */
+    private int rows = 0;
+
+    /**
+     * Values of the id column of the current row group.
+     */
+    private final int[] ids = new int[ROW_GROUP_SIZE];
+
+    /**
+     * Values of the firstName column of the current row group.
+     */
+    private final String[] firstNames = new String[ROW_GROUP_SIZE];
+
+    /**
+     * Values of the lastName column of the current row group.
+     */
+    private final String[] lastNames = new String[ROW_GROUP_SIZE];
+
+    /**
+     * Values of the age column of the current row group.
+     */
+    private final int[] ages = new int[ROW_GROUP_SIZE];
+
+    /**
+     * Values of the admissionDate column of the current row group as epoch days.
+     */
+    private final int[] admissionDays = new int[ROW_GROUP_SIZE];
+
+    /**
+     * Values of the dischargeDate column of the current row group as epoch days.
+     */
+    private final int[] dischargeDays = new int[ROW_GROUP_SIZE];
+
+    /**
+     * Values of the icd column of the current row group.
+     */
+    private final String[] icds = new String[ROW_GROUP_SIZE];
+
+    /**
+     * Buffer for the dictionary codes of a string column, that gets reused for every column.
+     */
+    private final int[] codes = new int[ROW_GROUP_SIZE];
+
+    /**
+     * Initializes the exporter by opening the passed file for writing and writing the file header.
+     * An existing file gets overwritten.
+     *
+     * @param filePath Path to the file, where the patients should be exported to.
+     * @throws IOException If the file can't be opened.
+     */
+    public ColumnarExporter(Path filePath) throws IOException {
+        if (filePath.getParent() != null) {
+            Files.createDirectories(filePath.getParent());
+        }
+
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(filePath), 1 << 16));
+        this.out.writeBytes("PMCOL");
+        this.out.writeByte(VERSION);
+    }
+
+    /**
+     * Adds the passed patient to the current row group and writes the row group, when it is full.
+     *
+     * @param patient The patient that should be exported.
+     * @throws IOException If an error while writing the row group occurs.
+     */
+    @Override
+    public void write(Patient patient) throws IOException {
+        ids[rows] = patient.getId();
+        firstNames[rows] = patient.getFirstName();
+        lastNames[rows] = patient.getLastName();
+        ages[rows] = patient.getAge();
+        admissionDays[rows] = patient.getAdmissionDay();
+        dischargeDays[rows] = patient.getDischargeDay();
+        icds[rows] = patient.getIcd();
+
+        if (++rows == ROW_GROUP_SIZE) {
+            writeRowGroup();
+        }
+    }
+
+    /**
+     * Writes the remaining rows and the end marker and closes the export file.
+     *
+     * @throws IOException If an error while writing or closing the file occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rows > 0) {
+                writeRowGroup();
+            }
+            writeVarInt(0);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes the current row group to the file and resets the buffers afterwards.
+     *
+     * @throws IOException If an error while writing occurs.
+     */
+    private void writeRowGroup() throws IOException {
+        writeVarInt(rows);
+        writeIntColumn(ids);
+        writeStringColumn(firstNames);
+        writeStringColumn(lastNames);
+        writeIntColumn(ages);
+        writeIntColumn(admissionDays);
+        writeIntColumn(dischargeDays);
+        writeStringColumn(icds);
+
+        for (int i = 0; i < rows; i++) {
+            firstNames[i] = null;
+            lastNames[i] = null;
+            icds[i] = null;
+        }
+        rows = 0;
+    }
+
+    /**
+     * Writes the first `rows` values of the passed column run-length encoded.
+     *
+     * @param values The values of the column.
+     * @throws IOException If an error while writing occurs.
+     */
+    private void writeIntColumn(int[] values) throws IOException {
+        int runs = 1;
+        for (int i = 1; i < rows; i++) {
+            if (values[i] != values[i - 1]) {
+                runs++;
+            }
+        }
+
+        writeVarInt(runs);
+        int start = 0;
+        for (int i = 1; i <= rows; i++) {
+            if (i == rows || values[i] != values[start]) {
+                writeVarInt((values[start] << 1) ^ (values[start] >> 31));
+                writeVarInt(i - start);
+                start = i;
+            }
+        }
+    }
+
+    /**
+     * Writes the first `rows` values of the passed column dictionary and run-length encoded.
+     *
+     * @param values The values of the column.
+     * @throws IOException If an error while writing occurs.
+     */
+    private void writeStringColumn(String[] values) throws IOException {
+        Map<String, Integer> dictionary = new HashMap<>();
+        int nullCode = -1;
+        int nextCode = 0;
+
+        for (int i = 0; i < rows; i++) {
+            if (values[i] == null) {
+                if (nullCode == -1) {
+                    nullCode = nextCode++;
+                }
+                codes[i] = nullCode;
+            } else {
+                Integer code = dictionary.get(values[i]);
+                if (code == null) {
+                    code = nextCode++;
+                    dictionary.put(values[i], code);
+                }
+                codes[i] = code;
+            }
+        }
+
+        String[] entries = new String[nextCode];
+        for (Map.Entry<String, Integer> entry : dictionary.entrySet()) {
+            entries[entry.getValue()] = entry.getKey();
+        }
+
+        writeVarInt(entries.length);
+        for (String entry : entries) {
+            if (entry == null) {
+                writeVarInt(0);
+            } else {
+                byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(bytes.length + 1);
+                out.write(bytes);
+            }
+        }
+
+        writeIntColumn(codes);
+    }
+
+    /**
+     * Writes the passed value as an unsigned LEB128 varint.
+     *
+     * @param value The value to write.
+     * @throws IOException If an error while writing occurs.
+     */
+    private void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+}
@@ -0,0 +1,139 @@
+package de.thm.stumm.patientmanager.model;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * Converts the dates of the patients between the amount of days since 1970-01-01, java.util.Date and the localized
+ * format of the CSV-Files.
+ *
+ * Patients hold their dates as epoch days, so parsing and formatting happens only on loading, persisting and
+ * rendering. Every thread has its own DateFormat and caches of the lately parsed and formatted dates, because the
+ * patients of a CSV-File share a small amount of distinct dates.
+ *
+ * @author Dennis Stumm
+ */
+final class DateCodec {
+    /**
+     * Epoch day representing a date, that is not set (e.g. the discharge date of a patient still in house).
+     */
+    static final int NO_DATE = Integer.MIN_VALUE;
+
+    /**
+     * The amount of entries of each cache, which must be a power of two.
+     */
+    private static final int CACHE_SIZE = 4096;
+
+    /**
+     * The codecs of the threads.
+     */
+    private static final ThreadLocal<DateCodec> codecs = ThreadLocal.withInitial(DateCodec::new);
+
+    /**
+     * The format of the dates in the CSV-Files.
+     */
+    private final DateFormat format = DateFormat.getDateInstance();
+
+    /**
+     * The lately parsed strings by their hash.
+     */
+    private final String[] parsedStrings = new String[CACHE_SIZE];
+
+    /**
+     * The epoch days of the lately parsed strings.
+     */
+    private final int[] parsedDays = new int[CACHE_SIZE];
+
+    /**
+     * The lately formatted epoch days by their hash.
+     */
+    private final int[] formattedDays = new int[CACHE_SIZE];
+
+    /**
+     * The strings of the lately formatted epoch days.
+     */
+    private final String[] formattedStrings = new String[CACHE_SIZE];
+
+    /**
+     * Each thread gets its own codec by the static methods.
+     */
+    private DateCodec() {
+    }
+
+    /**
+     * Formats the passed epoch day in the format of the CSV-Files.
+     *
+     * @param epochDay The epoch day to format.
+     * @return The formatted date or an empty string, if the passed epoch day is NO_DATE.
+     */
+    static String format(int epochDay) {
+        if (epochDay == NO_DATE) {
+            return "";
+        }
+
+        DateCodec codec = codecs.get();
+        int slot = epochDay & (CACHE_SIZE - 1);
+        String formatted = codec.formattedStrings[slot];
+        if (formatted == null || codec.formattedDays[slot] != epochDay) {
+            formatted = codec.format.format(toDate(epochDay));
+            codec.formattedStrings[slot] = formatted;
+            codec.formattedDays[slot] = epochDay;
+        }
+
+        return formatted;
+    }
+
+    /**
+     * Parses the passed date in the format of the CSV-Files.
+     *
+     * @param value The date to parse.
+     * @return The epoch day of the parsed date or NO_DATE, if the passed string is empty.
+     * @throws ParseException If the passed string isn't a valid date.
+     */
+    static int parse(String value) throws ParseException {
+        if (value.isEmpty()) {
+            return NO_DATE;
+        }
+
+        DateCodec codec = codecs.get();
+        int slot = value.hashCode() & (CACHE_SIZE - 1);
+        if (!value.equals(codec.parsedStrings[slot])) {
+            codec.parsedDays[slot] = toEpochDay(codec.format.parse(value));
+            codec.parsedStrings[slot] = value;
+        }
+
+        return codec.parsedDays[slot];
+    }
+
+    /**
+     * Converts the passed epoch day into a date at the start of the day in the default time zone.
+     *
+     * @param epochDay The epoch day to convert.
+     * @return The date of the passed epoch day or null, if the passed epoch day is NO_DATE.
+     */
+    static Date toDate(int epochDay) {
+        if (epochDay == NO_DATE) {
+            return null;
+        }
+
+        return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * Converts the passed date into the amount of days since 1970-01-01 in the default time zone.
+     *
+     * @param date The date to convert.
+     * @return The epoch day of the passed date or NO_DATE, if the passed date is null.
+     */
+    static int toEpochDay(Date date) {
+        if (date == null) {
+            return NO_DATE;
+        }
+
+        return (int) Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+}
@@ -0,0 +1,104 @@
+package de.thm.stumm.patientmanager.model;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Monotonic sequence of ids, which is persisted to a file next to the data, so ids are never reused, even after the
+ * patient with the highest id was removed or the application was restarted.
+ *
+ * Allocating ids is atomic, so it can be used by concurrent writers, and ids can be reserved in blocks for bulk
+ * imports.
+ *
+ * @author Dennis Stumm
+ */
+class IdSequence {
+    /**
+     * Path to the file where the last allocated id gets persisted.
+     */
+    private final Path filePath;
+
+    /**
+     * The last allocated id.
+     */
+    private final AtomicInteger last;
+
+    /**
+     * Opens the sequence persisted in the passed file, which starts at zero, if the file doesn't exist.
+     *
+     * @param filePath Path to the file where the last allocated id is persisted.
+     * @throws IOException If the file can't be read or doesn't contain an id.
+     */
+    IdSequence(Path filePath) throws IOException {
+        int last = 0;
+
+        if (Files.exists(filePath)) {
+            String value = new String(Files.readAllBytes(filePath), StandardCharsets.US_ASCII).trim();
+            try {
+                last = Integer.parseInt(value);
+            } catch (NumberFormatException exception) {
+                throw new IOException("Die Datei " + filePath + " enthält keine gültige ID (" + value + ")!", exception);
+            }
+        }
+
+        this.filePath = filePath;
+        this.last = new AtomicInteger(last);
+    }
+
+    /**
+     * Makes sure, that the passed id doesn't get allocated anymore, e.g. because a patient with this id was loaded.
+     *
+     * @param id The id, that is used already.
+     */
+    void advanceTo(int id) {
+        last.accumulateAndGet(id, Math::max);
+    }
+
+    /**
+     * @return The last allocated id.
+     */
+    int current() {
+        return last.get();
+    }
+
+    /**
+     * @return The next id, that is unique.
+     */
+    int next() {
+        return nextBlock(1);
+    }
+
+    /**
+     * Reserves the passed amount of consecutive ids.
+     *
+     * @param count The amount of ids to reserve.
+     * @return The first of the reserved ids.
+     * @throws IllegalArgumentException If the passed amount isn't positive.
+     * @throws ArithmeticException      If there aren't enough ids left.
+     */
+    int nextBlock(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Es muss mindestens eine ID reserviert werden!");
+        }
+
+        return last.getAndUpdate(value -> Math.addExact(value, count)) + 1;
+    }
+
+    /**
+     * Persists the last allocated id to the file.
+     *
+     * @throws IOException If an error gets thrown while writing the file.
+     */
+    void persist() throws IOException {
+        Path directory = filePath.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        Path temporaryFile = Files.createTempFile(directory, filePath.getFileName().toString(), ".tmp");
+        Files.write(temporaryFile, Integer.toString(last.get()).getBytes(StandardCharsets.US_ASCII));
+        Files.move(temporaryFile, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
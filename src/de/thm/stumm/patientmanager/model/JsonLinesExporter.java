@@ -0,0 +1,131 @@
+package de.thm.stumm.patientmanager.model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * Exporter that writes every patient as one JSON object per line (JSON Lines).
+ *
+ * Dates are written in the ISO-8601 format (yyyy-MM-dd), dates that are not set are written as null.
+ *
+ * @author Dennis Stumm
+ */
+public class JsonLinesExporter extends PatientExporter {
+    /**
+     * Writer for the export file.
+     */
+    private Writer writer;
+
+    /**
+     * Buffer that gets reused for building the line of each patient.
+     */
+    private final StringBuilder line = new StringBuilder(128);
+
+    /**
+     * Initializes the exporter by opening the passed file for writing. An existing file gets overwritten.
+     *
+     * @param filePath Path to the file, where the patients should be exported to.
+     * @throws IOException If the file can't be opened.
+     */
+    public JsonLinesExporter(Path filePath) throws IOException {
+        if (filePath.getParent() != null) {
+            Files.createDirectories(filePath.getParent());
+        }
+
+        this.writer = Files.newBufferedWriter(filePath, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the passed patient as a JSON object in a new line.
+     *
+     * @param patient The patient that should be exported.
+     * @throws IOException If an error while writing the patient occurs.
+     */
+    @Override
+    public void write(Patient patient) throws IOException {
+        line.setLength(0);
+        line.append("{\"id\":").append(patient.getId());
+        line.append(",\"firstName\":");
+        appendString(patient.getFirstName());
+        line.append(",\"lastName\":");
+        appendString(patient.getLastName());
+        line.append(",\"age\":").append(patient.getAge());
+        line.append(",\"admissionDate\":");
+        appendDate(patient.getAdmissionDay());
+        line.append(",\"dischargeDate\":");
+        appendDate(patient.getDischargeDay());
+        line.append(",\"icd\":");
+        appendString(patient.getIcd());
+        line.append("}\n");
+
+        writer.append(line);
+    }
+
+    /**
+     * Flushes and closes the export file.
+     *
+     * @throws IOException If an error while closing the file occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Appends the passed epoch day as a quoted ISO-8601 date or null to the current line.
+     *
+     * @param epochDay The epoch day to append.
+     */
+    private void appendDate(int epochDay) {
+        if (epochDay == NO_DATE) {
+            line.append("null");
+        } else {
+            line.append('"').append(LocalDate.ofEpochDay(epochDay)).append('"');
+        }
+    }
+
+    /**
+     * Appends the passed value as an escaped JSON string or null to the current line.
+     *
+     * @param value The string to append.
+     */
+    private void appendString(String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+            }
+        }
+        line.append('"');
+    }
+}
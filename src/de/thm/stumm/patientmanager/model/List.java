@@ -1,5 +1,11 @@
 package de.thm.stumm.patientmanager.model;
 
+import de.thm.stumm.patientmanager.metrics.LoadEvent;
+import de.thm.stumm.patientmanager.metrics.Metrics;
+import de.thm.stumm.patientmanager.metrics.OperationMetrics;
+import de.thm.stumm.patientmanager.metrics.PersistEvent;
+import de.thm.stumm.patientmanager.metrics.QueryEvent;
+
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.lang.reflect.InvocationTargetException;
@@ -7,9 +13,11 @@ import java.lang.reflect.Method;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Scanner;
+import java.util.function.Predicate;
 
 /**
  * Abstract class for all lists in the application containing models.
@@ -23,12 +31,17 @@ import java.util.Scanner;
  */
 public abstract class List<T> implements Iterable<T> {
     /**
-     * Size of the array with the items.
-     *
-     * When adding items more than the stackSize a new array will be created with a multiple of this size.
+     * The amount of rows read from the CSV-File, after which the total amount of rows gets estimated to pre-size the
+     * array while loading.
+     */
+    private static final int ESTIMATION_ROWS = 1024;
+
+    /**
+     * Initial size of the array with the items.
      *
-     * This prevents from creating every time a new array when adding one more element and makes the list dynamic
-     * without limiting the size.
+     * When adding more items than the array can hold, a new array will be created, that is half as large again as the
+     * full one. Growing geometrically makes adding n items cost O(n) copying in total, while the list stays dynamic
+     * without limiting the size. The array never shrinks below this size.
      */
     private final int stackSize = 1000;
 
@@ -43,12 +56,63 @@ public abstract class List<T> implements Iterable<T> {
     private Object[] items;
 
     /**
-     * Initializes the list and loads when possible the models into the list.
+     * Path to the CSV-File where the elements of this list get loaded from and persisted to.
+     */
+    private Path filePath;
+
+    /**
+     * Progress of loading the items from the CSV-File.
+     */
+    private LoadProgress loadProgress;
+
+    /**
+     * Metrics of loading the items from the CSV-File.
+     */
+    private final OperationMetrics loadMetrics = Metrics.operation(getClass().getSimpleName(), "loadItems");
+
+    /**
+     * Metrics of persisting the items to the CSV-File.
+     */
+    private final OperationMetrics persistMetrics = Metrics.operation(getClass().getSimpleName(), "persist");
+
+    /**
+     * Metrics of searching for an item.
+     */
+    private final OperationMetrics findMetrics = Metrics.operation(getClass().getSimpleName(), "find");
+
+    /**
+     * Metrics of searching for all items with a property value.
+     */
+    private final OperationMetrics findAllMetrics = Metrics.operation(getClass().getSimpleName(), "findAll");
+
+    /**
+     * Metrics of removing an item.
+     */
+    private final OperationMetrics removeMetrics = Metrics.operation(getClass().getSimpleName(), "remove");
+
+    /**
+     * Initializes the list and loads when possible the models from the passed CSV-File into the list.
+     *
+     * @param filePath Path to the CSV-File where the elements of this list should be persisted.
+     * @throws MalformedCsvLineException If some of the lines in the CSV-File contains errors.
+     * @throws IOException If an error gets thrown while reading the CSV-File.
+     */
+    public List(Path filePath) throws MalformedCsvLineException, IOException {
+        this(filePath, new LoadProgress());
+    }
+
+    /**
+     * Initializes the list and loads when possible the models from the passed CSV-File into the list, while
+     * reporting the progress to the passed object.
      *
+     * @param filePath     Path to the CSV-File where the elements of this list should be persisted.
+     * @param loadProgress Object the progress of loading the CSV-File gets reported to.
      * @throws MalformedCsvLineException If some of the lines in the CSV-File contains errors.
      * @throws IOException If an error gets thrown while reading the CSV-File.
      */
-    public List() throws MalformedCsvLineException, IOException {
+    protected List(Path filePath, LoadProgress loadProgress) throws MalformedCsvLineException, IOException {
+        this.filePath = filePath;
+        this.loadProgress = loadProgress;
         items = new Object[this.stackSize];
         loadItems();
     }
@@ -63,12 +127,31 @@ public abstract class List<T> implements Iterable<T> {
      */
     public void add(T item) {
         if (this.currentIndex == this.items.length) {
-            this.items = Arrays.copyOf(this.items, this.items.length + this.stackSize);
+            ensureCapacity(this.currentIndex + 1);
         }
 
         this.items[this.currentIndex++] = item;
     }
 
+    /**
+     * @return The length of the array backing this list.
+     */
+    public int capacity() {
+        return this.items.length;
+    }
+
+    /**
+     * Grows the array backing this list, so it can hold at least the passed amount of items without growing again.
+     *
+     * @param minCapacity The amount of items the list should be able to hold.
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > this.items.length) {
+            int capacity = this.items.length + (this.items.length >> 1);
+            this.items = Arrays.copyOf(this.items, Math.max(capacity, minCapacity));
+        }
+    }
+
     /**
      * Searches for the passed item in the list.
      *
@@ -76,13 +159,23 @@ public abstract class List<T> implements Iterable<T> {
      * @return The found item or null if nothing was found.
      */
     public T find(T item) {
+        long start = findMetrics.start();
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        int scanned = 0;
+        T found = null;
+
         for (Object currentItem : this) {
+            scanned++;
             if (item.equals(currentItem)) {
-                return (T) currentItem;
+                found = (T) currentItem;
+                break;
             }
         }
 
-        return null;
+        commitQueryEvent(event, "find", null, scanned, found == null ? 0 : 1);
+        findMetrics.stop(start);
+        return found;
     }
 
     /**
@@ -93,22 +186,28 @@ public abstract class List<T> implements Iterable<T> {
      * @return The first occurrence, where the passed property has the passed value.
      */
     public T find(String property, Object value) {
-        try {
-            Method method = null;
-            for (Object item : this) {
-                if (method == null) {
-                    method = item.getClass().getDeclaredMethod("get" + property.substring(0, 1).toUpperCase() + property.substring(1));
-                }
+        long start = findMetrics.start();
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        int scanned = 0;
+        T found = null;
 
-                if (method.invoke(item).equals(value)) {
-                    return (T) item;
+        try {
+            Predicate<T> matcher = getMatcher(property, value);
+            for (T item : this) {
+                scanned++;
+                if (matcher.test(item)) {
+                    found = item;
+                    break;
                 }
             }
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+        } catch (IllegalArgumentException e) {
             e.printStackTrace();
         }
 
-        return null;
+        commitQueryEvent(event, "find", property, scanned, found == null ? 0 : 1);
+        findMetrics.stop(start);
+        return found;
     }
 
     /**
@@ -120,23 +219,26 @@ public abstract class List<T> implements Iterable<T> {
      */
     public Object[] findAll(String property, Object value) {
         Object[] foundItems = new Object[0];
+        long start = findAllMetrics.start();
+        QueryEvent event = new QueryEvent();
+        event.begin();
+        int scanned = 0;
 
         try {
-            Method method = null;
-            for (Object item : this) {
-                if (method == null) {
-                    method = item.getClass().getDeclaredMethod("get" + property.substring(0, 1).toUpperCase() + property.substring(1));
-                }
-
-                if (method.invoke(item).equals(value)) {
+            Predicate<T> matcher = getMatcher(property, value);
+            for (T item : this) {
+                scanned++;
+                if (matcher.test(item)) {
                     foundItems = Arrays.copyOf(foundItems, foundItems.length + 1);
                     foundItems[foundItems.length - 1] = item;
                 }
             }
-        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+        } catch (IllegalArgumentException e) {
             e.printStackTrace();
         }
 
+        commitQueryEvent(event, "findAll", property, scanned, foundItems.length);
+        findAllMetrics.stop(start);
         return foundItems;
     }
 
@@ -154,23 +256,26 @@ public abstract class List<T> implements Iterable<T> {
      * @throws IOException If an error while persisting the patients occurs.
      */
     public void persist() throws IOException {
-        Path filePath = getFilePath();
-
-        if (Files.notExists(filePath)) {
-            Files.createDirectories(filePath.getParent());
-            Files.createFile(filePath);
-        }
+        long start = persistMetrics.start();
+        PersistEvent event = new PersistEvent();
+        event.begin();
+        boolean success = false;
 
-        PrintWriter printWriter = new PrintWriter(Files.newBufferedWriter(getFilePath(), Charset.defaultCharset()));
-        Iterator iterator = iterator();
+        try {
+            int rows = writeItems();
+            success = true;
 
-        for (int i = 0; iterator.hasNext(); i++) {
-            iterator.next();
-            printWriter.println(getCsvLine(i));
+            event.end();
+            if (event.shouldCommit()) {
+                event.list = getClass().getSimpleName();
+                event.file = getFilePath().toString();
+                event.rows = rows;
+                event.bytes = Files.size(getFilePath());
+                event.commit();
+            }
+        } finally {
+            persistMetrics.stop(start, success);
         }
-
-        printWriter.flush();
-        printWriter.close();
     }
 
     /**
@@ -179,22 +284,35 @@ public abstract class List<T> implements Iterable<T> {
      * @param item Item that should be removed.
      */
     public void remove(T item) {
-        Iterator iterator = iterator();
-        int index = -1;
+        long start = removeMetrics.start();
+        int index = indexOf(item);
 
-        for (int i = 0; iterator.hasNext(); i++) {
-            if (iterator.next().equals(item)) {
-                index = i;
-                break;
+        if (index != -1) {
+            System.arraycopy(items, index + 1, items, index, currentIndex - index - 1);
+            items[--currentIndex] = null;
+
+            // After mass deletions the array gets halved, but it keeps room for growing again without copying at once.
+            if (currentIndex < items.length / 4 && items.length > stackSize) {
+                items = Arrays.copyOf(items, Math.max(currentIndex * 2, stackSize));
             }
         }
 
-        if (index != -1) {
-            for (int i = index; i < length() - 1; i++) {
-                items[i] = items[i + 1];
-                items[i + 1] = null;
-            }
-            currentIndex--;
+        removeMetrics.stop(start);
+    }
+
+    /**
+     * @return The amount of items in this list.
+     */
+    public int size() {
+        return this.currentIndex;
+    }
+
+    /**
+     * Shrinks the array backing this list to the amount of items in the list, e.g. after loading or mass deletions.
+     */
+    public void trimToSize() {
+        if (this.currentIndex < this.items.length) {
+            this.items = Arrays.copyOf(this.items, Math.max(this.currentIndex, 1));
         }
     }
 
@@ -206,10 +324,24 @@ public abstract class List<T> implements Iterable<T> {
      */
     protected abstract void add(String csvLine) throws MalformedCsvLineException;
 
+    /**
+     * Removes all items from the list without touching the CSV-File.
+     */
+    protected void clear() {
+        if (items.length > stackSize) {
+            items = new Object[stackSize];
+        } else {
+            Arrays.fill(items, 0, currentIndex, null);
+        }
+        currentIndex = 0;
+    }
+
     /**
      * @return The path to the CSV-File where the elements of this list should be persisted.
      */
-    protected abstract Path getFilePath();
+    protected Path getFilePath() {
+        return filePath;
+    }
 
     /**
      * @param index The index, for which the item should be returned.
@@ -220,10 +352,146 @@ public abstract class List<T> implements Iterable<T> {
     }
 
     /**
-     * @param index The index where to get the item, that should be persisted.
-     * @return The line that gets persisted to the CSV-File, representing the item for the passed index.
+     * @param item The item, that should be persisted.
+     * @return The line that gets persisted to the CSV-File, representing the passed item.
+     */
+    protected abstract String getCsvLine(T item);
+
+    /**
+     * @param item The item to search for.
+     * @return The position of the first item in the list, that equals the passed item, or -1, if there is none.
+     */
+    protected int indexOf(T item) {
+        for (int i = 0; i < currentIndex; i++) {
+            if (items[i].equals(item)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns a predicate, that checks whether the passed property of an item has the passed value.
+     *
+     * By default the value of the property gets read by calling its getter via reflection. Subclasses can override
+     * this method to compare the values of some properties directly.
+     *
+     * @param property Name of property on the object to check the value on.
+     * @param value Value of the property to check.
+     * @return Predicate, that checks the property of an item. It throws an IllegalArgumentException, if the property
+     * can't be read.
+     */
+    protected Predicate<T> getMatcher(String property, Object value) {
+        String getter = "get" + property.substring(0, 1).toUpperCase() + property.substring(1);
+
+        return new Predicate<T>() {
+            private Method method;
+
+            @Override
+            public boolean test(T item) {
+                try {
+                    if (method == null) {
+                        method = item.getClass().getDeclaredMethod(getter);
+                    }
+
+                    return method.invoke(item).equals(value);
+                } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+                    throw new IllegalArgumentException("Die Eigenschaft " + property + " kann nicht gelesen werden!", e);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return The items, that get persisted to the CSV-File. These are all items of this list by default.
+     */
+    protected Iterable<T> getPersistedItems() {
+        return this;
+    }
+
+    /**
+     * Returns the amount of items, the array gets pre-sized for while loading. By default every row of the CSV-File
+     * becomes an item of this list.
+     *
+     * @param estimatedRows The amount of rows in the CSV-File, which is estimated by the length of the first rows.
+     * @return The expected amount of items in this list or 0, if the array shouldn't be pre-sized.
+     */
+    protected long getExpectedItems(long estimatedRows) {
+        return estimatedRows;
+    }
+
+    /**
+     * @return The progress of loading the items from the CSV-File.
      */
-    protected abstract String getCsvLine(int index);
+    protected LoadProgress getProgress() {
+        return loadProgress;
+    }
+
+    /**
+     * Loads the models from the CSV-File into the list if the appropriate file exists.
+     *
+     * This method gets called by the constructor, so overriding methods can't rely on initialized fields of the
+     * subclass.
+     *
+     * @throws MalformedCsvLineException If some of the lines in the CSV-File contains errors.
+     * @throws IOException If an error gets thrown while reading the CSV-File.
+     */
+    protected void loadItems() throws MalformedCsvLineException, IOException {
+        long start = loadMetrics.start();
+        LoadEvent event = new LoadEvent();
+        event.begin();
+        boolean measureParsing = event.isEnabled();
+        long parseTime = 0;
+        long readChars = 0;
+        int rows = 0;
+        boolean success = false;
+
+        try {
+            if (Files.exists(getFilePath())) {
+                loadProgress.start(Files.size(getFilePath()));
+                Scanner scanner = new Scanner(getFilePath());
+                while (scanner.hasNextLine()) {
+                    String line = scanner.nextLine();
+                    readChars += line.length() + 1;
+                    if (measureParsing) {
+                        long parseStart = System.nanoTime();
+                        this.add(line);
+                        parseTime += System.nanoTime() - parseStart;
+                    } else {
+                        this.add(line);
+                    }
+                    rows++;
+
+                    if ((rows & 0x3FF) == 0) {
+                        loadProgress.update(rows, readChars);
+                    }
+                    if (rows == ESTIMATION_ROWS) {
+                        // The CSV-Files have no row count, so it gets estimated by the length of the first rows.
+                        long expectedItems = getExpectedItems(Files.size(getFilePath()) * rows / readChars);
+                        if (expectedItems > 0) {
+                            ensureCapacity((int) Math.min((long) currentIndex + expectedItems + expectedItems / 16 - rows, Integer.MAX_VALUE - 8));
+                        }
+                    }
+                }
+                scanner.close();
+                loadProgress.update(rows, readChars);
+            }
+            success = true;
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.list = getClass().getSimpleName();
+                event.file = getFilePath().toString();
+                event.rows = rows;
+                event.bytes = Files.exists(getFilePath()) ? Files.size(getFilePath()) : 0;
+                event.parseTime = parseTime;
+                event.commit();
+            }
+        } finally {
+            loadMetrics.stop(start, success);
+        }
+    }
 
     /**
      * Returns the length of the list.
@@ -238,18 +506,57 @@ public abstract class List<T> implements Iterable<T> {
     }
 
     /**
-     * Loads the models from the CSV-File into the list if the appropriate file exists.
+     * Fills and commits the passed query event, if it is enabled and its threshold is exceeded.
      *
-     * @throws MalformedCsvLineException If some of the lines in the CSV-File contains errors.
-     * @throws IOException If an error gets thrown while reading the CSV-File.
+     * @param event     The event to commit.
+     * @param operation The name of the called method.
+     * @param property  The name of the queried property or null.
+     * @param scanned   The amount of compared items.
+     * @param matches   The amount of found items.
      */
-    private void loadItems() throws MalformedCsvLineException, IOException {
-        if (Files.exists(getFilePath())) {
-            Scanner scanner = new Scanner(getFilePath());
-            while (scanner.hasNextLine()) {
-                this.add(scanner.nextLine());
-            }
-            scanner.close();
+    private void commitQueryEvent(QueryEvent event, String operation, String property, int scanned, int matches) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.list = getClass().getSimpleName();
+            event.operation = operation;
+            event.property = property;
+            event.scannedRows = scanned;
+            event.matches = matches;
+            event.commit();
+        }
+    }
+
+    /**
+     * Writes the items of this list to the CSV-File.
+     *
+     * @return The amount of written items.
+     * @throws IOException If an error while writing the items occurs.
+     */
+    private int writeItems() throws IOException {
+        Path filePath = getFilePath().toAbsolutePath();
+        Files.createDirectories(filePath.getParent());
+
+        // The items get written to a temporary file first, which replaces the CSV-File afterwards, because the
+        // items may be read from the CSV-File while they are written.
+        Path temporaryFile = Files.createTempFile(filePath.getParent(), filePath.getFileName().toString(), ".tmp");
+        PrintWriter printWriter = new PrintWriter(Files.newBufferedWriter(temporaryFile, Charset.defaultCharset()));
+        int rows = 0;
+
+        for (T item : getPersistedItems()) {
+            printWriter.println(getCsvLine(item));
+            rows++;
         }
+
+        printWriter.flush();
+        printWriter.close();
+
+        // The PrintWriter swallows errors (e.g. characters the charset can't encode), so they have to be checked.
+        if (printWriter.checkError()) {
+            Files.deleteIfExists(temporaryFile);
+            throw new IOException("Die Datei " + filePath + " konnte nicht vollständig geschrieben werden!");
+        }
+
+        Files.move(temporaryFile, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return rows;
     }
 }
@@ -0,0 +1,58 @@
+package de.thm.stumm.patientmanager.model;
+
+/**
+ * Progress of loading the items of a list from its CSV-File, that can be read from other threads while loading.
+ *
+ * @author Dennis Stumm
+ */
+public class LoadProgress {
+    /**
+     * The size of the file, that gets loaded.
+     */
+    private volatile long totalBytes;
+
+    /**
+     * The approximate amount of bytes, that were read so far.
+     */
+    private volatile long readBytes;
+
+    /**
+     * The amount of rows, that were loaded so far.
+     */
+    private volatile int rows;
+
+    /**
+     * @return The approximate fraction of the file, that was loaded so far, between 0 and 1.
+     */
+    public double getFraction() {
+        long total = totalBytes;
+        return total == 0 ? 0 : Math.min(1, readBytes / (double) total);
+    }
+
+    /**
+     * @return The amount of rows, that were loaded so far.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Sets the size of the file, that gets loaded.
+     *
+     * @param totalBytes The size of the file.
+     */
+    void start(long totalBytes) {
+        this.totalBytes = totalBytes;
+    }
+
+    /**
+     * Updates the progress.
+     *
+     * @param rows      The amount of rows, that were loaded so far.
+     * @param readBytes The approximate amount of bytes, that were read so far.
+     */
+    void update(int rows, long readBytes) {
+        this.rows = rows;
+        this.readBytes = readBytes;
+    }
+}
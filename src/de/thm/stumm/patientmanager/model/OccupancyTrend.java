@@ -0,0 +1,106 @@
+package de.thm.stumm.patientmanager.model;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * Immutable trend of the admissions, discharges and the occupancy in consecutive days or in the hours of a day.
+ *
+ * The occupancy of a day or an hour is the amount of patients, that are in house at its end.
+ *
+ * @author Dennis Stumm
+ */
+public final class OccupancyTrend {
+    /**
+     * The first day of the trend as days since 1970-01-01.
+     */
+    private final int firstDay;
+
+    /**
+     * Whether the values belong to the hours of the first day instead of consecutive days.
+     */
+    private final boolean hourly;
+
+    /**
+     * The amount of admissions per day or hour.
+     */
+    private final int[] admissions;
+
+    /**
+     * The amount of discharges per day or hour.
+     */
+    private final int[] discharges;
+
+    /**
+     * The amount of patients in house at the end of each day or hour.
+     */
+    private final int[] occupancy;
+
+    /**
+     * Creates the trend.
+     *
+     * @param firstDay   The first day of the trend as days since 1970-01-01.
+     * @param hourly     Whether the values belong to the hours of the first day instead of consecutive days.
+     * @param admissions The amount of admissions per day or hour.
+     * @param discharges The amount of discharges per day or hour.
+     * @param occupancy  The amount of patients in house at the end of each day or hour.
+     */
+    OccupancyTrend(int firstDay, boolean hourly, int[] admissions, int[] discharges, int[] occupancy) {
+        this.firstDay = firstDay;
+        this.hourly = hourly;
+        this.admissions = admissions;
+        this.discharges = discharges;
+        this.occupancy = occupancy;
+    }
+
+    /**
+     * @param index The index of the day or hour.
+     * @return The amount of admissions in the day or hour.
+     */
+    public int getAdmissions(int index) {
+        return admissions[index];
+    }
+
+    /**
+     * @param index The index of the day or hour.
+     * @return The amount of discharges in the day or hour.
+     */
+    public int getDischarges(int index) {
+        return discharges[index];
+    }
+
+    /**
+     * @param index The index of the day or hour.
+     * @return The amount of patients in house at the end of the day or hour.
+     */
+    public int getOccupancy(int index) {
+        return occupancy[index];
+    }
+
+    /**
+     * @param index The index of the day or hour.
+     * @return The start of the day or hour in the default time zone.
+     */
+    public Date getStart(int index) {
+        if (!hourly) {
+            return DateCodec.toDate(firstDay + index);
+        }
+
+        return Date.from(LocalDate.ofEpochDay(firstDay).atTime(index, 0).atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * @return Whether the values belong to the hours of a day instead of consecutive days.
+     */
+    public boolean isHourly() {
+        return hourly;
+    }
+
+    /**
+     * @return The amount of days or hours of the trend.
+     */
+    public int size() {
+        return occupancy.length;
+    }
+}
@@ -0,0 +1,457 @@
+package de.thm.stumm.patientmanager.model;
+
+import de.thm.stumm.patientmanager.metrics.CacheMetrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * Read only store of the patients in a CSV-File, that parses the patients page by page on demand.
+ *
+ * On opening only the page directory gets built, which contains the offset, the amount of rows and the range of the
+ * ids of every page of the file. The patients of a page get parsed on the first access and are kept in a bounded LRU
+ * cache, so the heap use doesn't depend on the size of the file. The patients handed out by a lookup and the modified
+ * patients of evicted pages are retained and replace the patients parsed again from their page, because they may be
+ * modified after the eviction and parsing the page again would lose the modifications. Scans over all patients read
+ * the pages, that aren't cached, without putting them into the cache, so they don't evict the pages of the recent
+ * lookups. The retained and removed patients are released, when the store gets closed after the patients were
+ * persisted.
+ *
+ * @author Dennis Stumm
+ */
+class PagedPatientStore implements Closeable {
+    /**
+     * The size of the buffer used to scan the CSV-File for the page directory.
+     */
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The offsets of the first byte of every page in the CSV-File and the size of the file as last element.
+     */
+    private final long[] pageOffsets;
+
+    /**
+     * The amount of rows in every page.
+     */
+    private final int[] pageRows;
+
+    /**
+     * The lowest id of a patient in every page.
+     */
+    private final int[] minIds;
+
+    /**
+     * The highest id of a patient in every page.
+     */
+    private final int[] maxIds;
+
+    /**
+     * The amount of pages in the CSV-File.
+     */
+    private final int pageCount;
+
+    /**
+     * The amount of rows in the CSV-File.
+     */
+    private final int rows;
+
+    /**
+     * The highest id of a patient in the CSV-File.
+     */
+    private final int maxId;
+
+    /**
+     * The pages, that were parsed lately, in the order of their last access.
+     */
+    private final LinkedHashMap<Integer, Patient[]> cache;
+
+    /**
+     * The patients handed out by findById and the modified patients of evicted pages by their ids, which replace the
+     * patients parsed again from the CSV-File.
+     */
+    private final Map<Integer, Patient> retained = new HashMap<>();
+
+    /**
+     * The ids of the patients, that were removed from the store.
+     */
+    private final Set<Integer> removed = new HashSet<>();
+
+    /**
+     * The hits and misses of the page cache.
+     */
+    private final CacheMetrics metrics;
+
+    /**
+     * The channel used to read the pages from the CSV-File.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Opens the passed CSV-File and builds the page directory.
+     *
+     * @param filePath     Path to the CSV-File containing the patients.
+     * @param pageSize     The amount of rows in every page.
+     * @param cacheSize    The maximum amount of pages in the cache.
+     * @param loadProgress Object the progress of scanning the CSV-File gets reported to.
+     * @param metrics      The metrics the hits and misses of the page cache get recorded to.
+     * @param ids          Consumer the ids of the patients get passed to, while the CSV-File is scanned.
+     * @throws IOException If an error gets thrown while reading the CSV-File.
+     */
+    PagedPatientStore(Path filePath, int pageSize, int cacheSize, LoadProgress loadProgress, CacheMetrics metrics, IntConsumer ids) throws IOException {
+        long size = Files.size(filePath);
+        int capacity = 16;
+        long[] pageOffsets = new long[capacity + 1];
+        int[] pageRows = new int[capacity];
+        int[] minIds = new int[capacity];
+        int[] maxIds = new int[capacity];
+        int pageCount = 0;
+        int rows = 0;
+        int maxId = 0;
+
+        loadProgress.start(size);
+        try (InputStream input = Files.newInputStream(filePath)) {
+            byte[] buffer = new byte[SCAN_BUFFER_SIZE];
+            long position = 0;
+            long lineStart = 0;
+            int lineLength = 0;
+            int id = 0;
+            boolean parsingId = true;
+            int read;
+
+            // A final line without line break gets handled by a virtual line break at the end of the file.
+            while ((read = input.read(buffer)) != -1 || lineLength > 0) {
+                if (read == -1) {
+                    buffer[0] = '\n';
+                    read = 1;
+                }
+
+                for (int i = 0; i < read; i++, position++) {
+                    byte current = buffer[i];
+                    if (current != '\n') {
+                        if (current != '\r') {
+                            lineLength++;
+                        }
+                        if (parsingId && current >= '0' && current <= '9') {
+                            id = id * 10 + (current - '0');
+                        } else {
+                            parsingId = false;
+                        }
+                        continue;
+                    }
+
+                    if (lineLength > 0) {
+                        if (rows % pageSize == 0) {
+                            if (pageCount == capacity) {
+                                capacity *= 2;
+                                pageOffsets = Arrays.copyOf(pageOffsets, capacity + 1);
+                                pageRows = Arrays.copyOf(pageRows, capacity);
+                                minIds = Arrays.copyOf(minIds, capacity);
+                                maxIds = Arrays.copyOf(maxIds, capacity);
+                            }
+                            pageOffsets[pageCount] = lineStart;
+                            minIds[pageCount] = Integer.MAX_VALUE;
+                            pageCount++;
+                        }
+
+                        int page = pageCount - 1;
+                        pageRows[page]++;
+                        minIds[page] = Math.min(minIds[page], id);
+                        maxIds[page] = Math.max(maxIds[page], id);
+                        maxId = Math.max(maxId, id);
+                        ids.accept(id);
+                        rows++;
+
+                        if ((rows & 0x3FF) == 0) {
+                            loadProgress.update(rows, position);
+                        }
+                    }
+
+                    lineStart = position + 1;
+                    lineLength = 0;
+                    id = 0;
+                    parsingId = true;
+                }
+            }
+        }
+        pageOffsets[pageCount] = size;
+        loadProgress.update(rows, size);
+
+        this.pageOffsets = pageOffsets;
+        this.pageRows = pageRows;
+        this.minIds = minIds;
+        this.maxIds = maxIds;
+        this.pageCount = pageCount;
+        this.rows = rows;
+        this.maxId = maxId;
+        this.metrics = metrics;
+        this.channel = FileChannel.open(filePath, StandardOpenOption.READ);
+        this.cache = new LinkedHashMap<Integer, Patient[]>(cacheSize * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Patient[]> eldest) {
+                if (size() <= cacheSize) {
+                    return false;
+                }
+
+                for (Patient patient : eldest.getValue()) {
+                    if (patient.isModified()) {
+                        retained.put(patient.getId(), patient);
+                    }
+                }
+                metrics.eviction();
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Closes the channel to the CSV-File and releases the retained and removed patients, which are contained in the
+     * CSV-File written by the persist before.
+     *
+     * @throws IOException If an error gets thrown while closing the channel.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        retained.clear();
+        removed.clear();
+        cache.clear();
+        channel.close();
+    }
+
+    /**
+     * Searches for the patient with the passed id, whereby only the pages get loaded, which contain the id in their
+     * range of ids. The found patient gets retained until the store is closed, because it may be modified after its
+     * page was evicted.
+     *
+     * @param id The id of the searched patient.
+     * @return The patient with the passed id or null if the store doesn't contain it.
+     */
+    synchronized Patient findById(int id) {
+        Patient patient = lookup(id);
+        if (patient != null) {
+            retained.put(id, patient);
+        }
+
+        return patient;
+    }
+
+    /**
+     * @return The highest id of a patient in the CSV-File, including removed patients.
+     */
+    int getMaxId() {
+        return maxId;
+    }
+
+    /**
+     * @return Iterator over the patients of the store, which loads the pages while iterating.
+     */
+    Iterator<Patient> iterator() {
+        return iterator(this::getPage);
+    }
+
+    /**
+     * Removes the passed patient from the store, if the store contains it.
+     *
+     * @param patient The patient to remove.
+     * @return Boolean value, that indicates whether the patient was removed.
+     */
+    synchronized boolean remove(Patient patient) {
+        if (lookup(patient.getId()) == null) {
+            return false;
+        }
+
+        removed.add(patient.getId());
+        retained.remove(patient.getId());
+        return true;
+    }
+
+    /**
+     * Returns an iterator over the patients of the store, which reads the pages, that aren't cached, without putting
+     * them into the cache. The patients of these pages get parsed again by the next access, like the patients of an
+     * evicted page.
+     *
+     * @return Iterator over the patients of the store for a scan over all patients.
+     */
+    Iterator<Patient> scan() {
+        return iterator(this::scanPage);
+    }
+
+    /**
+     * @return The amount of patients in the store.
+     */
+    synchronized int size() {
+        return rows - removed.size();
+    }
+
+    /**
+     * Returns the patients of the passed page and parses the page, if it isn't cached.
+     *
+     * @param page The index of the page.
+     * @return The patients of the page.
+     */
+    private synchronized Patient[] getPage(int page) {
+        Patient[] patients = cache.get(page);
+        if (patients != null) {
+            metrics.hit();
+            return patients;
+        }
+
+        metrics.miss();
+        patients = readPage(page);
+        cache.put(page, patients);
+        return patients;
+    }
+
+    /**
+     * Returns an iterator over the patients of the store, which gets the pages from the passed function while
+     * iterating.
+     *
+     * @param pages Function returning the patients of a page.
+     * @return Iterator over the patients of the store.
+     */
+    private Iterator<Patient> iterator(IntFunction<Patient[]> pages) {
+        return new Iterator<Patient>() {
+            private int page = 0;
+            private Patient[] patients = new Patient[0];
+            private int index = 0;
+            private Patient next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null) {
+                    if (index == patients.length) {
+                        if (page == pageCount) {
+                            return false;
+                        }
+                        patients = pages.apply(page++);
+                        index = 0;
+                        continue;
+                    }
+
+                    Patient patient = patients[index++];
+                    if (!isRemoved(patient)) {
+                        next = patient;
+                    }
+                }
+
+                return true;
+            }
+
+            @Override
+            public Patient next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                Patient patient = next;
+                next = null;
+                return patient;
+            }
+        };
+    }
+
+    /**
+     * @param patient The patient to check.
+     * @return Boolean value, that indicates whether the patient was removed from the store.
+     */
+    private synchronized boolean isRemoved(Patient patient) {
+        return !removed.isEmpty() && removed.contains(patient.getId());
+    }
+
+    /**
+     * Searches for the patient with the passed id like findById, but without retaining it.
+     *
+     * @param id The id of the searched patient.
+     * @return The patient with the passed id or null if the store doesn't contain it.
+     */
+    private Patient lookup(int id) {
+        if (removed.contains(id)) {
+            return null;
+        }
+
+        for (int page = 0; page < pageCount; page++) {
+            if (id < minIds[page] || id > maxIds[page]) {
+                continue;
+            }
+
+            for (Patient patient : getPage(page)) {
+                if (patient.getId() == id) {
+                    return patient;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the patients of the passed page, whereby a page, that isn't cached, gets parsed without putting it into
+     * the cache.
+     *
+     * @param page The index of the page.
+     * @return The patients of the page.
+     */
+    private synchronized Patient[] scanPage(int page) {
+        Patient[] patients = cache.get(page);
+        return patients == null ? readPage(page) : patients;
+    }
+
+    /**
+     * Reads and parses the patients of the passed page from the CSV-File, whereby the retained patients replace their
+     * parsed copies.
+     *
+     * @param page The index of the page.
+     * @return The patients of the page.
+     * @throws IllegalStateException If the page can't be read or contains errors, because the file was validated
+     *                               partially only when the store was opened.
+     */
+    private Patient[] readPage(int page) {
+        long offset = pageOffsets[page];
+        ByteBuffer buffer = ByteBuffer.allocate((int) (pageOffsets[page + 1] - offset));
+
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) == -1) {
+                    throw new IOException("Die Datei endet unerwartet!");
+                }
+            }
+        } catch (IOException exception) {
+            throw new IllegalStateException("Die Seite " + page + " der Patienten konnte nicht gelesen werden!", exception);
+        }
+
+        buffer.flip();
+        String[] lines = Charset.defaultCharset().decode(buffer).toString().split("\r?\n");
+        Patient[] patients = new Patient[pageRows[page]];
+        int index = 0;
+
+        try {
+            for (String line : lines) {
+                if (!line.isEmpty()) {
+                    Patient patient = PatientList.parse(line);
+                    Patient retainedPatient = retained.get(patient.getId());
+                    patients[index++] = retainedPatient == null ? patient : retainedPatient;
+                }
+            }
+        } catch (MalformedCsvLineException exception) {
+            throw new IllegalStateException(exception.getMessage(), exception);
+        }
+
+        return patients;
+    }
+}
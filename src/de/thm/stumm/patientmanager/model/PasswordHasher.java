@@ -0,0 +1,60 @@
+package de.thm.stumm.patientmanager.model;
+
+/**
+ * Interface for the algorithms, that are used to hash and verify the passwords of the users.
+ *
+ * The stored hash of a user contains enough information to determine the algorithm, that created it. This allows to
+ * verify the passwords of existing users with the algorithm they were hashed with, while new passwords get hashed with
+ * the default algorithm.
+ *
+ * @author Dennis Stumm
+ */
+public interface PasswordHasher {
+    /**
+     * Name of the system property containing the time in milliseconds, that hashing a new password may take.
+     */
+    String HASH_BUDGET_PROPERTY = "patientmanager.passwordHashBudget";
+
+    /**
+     * Hashes the passed password.
+     *
+     * @param password The password in plain text.
+     * @return The hash of the password in the format, that gets stored for the user.
+     */
+    String hash(String password);
+
+    /**
+     * Checks whether the passed password matches the passed stored hash in constant time.
+     *
+     * @param password   The password in plain text.
+     * @param storedHash The hash that is stored for the user.
+     * @return true if the password matches the hash, false otherwise.
+     */
+    boolean verify(String password, String storedHash);
+
+    /**
+     * Returns the hasher that is able to verify passwords against the passed stored hash.
+     *
+     * @param storedHash The hash that is stored for a user.
+     * @return The hasher that created the passed hash.
+     */
+    static PasswordHasher forHash(String storedHash) {
+        if (storedHash.startsWith(Pbkdf2PasswordHasher.PREFIX)) {
+            return Pbkdf2PasswordHasher.VERIFIER;
+        }
+
+        return Sha1PasswordHasher.INSTANCE;
+    }
+
+    /**
+     * Returns the hasher for new passwords.
+     *
+     * The default hasher uses PBKDF2, whose cost gets calibrated on the first call, so that hashing takes about the
+     * amount of milliseconds set in the system property `patientmanager.passwordHashBudget` (100 by default).
+     *
+     * @return The hasher, that should be used for new passwords.
+     */
+    static PasswordHasher getDefault() {
+        return Pbkdf2PasswordHasher.getCalibrated();
+    }
+}
@@ -1,7 +1,7 @@
 package de.thm.stumm.patientmanager.model;
 
-import java.text.DateFormat;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Class holding the information of a patient and providing necessary functionality.
@@ -9,20 +9,30 @@ import java.util.Date;
  * @author Dennis Stumm
  */
 public class Patient {
+    /**
+     * Stamp, which changes whenever the ICD of any patient gets changed.
+     */
+    private static final AtomicLong icdVersion = new AtomicLong();
+
+    /**
+     * Stamp, which changes whenever any patient gets discharged.
+     */
+    private static final AtomicLong dischargeVersion = new AtomicLong();
+
     /**
      * The unique id of the patient.
      */
     private int id;
 
     /**
-     * The first name of the patient.
+     * The code of the first name of the patient in the StringDictionary.
      */
-    private String firstName;
+    private int firstName;
 
     /**
-     * The last name of the patient.
+     * The code of the last name of the patient in the StringDictionary.
      */
-    private String lastName;
+    private int lastName;
 
     /**
      * The age of the patient.
@@ -30,19 +40,25 @@ public class Patient {
     private int age;
 
     /**
-     * The date of admission of the patient.
+     * The day of admission of the patient as days since 1970-01-01 or DateCodec.NO_DATE, if it is unknown.
+     */
+    private int admissionDay;
+
+    /**
+     * The day of discharge of the patient as days since 1970-01-01 or DateCodec.NO_DATE, if the patient isn't
+     * discharged.
      */
-    private Date admissionDate;
+    private int dischargeDay;
 
     /**
-     * The date of discharge of the patient.
+     * The code of the ICD of the patient in the StringDictionary.
      */
-    private Date dischargeDate;
+    private int icd;
 
     /**
-     * The ICD of the patient.
+     * Boolean value, that indicates whether the patient was changed since it was loaded.
      */
-    private String icd;
+    private boolean modified;
 
     /**
      * Initializes the patient object by setting the passed values as the values of the object properties.
@@ -56,13 +72,29 @@ public class Patient {
      * @param dischargeDate Discharge date of the patient.
      */
     public Patient(int id, String firstName, String lastName, int age, String icd, Date admissionDate, Date dischargeDate) {
+        this(id, firstName, lastName, age, icd, DateCodec.toEpochDay(admissionDate), DateCodec.toEpochDay(dischargeDate));
+    }
+
+    /**
+     * Initializes the patient object by setting the passed values as the values of the object properties.
+     *
+     * @param id           Id of the patient.
+     * @param firstName    First name of the patient.
+     * @param lastName     Last name of the patient.
+     * @param age          Age of the patient.
+     * @param icd          ICD of the patient.
+     * @param admissionDay Admission day of the patient as days since 1970-01-01 or DateCodec.NO_DATE.
+     * @param dischargeDay Discharge day of the patient as days since 1970-01-01 or DateCodec.NO_DATE.
+     */
+    Patient(int id, String firstName, String lastName, int age, String icd, int admissionDay, int dischargeDay) {
+        StringDictionary dictionary = StringDictionary.getInstance();
         this.id = id;
-        this.firstName = firstName;
-        this.lastName = lastName;
+        this.firstName = dictionary.encode(firstName);
+        this.lastName = dictionary.encode(lastName);
         this.age = age;
-        this.icd = icd;
-        this.admissionDate = admissionDate;
-        this.dischargeDate = dischargeDate;
+        this.icd = dictionary.encode(icd);
+        this.admissionDay = admissionDay;
+        this.dischargeDay = dischargeDay;
     }
 
     /**
@@ -84,7 +116,31 @@ public class Patient {
      * @return The admission date of the patient.
      */
     Date getAdmissionDate() {
-        return admissionDate;
+        return DateCodec.toDate(admissionDay);
+    }
+
+    /**
+     * Returns a stamp, which changes whenever the passed property of any patient gets changed by a setter.
+     *
+     * @param property Name of the property.
+     * @return The stamp of the property, which stays 0, if the property can't be changed.
+     */
+    static long getVersion(String property) {
+        switch (property) {
+            case "icd":
+                return icdVersion.get();
+            case "dischargeDate":
+                return dischargeVersion.get();
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * @return The admission day of the patient as days since 1970-01-01 or DateCodec.NO_DATE.
+     */
+    int getAdmissionDay() {
+        return admissionDay;
     }
 
     /**
@@ -98,22 +154,39 @@ public class Patient {
      * @return The discharge date of the patient.
      */
     public Date getDischargeDate() {
-        return dischargeDate;
+        return DateCodec.toDate(dischargeDay);
     }
 
     /**
-     * Sets the discharge date of the patient to the passed value.
+     * @return The discharge day of the patient as days since 1970-01-01 or DateCodec.NO_DATE.
+     */
+    int getDischargeDay() {
+        return dischargeDay;
+    }
+
+    /**
+     * Sets the discharge date of the patient to the passed value and publishes the change to the ChangeEventBus.
      *
      * @param dischargeDate Date of discharge to be set.
      */
     public void setDischargeDate(Date dischargeDate) {
-        this.dischargeDate = dischargeDate;
+        this.dischargeDay = DateCodec.toEpochDay(dischargeDate);
+        this.modified = true;
+        dischargeVersion.incrementAndGet();
+        ChangeEventBus.getInstance().publish(ChangeEvent.Type.DISCHARGED, this);
     }
 
     /**
      * @return The first name of the patient.
      */
     String getFirstName() {
+        return StringDictionary.getInstance().decode(firstName);
+    }
+
+    /**
+     * @return The code of the first name of the patient in the StringDictionary.
+     */
+    int getFirstNameCode() {
         return firstName;
     }
 
@@ -128,6 +201,13 @@ public class Patient {
      * @return The last name of the patinet.
      */
     String getLastName() {
+        return StringDictionary.getInstance().decode(this.lastName);
+    }
+
+    /**
+     * @return The code of the last name of the patient in the StringDictionary.
+     */
+    int getLastNameCode() {
         return this.lastName;
     }
 
@@ -135,16 +215,47 @@ public class Patient {
      * @return The ICD of the patient.
      */
     public String getIcd() {
+        return StringDictionary.getInstance().decode(this.icd);
+    }
+
+    /**
+     * @return The code of the ICD of the patient in the StringDictionary.
+     */
+    int getIcdCode() {
         return this.icd;
     }
 
     /**
-     * Sets the ICD of the patient to the passed value.
+     * Sets the ICD of the patient to the passed value and publishes the change to the ChangeEventBus.
      *
      * @param icd ICD to be set.
      */
     public void setIcd(String icd) {
-        this.icd = icd;
+        this.icd = StringDictionary.getInstance().encode(icd);
+        this.modified = true;
+        icdVersion.incrementAndGet();
+        ChangeEventBus.getInstance().publish(ChangeEvent.Type.ICD_CHANGED, this);
+    }
+
+    /**
+     * @return Boolean value, that indicates whether the patient is discharged.
+     */
+    boolean isDischarged() {
+        return dischargeDay != DateCodec.NO_DATE;
+    }
+
+    /**
+     * @return Boolean value, that indicates whether the patient was changed since it was loaded or persisted.
+     */
+    boolean isModified() {
+        return modified;
+    }
+
+    /**
+     * Marks the patient as unchanged, after it was written to the disk.
+     */
+    void setPersisted() {
+        this.modified = false;
     }
 
     /**
@@ -169,17 +280,7 @@ public class Patient {
      */
     @Override
     public String toString() {
-        String result = "**************************************************\n";
-        result += "ID: " + this.id + "\n";
-        result += "Vorname: " + this.firstName + "\n";
-        result += "Name: " + this.lastName + "\n";
-        result += "Alter: " + this.age + "\n";
-        result += "Aufnahmedatum: " + (this.admissionDate == null ? "-" : DateFormat.getDateInstance().format(this.admissionDate)) + "\n";
-        result += "Entlassungsdatum: " + (this.dischargeDate == null ? "-" : DateFormat.getDateInstance().format(this.dischargeDate)) + "\n";
-        result += "ICD: " + this.icd + "\n";
-        result += "**************************************************";
-
-        return result;
+        return PatientRenderer.appendDetails(this, new StringBuilder(256)).toString();
     }
 
     /**
@@ -0,0 +1,479 @@
+package de.thm.stumm.patientmanager.model;
+
+import de.thm.stumm.patientmanager.metrics.CacheMetrics;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Archive tier of the PatientList, that keeps the discharged patients in a CSV-File on the disk.
+ *
+ * The offsets of the records by their id are looked up in a B+tree index on the disk, so the heap use doesn't depend on
+ * the size of the archive. Looked up patients get parsed from the file and are kept in a bounded LRU cache, because
+ * discharged patients are read rarely. Archived, modified and removed patients are held in memory until the archive
+ * gets flushed, which happens at the latest, when a bounded amount of patients is pending.
+ *
+ * @author Dennis Stumm
+ */
+class PatientArchive implements Closeable {
+    /**
+     * The patients, that were archived or modified since the archive was flushed, by their ids.
+     */
+    private final Map<Integer, Patient> pending = new LinkedHashMap<>();
+
+    /**
+     * The ids of the patients of the CSV-File, that were removed since the archive was flushed.
+     */
+    private final Set<Integer> removed = new HashSet<>();
+
+    /**
+     * The patients, that were looked up lately, in the order of their last access.
+     */
+    private final LinkedHashMap<Integer, Patient> cache;
+
+    /**
+     * The hits and misses of the cache.
+     */
+    private final CacheMetrics metrics;
+
+    /**
+     * The index of the offsets of the records in the CSV-File by the ids of the patients.
+     */
+    private final PatientIdIndex index;
+
+    /**
+     * Path to the CSV-File containing the archived patients.
+     */
+    private final Path filePath;
+
+    /**
+     * The maximum amount of pending patients, before the archive gets flushed.
+     */
+    private final int maxPending;
+
+    /**
+     * The file used to read the records of the looked up patients.
+     */
+    private RandomAccessFile file;
+
+    /**
+     * Opens the archive in the passed CSV-File and its index, which gets built, if it doesn't exist.
+     *
+     * @param filePath       Path to the CSV-File containing the archived patients.
+     * @param cacheSize      The maximum amount of patients in the cache.
+     * @param maxPending     The maximum amount of pending patients, before the archive gets flushed.
+     * @param metrics        The metrics the hits and misses of the cache get recorded to.
+     * @param indexCacheSize The maximum amount of pages of the index in the cache.
+     * @param indexMetrics   The metrics the hits and misses of the page cache of the index get recorded to.
+     * @throws IOException If an error gets thrown while reading the CSV-File or the index.
+     */
+    PatientArchive(Path filePath, int cacheSize, int maxPending, CacheMetrics metrics, int indexCacheSize, CacheMetrics indexMetrics) throws IOException {
+        this.filePath = filePath;
+        this.maxPending = maxPending;
+        this.metrics = metrics;
+        this.cache = new LinkedHashMap<Integer, Patient>(cacheSize * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Patient> eldest) {
+                if (size() <= cacheSize) {
+                    return false;
+                }
+
+                // Evicting a modified patient would lose the modification until the archive gets flushed.
+                if (eldest.getValue().isModified()) {
+                    pending.put(eldest.getKey(), eldest.getValue());
+                }
+                metrics.eviction();
+                return true;
+            }
+        };
+
+        String indexName = filePath.getFileName().toString().replaceFirst("\\.csv$", "") + ".idx";
+        this.index = new PatientIdIndex(filePath.resolveSibling(indexName), filePath, indexCacheSize, indexMetrics);
+    }
+
+    /**
+     * Closes the CSV-File and the index.
+     *
+     * @throws IOException If an error gets thrown while closing the files.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (file != null) {
+            file.close();
+            file = null;
+        }
+        index.close();
+    }
+
+    /**
+     * Adds the passed patient to the archive. A patient of the archive with the same id gets replaced. The archive gets
+     * flushed, when the maximum amount of pending patients is reached.
+     *
+     * @param patient The patient to archive.
+     * @throws IllegalStateException If the archive has to be flushed and can't be written.
+     */
+    synchronized void add(Patient patient) {
+        removed.remove(patient.getId());
+        cache.remove(patient.getId());
+        pending.put(patient.getId(), patient);
+
+        if (pending.size() >= maxPending) {
+            try {
+                flush();
+            } catch (IOException exception) {
+                throw new IllegalStateException("Das Archiv " + filePath + " konnte nicht geschrieben werden!", exception);
+            }
+        }
+    }
+
+    /**
+     * @param id The id of the patient.
+     * @return Whether the archive contains a patient with the passed id.
+     */
+    synchronized boolean contains(int id) {
+        return pending.containsKey(id) || (!removed.contains(id) && index.contains(id));
+    }
+
+    /**
+     * Searches for the patient with the passed id, whereby the record gets read from the CSV-File, if the patient
+     * isn't cached.
+     *
+     * @param id The id of the searched patient.
+     * @return The patient with the passed id or null if the archive doesn't contain it.
+     */
+    synchronized Patient findById(int id) {
+        Patient patient = pending.get(id);
+        if (patient == null) {
+            patient = cache.get(id);
+        }
+        if (patient != null) {
+            metrics.hit();
+            return patient;
+        }
+
+        long offset = removed.contains(id) ? -1 : index.find(id);
+        if (offset == -1) {
+            return null;
+        }
+
+        metrics.miss();
+        patient = readRecord(offset);
+        cache.put(id, patient);
+        return patient;
+    }
+
+    /**
+     * Writes the archived, modified and removed patients to the CSV-File.
+     * <p>
+     * If patients were only archived, they get appended to the CSV-File. Otherwise the whole CSV-File gets rewritten.
+     *
+     * @throws IOException If an error gets thrown while writing the CSV-File.
+     */
+    synchronized void flush() throws IOException {
+        for (Patient patient : cache.values()) {
+            if (patient.isModified()) {
+                pending.put(patient.getId(), patient);
+            }
+        }
+
+        boolean rewrite = !removed.isEmpty();
+        for (Integer id : pending.keySet()) {
+            rewrite = rewrite || index.contains(id);
+        }
+
+        if (rewrite) {
+            rewrite();
+        } else if (!pending.isEmpty()) {
+            append();
+        }
+
+        for (Patient patient : pending.values()) {
+            patient.setPersisted();
+        }
+        pending.clear();
+        removed.clear();
+    }
+
+    /**
+     * Passes the ids of all patients of the archive to the passed consumer without reading the patients.
+     *
+     * @param consumer The consumer of the ids.
+     */
+    synchronized void forEachId(IntConsumer consumer) {
+        index.forEachId(id -> {
+            if (!removed.contains(id) && !pending.containsKey(id)) {
+                consumer.accept(id);
+            }
+        });
+
+        for (Integer id : pending.keySet()) {
+            consumer.accept(id);
+        }
+    }
+
+    /**
+     * @return The highest id of a patient in the archive, including removed patients.
+     */
+    synchronized int getMaxId() {
+        int maxId = index.getMaxId();
+        for (Integer id : pending.keySet()) {
+            maxId = Math.max(maxId, id);
+        }
+
+        return maxId;
+    }
+
+    /**
+     * Returns an iterator over the patients of the archive, which reads the CSV-File sequentially.
+     * <p>
+     * The patients, that aren't cached, are parsed while iterating without being cached, so iterating doesn't evict
+     * the cached patients. Modifications of these patients get lost, so they have to be looked up by `findById` for
+     * being modified.
+     *
+     * @return Iterator over the patients of the archive.
+     */
+    Iterator<Patient> iterator() {
+        Map<Integer, Patient> added = new LinkedHashMap<>();
+        BufferedReader reader;
+
+        synchronized (this) {
+            for (Map.Entry<Integer, Patient> entry : pending.entrySet()) {
+                if (!index.contains(entry.getKey())) {
+                    added.put(entry.getKey(), entry.getValue());
+                }
+            }
+
+            try {
+                reader = Files.exists(filePath) ? Files.newBufferedReader(filePath, Charset.defaultCharset()) : null;
+            } catch (IOException exception) {
+                throw new IllegalStateException("Das Archiv " + filePath + " konnte nicht gelesen werden!", exception);
+            }
+        }
+
+        Iterator<Patient> addedIterator = added.values().iterator();
+        return new Iterator<Patient>() {
+            private BufferedReader lines = reader;
+            private Patient next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && lines != null) {
+                    next = readNext();
+                }
+                if (next == null && addedIterator.hasNext()) {
+                    next = addedIterator.next();
+                }
+
+                return next != null;
+            }
+
+            @Override
+            public Patient next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                Patient patient = next;
+                next = null;
+                return patient;
+            }
+
+            /**
+             * @return The next patient of the CSV-File, null if the record was removed or the file is finished.
+             */
+            private Patient readNext() {
+                try {
+                    String line = lines.readLine();
+                    if (line == null) {
+                        lines.close();
+                        lines = null;
+                        return null;
+                    } else if (line.isEmpty()) {
+                        return null;
+                    }
+
+                    return resolve(PatientList.parse(line));
+                } catch (IOException | MalformedCsvLineException exception) {
+                    throw new IllegalStateException("Das Archiv " + filePath + " konnte nicht gelesen werden!", exception);
+                }
+            }
+        };
+    }
+
+    /**
+     * Removes the patient with the passed id from the archive, if the archive contains it.
+     *
+     * @param id The id of the patient to remove.
+     * @return Boolean value, that indicates whether the patient was removed.
+     */
+    synchronized boolean remove(int id) {
+        cache.remove(id);
+        boolean archived = pending.remove(id) != null;
+
+        if (index.contains(id) && removed.add(id)) {
+            archived = true;
+        }
+
+        return archived;
+    }
+
+    /**
+     * @return The amount of patients in the archive.
+     */
+    synchronized int size() {
+        int size = index.size() - removed.size();
+        for (Integer id : pending.keySet()) {
+            if (!index.contains(id)) {
+                size++;
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Appends the pending patients to the CSV-File and adds their records to the index, whose tree gets rebuilt, if
+     * many records were appended since it was built.
+     *
+     * @throws IOException If an error gets thrown while writing the CSV-File.
+     */
+    private void append() throws IOException {
+        Files.createDirectories(filePath.toAbsolutePath().getParent());
+        long offset = Files.exists(filePath) ? Files.size(filePath) : 0;
+        Charset charset = Charset.defaultCharset();
+        int separatorLength = System.lineSeparator().getBytes(charset).length;
+        PrintWriter printWriter = new PrintWriter(Files.newBufferedWriter(filePath, charset, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+
+        for (Patient patient : pending.values()) {
+            String line = PatientList.format(patient);
+            printWriter.println(line);
+            index.add(patient.getId(), offset);
+            offset += line.getBytes(charset).length + separatorLength;
+        }
+
+        printWriter.close();
+        if (printWriter.checkError()) {
+            close();
+            index.rebuild();
+            throw new IOException("Die Datei " + filePath + " konnte nicht vollständig geschrieben werden!");
+        }
+
+        index.compact();
+    }
+
+    /**
+     * Reads and parses the record at the passed offset of the CSV-File.
+     *
+     * @param offset The offset of the first byte of the record.
+     * @return The parsed patient.
+     * @throws IllegalStateException If the record can't be read or contains errors.
+     */
+    private Patient readRecord(long offset) {
+        try {
+            if (file == null) {
+                file = new RandomAccessFile(filePath.toFile(), "r");
+            }
+
+            ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+            byte[] buffer = new byte[256];
+            file.seek(offset);
+
+            int read;
+            reading:
+            while ((read = file.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n' || buffer[i] == '\r') {
+                        line.write(buffer, 0, i);
+                        break reading;
+                    }
+                }
+                line.write(buffer, 0, read);
+            }
+
+            return PatientList.parse(new String(line.toByteArray(), Charset.defaultCharset()));
+        } catch (IOException | MalformedCsvLineException exception) {
+            throw new IllegalStateException("Der Patient an der Position " + offset + " des Archivs konnte nicht gelesen werden!", exception);
+        }
+    }
+
+    /**
+     * Returns the patient, that replaces the passed patient of the CSV-File.
+     *
+     * @param patient The patient parsed from the CSV-File.
+     * @return The pending or cached instance of the patient, the passed patient if there is none or null if the
+     * patient was removed.
+     */
+    private synchronized Patient resolve(Patient patient) {
+        Integer id = patient.getId();
+        if (removed.contains(id)) {
+            return null;
+        }
+
+        Patient replacement = pending.get(id);
+        if (replacement == null && cache.containsKey(id)) {
+            replacement = cache.get(id);
+        }
+
+        return replacement == null ? patient : replacement;
+    }
+
+    /**
+     * Rewrites the CSV-File with the pending patients and without the removed patients and rebuilds the index.
+     *
+     * @throws IOException If an error gets thrown while writing the CSV-File.
+     */
+    private void rewrite() throws IOException {
+        Path directory = filePath.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporaryFile = Files.createTempFile(directory, filePath.getFileName().toString(), ".tmp");
+        PrintWriter printWriter = new PrintWriter(Files.newBufferedWriter(temporaryFile, Charset.defaultCharset()));
+
+        if (Files.exists(filePath)) {
+            try (BufferedReader reader = Files.newBufferedReader(filePath, Charset.defaultCharset())) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int separator = line.indexOf(';');
+                    if (separator == -1) {
+                        continue;
+                    }
+
+                    int id = Integer.parseInt(line.substring(0, separator));
+                    if (!removed.contains(id) && !pending.containsKey(id)) {
+                        printWriter.println(line);
+                    }
+                }
+            }
+        }
+
+        for (Patient patient : pending.values()) {
+            printWriter.println(PatientList.format(patient));
+        }
+
+        printWriter.close();
+        if (printWriter.checkError()) {
+            Files.deleteIfExists(temporaryFile);
+            throw new IOException("Die Datei " + filePath + " konnte nicht vollständig geschrieben werden!");
+        }
+
+        close();
+        index.invalidate();
+        Files.move(temporaryFile, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        index.rebuild();
+    }
+}
@@ -0,0 +1,118 @@
+package de.thm.stumm.patientmanager.model;
+
+import de.thm.stumm.patientmanager.metrics.ExportEvent;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+
+/**
+ * Task that streams the patients of a list into an exporter.
+ *
+ * The patients get read by a separate reader thread and are handed over to the thread executing this task through a
+ * bounded queue. When the exporter can't keep up, the reader blocks until there is space in the queue again
+ * (backpressure), so that never more than `bufferSize` patients are in flight.
+ *
+ * The patients get iterated by the reader thread, while the application keeps working on the list, so the passed
+ * patients have to be a copy or have to lock the list while reading it. Patients added or removed during the export
+ * may therefore be contained in the export or not.
+ *
+ * @author Dennis Stumm
+ */
+public class PatientExportTask implements Callable<Integer> {
+    /**
+     * Object that gets put into the queue after the last patient to signal the end of the list.
+     */
+    private static final Object END = new Object();
+
+    /**
+     * The patients that should be exported.
+     */
+    private Iterable<Patient> patients;
+
+    /**
+     * The exporter to write the patients with.
+     */
+    private PatientExporter exporter;
+
+    /**
+     * Queue handing over the patients from the reader thread to the writing thread.
+     */
+    private BlockingQueue<Object> queue;
+
+    /**
+     * Exception that was thrown by the reader thread, if any.
+     */
+    private volatile RuntimeException readError;
+
+    /**
+     * Initializes the task by setting the values to the corresponding properties.
+     *
+     * @param patients   The patients that should be exported.
+     * @param exporter   The exporter to write the patients with. It gets closed, when the task is finished.
+     * @param bufferSize The maximum amount of patients, that are read but not yet written.
+     */
+    public PatientExportTask(Iterable<Patient> patients, PatientExporter exporter, int bufferSize) {
+        this.patients = patients;
+        this.exporter = exporter;
+        this.queue = new ArrayBlockingQueue<>(bufferSize);
+    }
+
+    /**
+     * Exports the patients and closes the exporter afterwards.
+     *
+     * @return The amount of exported patients.
+     * @throws IOException          If an error while writing the export occurs.
+     * @throws InterruptedException If the task was interrupted.
+     */
+    @Override
+    public Integer call() throws IOException, InterruptedException {
+        Thread reader = new Thread(this::read, "patient-export-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        ExportEvent event = new ExportEvent();
+        event.begin();
+        int count = 0;
+        try (PatientExporter target = this.exporter) {
+            for (Object item = queue.take(); item != END; item = queue.take()) {
+                target.write((Patient) item);
+                count++;
+            }
+        } finally {
+            reader.interrupt();
+        }
+
+        if (readError != null) {
+            throw readError;
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.exporter = exporter.getClass().getSimpleName();
+            event.rows = count;
+            event.commit();
+        }
+
+        return count;
+    }
+
+    /**
+     * Reads the patients from the list and puts them into the queue, blocking while the queue is full.
+     */
+    private void read() {
+        try {
+            try {
+                for (Patient patient : patients) {
+                    queue.put(patient);
+                }
+            } catch (RuntimeException exception) {
+                readError = exception;
+            }
+            queue.put(END);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package de.thm.stumm.patientmanager.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Abstract class for all exporters, that write the patients of the application into a file for downstream systems.
+ *
+ * An exporter receives the patients one after another by the `write` method and must not hold more than a bounded
+ * amount of them in memory, so that lists of any size can be exported with constant memory.
+ *
+ * @author Dennis Stumm
+ */
+public abstract class PatientExporter implements Closeable {
+    /**
+     * Value that gets written for a date, that is not set (e.g. the discharge date of a patient still in house).
+     */
+    static final int NO_DATE = DateCodec.NO_DATE;
+
+    /**
+     * Writes the passed patient to the export target.
+     *
+     * @param patient The patient that should be exported.
+     * @throws IOException If an error while writing the patient occurs.
+     */
+    public abstract void write(Patient patient) throws IOException;
+}
@@ -0,0 +1,614 @@
+package de.thm.stumm.patientmanager.model;
+
+import de.thm.stumm.patientmanager.metrics.CacheMetrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * B+tree index on the disk, that maps the ids of the patients to the offsets of their records in a CSV-File.
+ *
+ * The tree gets bulk loaded from the sorted ids of the CSV-File into pages of a fixed size, which are memory-mapped on
+ * demand and kept in a bounded LRU cache, so looking up an id reads only one page per level of the tree. The first page
+ * contains the header with the length of the CSV-File, that is covered by the tree. Records appended to the CSV-File
+ * afterwards are kept in a delta map until the tree gets rebuilt.
+ *
+ * @author Dennis Stumm
+ */
+class PatientIdIndex implements Closeable {
+    /**
+     * The value identifying an index file.
+     */
+    private static final int MAGIC = 0x50494458;
+
+    /**
+     * The version of the format of the index file.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The size of a page of the index file in bytes.
+     */
+    private static final int PAGE_SIZE = 4096;
+
+    /**
+     * The size of the header of a page, which contains the amount of entries and the page of the next leaf.
+     */
+    private static final int NODE_HEADER_SIZE = 8;
+
+    /**
+     * The size of an entry of a leaf, which contains an id and the offset of its record.
+     */
+    private static final int LEAF_ENTRY_SIZE = 12;
+
+    /**
+     * The size of an entry of an inner node, which contains the lowest id and the page of a child.
+     */
+    private static final int INNER_ENTRY_SIZE = 8;
+
+    /**
+     * The maximum amount of entries of a leaf.
+     */
+    private static final int LEAF_CAPACITY = (PAGE_SIZE - NODE_HEADER_SIZE) / LEAF_ENTRY_SIZE;
+
+    /**
+     * The maximum amount of children of an inner node.
+     */
+    private static final int INNER_CAPACITY = (PAGE_SIZE - NODE_HEADER_SIZE) / INNER_ENTRY_SIZE;
+
+    /**
+     * The size of the buffer used to scan the CSV-File for the records.
+     */
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The minimum amount of records in the delta map, before the tree gets rebuilt.
+     */
+    private static final int MIN_DELTA_SIZE = 4096;
+
+    /**
+     * The offsets of the records, that were appended to the CSV-File after the tree was built, by their ids.
+     */
+    private final Map<Integer, Long> delta = new HashMap<>();
+
+    /**
+     * The pages, that were mapped lately, in the order of their last access.
+     */
+    private final LinkedHashMap<Integer, ByteBuffer> cache;
+
+    /**
+     * The hits and misses of the page cache.
+     */
+    private final CacheMetrics metrics;
+
+    /**
+     * Path to the index file.
+     */
+    private final Path indexPath;
+
+    /**
+     * Path to the CSV-File containing the indexed records.
+     */
+    private final Path dataPath;
+
+    /**
+     * The channel used to map the pages of the index file or null, if the index is closed.
+     */
+    private FileChannel channel;
+
+    /**
+     * The amount of ids in the tree.
+     */
+    private int entries;
+
+    /**
+     * The highest id in the tree.
+     */
+    private int maxId;
+
+    /**
+     * The page of the root of the tree.
+     */
+    private int rootPage;
+
+    /**
+     * The amount of levels of the tree including the leaves.
+     */
+    private int height;
+
+    /**
+     * The length of the CSV-File, that is covered by the tree.
+     */
+    private long dataLength;
+
+    /**
+     * Opens the index of the passed CSV-File. The index gets built, if it doesn't exist or doesn't match the CSV-File,
+     * and the records appended to the CSV-File after the index was built get added to the delta map.
+     *
+     * @param indexPath Path to the index file.
+     * @param dataPath  Path to the CSV-File containing the indexed records.
+     * @param cacheSize The maximum amount of pages in the cache.
+     * @param metrics   The metrics the hits and misses of the page cache get recorded to.
+     * @throws IOException If an error gets thrown while reading or building the index.
+     */
+    PatientIdIndex(Path indexPath, Path dataPath, int cacheSize, CacheMetrics metrics) throws IOException {
+        this.indexPath = indexPath;
+        this.dataPath = dataPath;
+        this.metrics = metrics;
+        this.cache = new LinkedHashMap<Integer, ByteBuffer>(cacheSize * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, ByteBuffer> eldest) {
+                if (size() <= cacheSize) {
+                    return false;
+                }
+
+                metrics.eviction();
+                return true;
+            }
+        };
+
+        if (!open()) {
+            rebuild();
+        } else if (dataLength < dataSize()) {
+            Records records = scan(dataLength);
+            for (int i = 0; i < records.count; i++) {
+                delta.put(records.ids[i], records.offsets[i]);
+            }
+        }
+    }
+
+    /**
+     * Closes the index file.
+     *
+     * @throws IOException If an error gets thrown while closing the file.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        cache.clear();
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Adds the record of the passed id, that was appended to the CSV-File, to the delta map.
+     *
+     * @param id     The id of the record.
+     * @param offset The offset of the first byte of the record.
+     */
+    synchronized void add(int id, long offset) {
+        delta.put(id, offset);
+    }
+
+    /**
+     * Rebuilds the tree, if the delta map grew too large compared to the tree.
+     *
+     * @throws IOException If an error gets thrown while rebuilding the tree.
+     */
+    synchronized void compact() throws IOException {
+        if (delta.size() >= Math.max(MIN_DELTA_SIZE, entries / 16)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * @param id The id to check.
+     * @return Boolean value, that indicates whether the index contains the passed id.
+     */
+    boolean contains(int id) {
+        return find(id) != -1;
+    }
+
+    /**
+     * Searches for the offset of the record of the passed id.
+     *
+     * @param id The id of the searched record.
+     * @return The offset of the first byte of the record or -1, if the index doesn't contain the id.
+     */
+    synchronized long find(int id) {
+        Long offset = delta.get(id);
+        if (offset != null) {
+            return offset;
+        } else if (entries == 0 || id > maxId) {
+            return -1;
+        }
+
+        int page = rootPage;
+        for (int level = height; level > 1; level--) {
+            ByteBuffer node = readPage(page);
+            int low = 0;
+            int high = node.getInt(0) - 1;
+            if (id < node.getInt(NODE_HEADER_SIZE)) {
+                return -1;
+            }
+
+            // Searches the last child, whose lowest id isn't greater than the passed id.
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (node.getInt(NODE_HEADER_SIZE + middle * INNER_ENTRY_SIZE) <= id) {
+                    low = middle;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            page = node.getInt(NODE_HEADER_SIZE + low * INNER_ENTRY_SIZE + 4);
+        }
+
+        ByteBuffer leaf = readPage(page);
+        int low = 0;
+        int high = leaf.getInt(0) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int key = leaf.getInt(NODE_HEADER_SIZE + middle * LEAF_ENTRY_SIZE);
+            if (key < id) {
+                low = middle + 1;
+            } else if (key > id) {
+                high = middle - 1;
+            } else {
+                return leaf.getLong(NODE_HEADER_SIZE + middle * LEAF_ENTRY_SIZE + 4);
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Passes all ids of the index to the passed consumer, whereby the leaves of the tree get read one after another.
+     *
+     * @param consumer The consumer of the ids.
+     */
+    synchronized void forEachId(IntConsumer consumer) {
+        if (entries > 0) {
+            int page = rootPage;
+            for (int level = height; level > 1; level--) {
+                page = readPage(page).getInt(NODE_HEADER_SIZE + 4);
+            }
+
+            while (page != 0) {
+                ByteBuffer leaf = readPage(page);
+                int count = leaf.getInt(0);
+                for (int i = 0; i < count; i++) {
+                    consumer.accept(leaf.getInt(NODE_HEADER_SIZE + i * LEAF_ENTRY_SIZE));
+                }
+                page = leaf.getInt(4);
+            }
+        }
+
+        for (Integer id : delta.keySet()) {
+            consumer.accept(id);
+        }
+    }
+
+    /**
+     * @return The highest id in the index.
+     */
+    synchronized int getMaxId() {
+        int maxId = entries == 0 ? 0 : this.maxId;
+        for (Integer id : delta.keySet()) {
+            maxId = Math.max(maxId, id);
+        }
+
+        return maxId;
+    }
+
+    /**
+     * Deletes the index file, e.g. before the CSV-File gets replaced, so a stale index never gets opened.
+     *
+     * @throws IOException If an error gets thrown while deleting the index file.
+     */
+    synchronized void invalidate() throws IOException {
+        close();
+        Files.deleteIfExists(indexPath);
+    }
+
+    /**
+     * Rebuilds the tree from all records of the CSV-File and clears the delta map.
+     *
+     * @throws IOException If an error gets thrown while reading the CSV-File or writing the index file.
+     */
+    synchronized void rebuild() throws IOException {
+        close();
+
+        Records records = scan(0);
+        long[] keys = new long[records.count];
+        for (int i = 0; i < records.count; i++) {
+            // The position in the key makes the last record of an id win, like it did when the CSV-File was read.
+            keys[i] = (long) records.ids[i] << 32 | i;
+        }
+        Arrays.sort(keys);
+
+        Path directory = indexPath.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporaryFile = Files.createTempFile(directory, indexPath.getFileName().toString(), ".tmp");
+
+        try (FileChannel output = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+            writeTree(output, records, keys, records.dataLength);
+        } catch (IOException exception) {
+            Files.deleteIfExists(temporaryFile);
+            throw exception;
+        }
+
+        Files.move(temporaryFile, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        delta.clear();
+        if (!open()) {
+            throw new IOException("Der Index " + indexPath + " konnte nicht geöffnet werden!");
+        }
+    }
+
+    /**
+     * @return The amount of ids in the index.
+     */
+    synchronized int size() {
+        return entries + delta.size();
+    }
+
+    /**
+     * Writes the tree of the passed records and the header to the passed channel.
+     *
+     * @param output     The channel of the new index file.
+     * @param records    The scanned records.
+     * @param keys       The ids of the records combined with their positions in ascending order.
+     * @param dataLength The length of the scanned CSV-File.
+     * @throws IOException If an error gets thrown while writing the index file.
+     */
+    private static void writeTree(FileChannel output, Records records, long[] keys, long dataLength) throws IOException {
+        ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+        int[] lowestIds = new int[keys.length / LEAF_CAPACITY + 1];
+        int[] pages = new int[lowestIds.length];
+        int nodes = 0;
+        int nextPage = 1;
+        int entries = 0;
+        int maxId = 0;
+
+        // The leaves get written in the order of the ids and are linked to their successors.
+        for (int i = 0; i < keys.length; ) {
+            page.clear();
+            page.putInt(0).putInt(0);
+            int count = 0;
+
+            for (; i < keys.length && count < LEAF_CAPACITY; i++) {
+                int id = (int) (keys[i] >>> 32);
+                if (i + 1 < keys.length && (int) (keys[i + 1] >>> 32) == id) {
+                    continue;
+                }
+
+                page.putInt(id).putLong(records.offsets[(int) keys[i]]);
+                if (count == 0) {
+                    lowestIds[nodes] = id;
+                }
+                maxId = id;
+                count++;
+            }
+
+            if (count > 0) {
+                entries += count;
+                pages[nodes++] = nextPage;
+                page.putInt(0, count).putInt(4, i < keys.length ? nextPage + 1 : 0);
+                writePage(output, page, nextPage++);
+            }
+        }
+
+        int height = nodes == 0 ? 0 : 1;
+        while (nodes > 1) {
+            int parents = 0;
+            for (int i = 0; i < nodes; i += INNER_CAPACITY) {
+                int count = Math.min(INNER_CAPACITY, nodes - i);
+                page.clear();
+                page.putInt(count).putInt(0);
+                for (int j = i; j < i + count; j++) {
+                    page.putInt(lowestIds[j]).putInt(pages[j]);
+                }
+
+                lowestIds[parents] = lowestIds[i];
+                pages[parents++] = nextPage;
+                writePage(output, page, nextPage++);
+            }
+            nodes = parents;
+            height++;
+        }
+
+        page.clear();
+        page.putInt(MAGIC).putInt(VERSION).putInt(entries).putInt(maxId);
+        page.putInt(nodes == 0 ? 0 : pages[0]).putInt(height).putLong(dataLength);
+        writePage(output, page, 0);
+        output.force(true);
+    }
+
+    /**
+     * Writes the passed page to the passed channel, whereby the unused rest of the page gets filled with zeros.
+     *
+     * @param output The channel of the index file.
+     * @param page   The buffer containing the page.
+     * @param number The number of the page.
+     * @throws IOException If an error gets thrown while writing the page.
+     */
+    private static void writePage(FileChannel output, ByteBuffer page, int number) throws IOException {
+        while (page.position() < PAGE_SIZE) {
+            page.put((byte) 0);
+        }
+
+        page.flip();
+        long position = (long) number * PAGE_SIZE;
+        while (page.hasRemaining()) {
+            position += output.write(page, position);
+        }
+    }
+
+    /**
+     * @return The size of the CSV-File or zero, if it doesn't exist.
+     * @throws IOException If the size can't be read.
+     */
+    private long dataSize() throws IOException {
+        return Files.exists(dataPath) ? Files.size(dataPath) : 0;
+    }
+
+    /**
+     * Opens the index file and reads its header.
+     *
+     * @return Boolean value, that indicates whether the index file exists and matches the CSV-File.
+     * @throws IOException If an error gets thrown while reading the index file.
+     */
+    private boolean open() throws IOException {
+        if (Files.notExists(indexPath) || Files.size(indexPath) < PAGE_SIZE) {
+            return false;
+        }
+
+        channel = FileChannel.open(indexPath, StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate(32);
+        channel.read(header, 0);
+        header.flip();
+
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            close();
+            return false;
+        }
+
+        entries = header.getInt();
+        maxId = header.getInt();
+        rootPage = header.getInt();
+        height = header.getInt();
+        dataLength = header.getLong();
+
+        // A shorter CSV-File was rewritten without the index being rebuilt, so the offsets can't be trusted.
+        if (dataLength > dataSize()) {
+            close();
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the passed page of the index file, which gets mapped into memory, if it isn't cached.
+     *
+     * @param page The number of the page.
+     * @return Buffer containing the page.
+     * @throws IllegalStateException If the page can't be mapped.
+     */
+    private ByteBuffer readPage(int page) {
+        ByteBuffer buffer = cache.get(page);
+        if (buffer != null) {
+            metrics.hit();
+            return buffer;
+        }
+
+        metrics.miss();
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, (long) page * PAGE_SIZE, PAGE_SIZE);
+        } catch (IOException exception) {
+            throw new IllegalStateException("Die Seite " + page + " des Index " + indexPath + " konnte nicht gelesen werden!", exception);
+        }
+
+        cache.put(page, buffer);
+        return buffer;
+    }
+
+    /**
+     * Scans the CSV-File for the ids and offsets of the records starting at the passed offset.
+     *
+     * @param start The offset of the first byte of the first record to scan.
+     * @return The scanned records.
+     * @throws IOException If an error gets thrown while reading the CSV-File.
+     */
+    private Records scan(long start) throws IOException {
+        Records records = new Records();
+        records.dataLength = start;
+        if (Files.notExists(dataPath)) {
+            return records;
+        }
+
+        try (InputStream input = Channels.newInputStream(FileChannel.open(dataPath).position(start))) {
+            byte[] buffer = new byte[SCAN_BUFFER_SIZE];
+            long position = start;
+            long lineStart = start;
+            int id = 0;
+            boolean parsingId = true;
+            boolean empty = true;
+            int read;
+
+            while ((read = input.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++, position++) {
+                    byte current = buffer[i];
+                    if (current == '\n') {
+                        if (!empty) {
+                            records.add(id, lineStart);
+                        }
+                        lineStart = position + 1;
+                        id = 0;
+                        parsingId = true;
+                        empty = true;
+                    } else if (current != '\r') {
+                        empty = false;
+                        if (parsingId && current >= '0' && current <= '9') {
+                            id = id * 10 + (current - '0');
+                        } else {
+                            parsingId = false;
+                        }
+                    }
+                }
+            }
+
+            if (!empty) {
+                records.add(id, lineStart);
+            }
+            records.dataLength = position;
+        }
+
+        return records;
+    }
+
+    /**
+     * The ids and offsets of the records of a CSV-File in the order of the file.
+     */
+    private static class Records {
+        /**
+         * The ids of the records.
+         */
+        private int[] ids = new int[1024];
+
+        /**
+         * The offsets of the first bytes of the records.
+         */
+        private long[] offsets = new long[1024];
+
+        /**
+         * The amount of records.
+         */
+        private int count;
+
+        /**
+         * The length of the scanned CSV-File.
+         */
+        private long dataLength;
+
+        /**
+         * Adds the passed record.
+         *
+         * @param id     The id of the record.
+         * @param offset The offset of the first byte of the record.
+         */
+        private void add(int id, long offset) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count + (count >> 1));
+                offsets = Arrays.copyOf(offsets, ids.length);
+            }
+
+            ids[count] = id;
+            offsets[count++] = offset;
+        }
+    }
+}
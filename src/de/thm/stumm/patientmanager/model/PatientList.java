@@ -1,11 +1,27 @@
 package de.thm.stumm.patientmanager.model;
 
+import de.thm.stumm.patientmanager.metrics.CacheMetrics;
+import de.thm.stumm.patientmanager.metrics.FilterMetrics;
+import de.thm.stumm.patientmanager.metrics.Metrics;
+import de.thm.stumm.patientmanager.metrics.OperationMetrics;
+
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.text.DateFormat;
 import java.text.ParseException;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.IntFunction;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
 
 /**
  * Singleton that contains all existing patients in the system.
@@ -14,40 +30,275 @@ import java.util.Date;
  */
 public class PatientList extends List<Patient> {
     /**
-     * Instance of the PatientList.
+     * Path to the CSV-File where the patients of the singleton get persisted.
+     */
+    private static final Path FILE_PATH = Paths.get("./data/patients.csv");
+
+    /**
+     * Progress of loading the patients of the singleton.
+     */
+    private static final LoadProgress loadProgress = new LoadProgress();
+
+    /**
+     * The way the patients get stored, which gets set by the system property `patientmanager.storage`. With `paged`
+     * the patients of the CSV-File are loaded page by page on demand instead of all at once. With `tiered` only the
+     * patients, that aren't discharged, are kept in memory and the discharged patients are moved to an archive. With
+     * `sharded` the patients are split into several CSV-Files, which are loaded, persisted and searched in parallel.
+     */
+    private static final String STORAGE = System.getProperty("patientmanager.storage", "memory");
+
+    /**
+     * The amount of patients in a page, if the patients are loaded page by page.
+     */
+    private static final int PAGE_SIZE = Integer.getInteger("patientmanager.pageSize", 4096);
+
+    /**
+     * The maximum amount of pages kept in memory, if the patients are loaded page by page.
+     */
+    private static final int PAGE_CACHE_SIZE = Integer.getInteger("patientmanager.pageCache", 64);
+
+    /**
+     * The maximum amount of archived patients kept in memory, if the patients are stored tiered.
+     */
+    private static final int ARCHIVE_CACHE_SIZE = Integer.getInteger("patientmanager.archiveCache", 1024);
+
+    /**
+     * The maximum amount of discharged or modified patients held in memory, before they are written to the archive, if
+     * the patients are stored tiered.
+     */
+    private static final int ARCHIVE_PENDING_SIZE = Integer.getInteger("patientmanager.archivePending", 4096);
+
+    /**
+     * The maximum amount of pages of the index of the archive kept in memory, if the patients are stored tiered.
+     */
+    private static final int INDEX_CACHE_SIZE = Integer.getInteger("patientmanager.indexCache", 256);
+
+    /**
+     * The amount of shards, if the patients are stored sharded by id.
+     */
+    private static final int SHARDS = Integer.getInteger("patientmanager.shards", Runtime.getRuntime().availableProcessors());
+
+    /**
+     * The property the patients get assigned to the shards by, if they are stored sharded. With `id` the ranges of ids
+     * are distributed over a fixed amount of shards, with `year` every year of admission gets its own shard.
+     */
+    private static final String SHARD_BY = System.getProperty("patientmanager.shardBy", "id");
+
+    /**
+     * The amount of consecutive ids, that get assigned to the same shard, if the patients are stored sharded by id.
+     */
+    private static final int SHARD_RANGE = Integer.getInteger("patientmanager.shardRange", 65536);
+
+    /**
+     * Whether this process is the follower of a replication, so the patients are received from the primary instead of
+     * being loaded from the CSV-File and can't be persisted.
+     */
+    private static final boolean REPLICA = "follower".equals(System.getProperty("patientmanager.replication"));
+
+    /**
+     * The rate of false positives of the filter of the ids, which answers, whether a patient with an id definitely
+     * doesn't exist, before the patients get searched.
+     */
+    private static final double ID_FILTER_FALSE_POSITIVE_RATE = 0.01;
+
+    /**
+     * The amount of bytes of a line in the CSV-File, which is used to estimate the amount of ids for the filter.
+     */
+    private static final int ESTIMATED_LINE_LENGTH = 48;
+
+    /**
+     * The lookups answered by the filter of the ids and its false positives.
+     */
+    private static final FilterMetrics idFilterMetrics = Metrics.filter("PatientList", "ids");
+
+    /**
+     * Metrics of sorting the patients for a sorted view.
+     */
+    private static final OperationMetrics sortMetrics = Metrics.operation("PatientList", "sort");
+
+    /**
+     * The amount of patients, from which on the patients are counted in parallel.
+     */
+    private static final int PARALLEL_THRESHOLD = 65536;
+
+    /**
+     * The amount of patients, that get ranked at once, if the patients aren't only kept in memory and get scanned.
+     */
+    private static final int SCAN_CHUNK_SIZE = 65536;
+
+    /**
+     * Future completing with the instance of the PatientList, when it is loaded.
      */
-    private static PatientList instance;
+    private static CompletableFuture<PatientList> instance;
 
     /**
-     * The highest id that a patient of this list has.
+     * The sequence allocating the ids of the new patients, which is persisted next to the CSV-File.
      */
-    private int maxId;
+    private IdSequence sequence;
+
+    /**
+     * The store loading the patients of the CSV-File page by page or null, if all patients are kept in memory. In this
+     * case the list itself contains only the patients added since the CSV-File was loaded.
+     */
+    private PagedPatientStore store;
+
+    /**
+     * The archive containing the discharged patients or null, if the patients aren't stored tiered. In this case the
+     * list itself contains only the patients, that aren't discharged.
+     */
+    private PatientArchive archive;
+
+    /**
+     * The shards containing the patients or null, if the patients aren't stored sharded. In this case the list itself
+     * is empty.
+     */
+    private PatientShards shards;
+
+    /**
+     * The rollups of the admissions, discharges and the occupancy per day and hour, which are persisted next to the
+     * CSV-File.
+     */
+    private RollupStore rollups;
+
+    /**
+     * The filter of the ids of all patients, which answers, whether a patient with an id definitely doesn't exist.
+     */
+    private BloomFilter ids;
+
+    /**
+     * Whether patients were removed since the filter of the ids was built, so it contains ids, that don't exist anymore.
+     */
+    private boolean idsStale;
+
+    /**
+     * Whether the patients were loaded, so the changes of this list get counted in the rollups and published to the
+     * ChangeEventBus.
+     */
+    private boolean loaded;
+
+    /**
+     * Stamp, which changes whenever patients are added, removed, changed or replaced by other objects, e.g. when the
+     * pages get loaded again. It has no initializer, because it gets changed while loading the patients before the
+     * fields of this class are initialized.
+     */
+    private volatile long version;
+
+    /**
+     * The sorted views of the patients by their order, which are created on demand, if the patients are only kept in
+     * memory. The views hold the positions of the patients in this list and get updated, when patients are added or
+     * removed.
+     */
+    private Map<PatientOrder, SortedPatientView> views;
 
     /**
      * Initializes the PatientList object.
      *
+     * @param filePath Path to the CSV-File where the patients should be persisted.
      * @throws MalformedCsvLineException If some of the lines in the CSV-File contains errors.
      * @throws IOException               If an error gets thrown while reading the CSV-File.
      */
-    private PatientList() throws MalformedCsvLineException, IOException {
-        super();
+    private PatientList(Path filePath) throws MalformedCsvLineException, IOException {
+        super(filePath);
+        this.rollups = openRollups(filePath);
+        rebuildRollupsIfStale();
+        this.loaded = true;
+    }
+
+    /**
+     * Initializes the PatientList object and reports the progress of loading the CSV-File.
+     *
+     * @param filePath     Path to the CSV-File where the patients should be persisted.
+     * @param loadProgress Object the progress of loading the CSV-File gets reported to.
+     * @throws MalformedCsvLineException If some of the lines in the CSV-File contains errors.
+     * @throws IOException               If an error gets thrown while reading the CSV-File.
+     */
+    private PatientList(Path filePath, LoadProgress loadProgress) throws MalformedCsvLineException, IOException {
+        super(filePath, loadProgress);
+        this.rollups = openRollups(filePath);
+        rebuildRollupsIfStale();
+        this.loaded = true;
     }
 
     /**
      * Returns the instance of the singleton object and initializes this object if necessary.
+     * <p>
+     * If the loading of the instance was started by `loadAsync` before, this method waits until it is finished.
      *
      * @return The instance of this singleton.
      * @throws MalformedCsvLineException If some of the lines in the CSV-File contains errors.
      * @throws IOException               If an error gets thrown while reading the CSV-File.
      */
     public static PatientList getInstance() throws MalformedCsvLineException, IOException {
+        try {
+            return loadAsync().get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Das Laden der Patienten wurde unterbrochen!", exception);
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof MalformedCsvLineException) {
+                throw (MalformedCsvLineException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Starts loading the instance of the singleton on a background thread, if it isn't loaded or loading already.
+     * <p>
+     * This allows to load the patients, while the user does something else, e.g. logs in. If this process is the
+     * follower of a replication, the instance is loaded, when the snapshot of the primary was received.
+     *
+     * @return Future completing with the instance of the singleton, when it is loaded.
+     */
+    public static synchronized CompletableFuture<PatientList> loadAsync() {
         if (instance == null) {
-            instance = new PatientList();
+            CompletableFuture<PatientList> future = new CompletableFuture<>();
+            instance = future;
+            Thread loader = new Thread(() -> {
+                try {
+                    PatientList patients = new PatientList(FILE_PATH, loadProgress);
+                    if (REPLICA) {
+                        new ReplicationClient(patients, UserList.getInstance(), loadProgress).start();
+                    }
+                    Metrics.registerList("PatientList", patients::size, patients::capacity);
+                    future.complete(patients);
+                } catch (MalformedCsvLineException | IOException | RuntimeException exception) {
+                    future.completeExceptionally(exception);
+                }
+            }, "patient-loader");
+            loader.setDaemon(true);
+            loader.start();
         }
 
         return instance;
     }
 
+    /**
+     * @return The progress of loading the instance of the singleton.
+     */
+    public static LoadProgress getLoadProgress() {
+        return loadProgress;
+    }
+
+    /**
+     * Creates a new PatientList independent of the singleton, which uses the passed CSV-File.
+     * <p>
+     * This is meant for tools and benchmarks, which must not touch the data of the application.
+     *
+     * @param filePath Path to the CSV-File where the patients should be loaded from and persisted to.
+     * @return The new PatientList containing the patients of the passed file.
+     * @throws MalformedCsvLineException If some of the lines in the CSV-File contains errors.
+     * @throws IOException               If an error gets thrown while reading the CSV-File.
+     */
+    public static PatientList open(Path filePath) throws MalformedCsvLineException, IOException {
+        return new PatientList(filePath);
+    }
+
     /**
      * Adds a new patient to this list, that has the passed properties set.
      * <p>
@@ -59,40 +310,427 @@ public class PatientList extends List<Patient> {
      * @param icd       The icd of the new patient.
      */
     public void add(String firstName, String lastName, int age, String icd) {
-        this.add(new Patient(this.maxId + 1, firstName, lastName, age, icd));
+        this.add(new Patient(this.sequence.next(), firstName, lastName, age, icd));
+        this.rollups.addAdmissionHour(System.currentTimeMillis());
     }
 
     /**
-     * Adds the passed patient to this list.
+     * Adds the passed patient to this list and publishes the change to the ChangeEventBus, if the patients were loaded
+     * already.
      *
      * @param patient Patient that should be added to this list.
      */
     @Override
     public void add(Patient patient) {
-        super.add(patient);
-        if (patient.getId() > this.maxId) {
-            this.maxId = patient.getId();
+        if (this.shards != null) {
+            this.shards.add(patient);
+        } else if (this.archive != null && patient.isDischarged()) {
+            // A discharged patient of the CSV-File is archived already, if persisting was interrupted after the
+            // archive was written while loading.
+            if (this.loaded || !this.archive.contains(patient.getId())) {
+                this.archive.add(patient);
+            }
+        } else {
+            super.add(patient);
+            if (this.views != null) {
+                int position = super.size() - 1;
+                this.views.values().forEach(view -> view.inserted(position));
+            }
+        }
+
+        this.sequence.advanceTo(patient.getId());
+        this.ids.add(patient.getId());
+        this.version++;
+
+        if (this.loaded) {
+            this.rollups.add(patient);
+            ChangeEventBus.getInstance().publish(ChangeEvent.Type.ADDED, patient);
+        }
+    }
+
+    /**
+     * Changes the ICD of the passed patient of this list and changes the stamp of the search results, so the results
+     * found before the change don't get reused.
+     *
+     * @param patient Patient of this list, whose ICD gets changed.
+     * @param icd     ICD to be set.
+     */
+    public void changeIcd(Patient patient, String icd) {
+        patient.setIcd(icd);
+        this.version++;
+    }
+
+    /**
+     * Creates the report of the passed type over all patients.
+     * <p>
+     * The patients are split into ranges, which are aggregated into primitive counters in parallel by the common
+     * fork/join pool, and the counters of the ranges get merged afterwards. If the patients aren't only kept in memory,
+     * they are scanned and aggregated in chunks, so they don't get copied.
+     *
+     * @param type The type of the report.
+     * @return The created report.
+     */
+    public Report createReport(ReportType type) {
+        if (this.hasIncrementalViews()) {
+            return ReportEngine.create(type, this::get, super.size());
+        }
+
+        return ReportEngine.create(type, this.scan());
+    }
+
+    /**
+     * Discharges the passed patient with the current date, which is counted in the rollups of the current day and hour.
+     * If the patients are stored tiered, the patient gets moved to the archive.
+     *
+     * @param patient Patient that should be discharged.
+     */
+    public void discharge(Patient patient) {
+        long now = System.currentTimeMillis();
+        this.setDischargeDate(patient, new Date(now));
+        this.rollups.addDischargeHour(now);
+
+        if (this.archive != null) {
+            super.remove(patient);
+            this.archive.add(patient);
+            this.version++;
+        }
+    }
+
+    /**
+     * Searches for the first patient, where the passed property has the passed value.
+     * <p>
+     * A search for an id returns at once, if the filter of the ids tells, that the id definitely doesn't exist. If the
+     * patients are loaded page by page, a search for an id loads only the pages, which can contain the id. If the
+     * patients are stored tiered, a search for an id looks up the offset in the index of the archive and reads at most
+     * one archived patient from the disk. If the patients are stored sharded, the shards are searched in parallel.
+     *
+     * @param property Name of property on the patient to check the value on.
+     * @param value    Value of the property to search the patient with.
+     * @return The first occurrence, where the passed property has the passed value.
+     */
+    @Override
+    public Patient find(String property, Object value) {
+        if (!"id".equals(property) || !(value instanceof Integer)) {
+            return this.shards == null ? super.find(property, value) : this.shards.find(property, value);
+        }
+
+        int id = (Integer) value;
+        if (!this.ids.mightContain(id)) {
+            idFilterMetrics.negative();
+            return null;
+        }
+
+        Patient patient = findById(id);
+        if (patient == null) {
+            idFilterMetrics.falsePositive();
+        } else {
+            idFilterMetrics.positive();
+        }
+
+        return patient;
+    }
+
+    /**
+     * Searches for all patients, where the passed property has the passed value. If the patients are stored sharded,
+     * the shards are searched in parallel.
+     *
+     * @param property Name of property on the patient to check the value on.
+     * @param value    Value of the property to search the patients with.
+     * @return Array containing all found patients.
+     */
+    @Override
+    public Object[] findAll(String property, Object value) {
+        if (this.shards != null) {
+            return this.shards.findAll(property, value);
+        }
+
+        return super.findAll(property, value);
+    }
+
+    /**
+     * Returns an iterator over the patients of this list. If the patients are loaded page by page, the pages get loaded
+     * while iterating. If the patients are stored tiered, the archived patients get read after the other patients. If
+     * the patients are stored sharded, the shards get iterated one after another.
+     *
+     * @return Iterator which can be used to iterate over the patients in this list.
+     */
+    @Override
+    public Iterator<Patient> iterator() {
+        if (this.shards != null) {
+            return this.shards.iterator();
+        } else if (this.store != null) {
+            return concat(this.store.iterator(), super.iterator());
+        } else if (this.archive != null) {
+            return concat(super.iterator(), this.archive.iterator());
         }
+
+        return super.iterator();
+    }
+
+    /**
+     * Returns the admissions, discharges and the occupancy per day in the passed period from the rollups without
+     * reading any patient.
+     *
+     * @param from The first day of the period.
+     * @param to   The last day of the period.
+     * @return The trend of the days in the period.
+     */
+    public OccupancyTrend getDailyTrend(Date from, Date to) {
+        return this.rollups.getDailyTrend(DateCodec.toEpochDay(from), DateCodec.toEpochDay(to));
+    }
+
+    /**
+     * Returns the admissions, discharges and the occupancy per hour of the passed day from the rollups. The hours only
+     * contain the patients, that were admitted or discharged by this application, because the CSV-File only contains
+     * the dates.
+     *
+     * @param day The day.
+     * @return The trend of the hours of the day.
+     */
+    public OccupancyTrend getHourlyTrend(Date day) {
+        return this.rollups.getHourlyTrend(DateCodec.toEpochDay(day));
+    }
+
+    /**
+     * Returns the patients at the passed range of positions in the passed order.
+     * <p>
+     * If the patients are only kept in memory, they get sorted only once per order. Afterwards the sorted view gets
+     * updated, when patients are added or removed. Otherwise a sorted view would hold all patients, so the first
+     * patients up to the end of the range get selected by a scan for every page instead, which holds only these.
+     *
+     * @param order  The order of the patients.
+     * @param offset The position of the first returned patient in the order.
+     * @param limit  The maximum amount of returned patients.
+     * @return The patients in the range, which are fewer than the limit at the end of the list.
+     */
+    public Patient[] getSortedPage(PatientOrder order, int offset, int limit) {
+        int from = Math.max(offset, 0);
+        if (!this.hasIncrementalViews()) {
+            int k = (int) Math.min((long) from + Math.max(limit, 0), this.size());
+            long start = sortMetrics.start();
+            // The lowest keys are selected as the highest negated keys, whereby patients with the same key are still
+            // selected in the order of the list.
+            ToIntFunction<Patient> key = SortedPatientView.getKey(order);
+            Patient[] first = this.selectTopScanned(k, patient -> -key.applyAsInt(patient));
+            sortMetrics.stop(start);
+
+            return from >= first.length ? new Patient[0] : Arrays.copyOfRange(first, from, first.length);
+        }
+
+        SortedPatientView view = getView(order);
+        int to = (int) Math.min((long) from + Math.max(limit, 0), view.size());
+
+        Patient[] page = new Patient[Math.max(to - from, 0)];
+        for (int rank = from; rank < to; rank++) {
+            page[rank - from] = view.get(rank);
+        }
+
+        return page;
     }
 
     /**
-     * Removes the passed patient from this list.
+     * Returns the top patients in the passed ranking, which are selected in a single pass over all patients.
+     * <p>
+     * The selection keeps the best patients in a bounded heap of primitive keys, so it costs O(n log k) instead of
+     * sorting all patients. Large lists are scanned in parallel. If the patients aren't only kept in memory, they are
+     * scanned in chunks, whereby the best patients so far are ranked together with the next chunk, so only these are
+     * held at once.
+     *
+     * @param ranking The ranking of the patients.
+     * @param k       The maximum amount of returned patients.
+     * @return The top patients starting with the highest ranked one.
+     */
+    public Patient[] getTop(PatientRanking ranking, int k) {
+        int today = DateCodec.toEpochDay(new Date());
+        ToIntFunction<Patient> key = patient -> ranking.getKey(patient, today);
+        if (this.hasIncrementalViews()) {
+            return selectTop(this::get, super.size(), k, key);
+        }
+
+        return this.selectTopScanned(k, key);
+    }
+
+    /**
+     * Returns the most frequent ICDs of the patients admitted in the passed period.
+     * <p>
+     * The ICDs are counted in a single pass over all patients in primitive counters per code of the StringDictionary,
+     * which is done in parallel for large lists, that are only kept in memory, and by a scan otherwise. The most
+     * frequent codes get selected by a bounded heap afterwards.
+     *
+     * @param k    The maximum amount of returned ICDs.
+     * @param from The first day of the period.
+     * @param to   The last day of the period.
+     * @return The ICDs mapped to the amount of admitted patients, starting with the most frequent ICD.
+     */
+    public Map<String, Integer> getTopIcds(int k, Date from, Date to) {
+        int firstDay = DateCodec.toEpochDay(from);
+        int lastDay = DateCodec.toEpochDay(to);
+        StringDictionary dictionary = StringDictionary.getInstance();
+        int codes = dictionary.size();
+
+        int[] counts;
+        if (this.hasIncrementalViews()) {
+            int size = super.size();
+            IntStream positions = IntStream.range(0, size);
+            if (size >= PARALLEL_THRESHOLD) {
+                positions = positions.parallel();
+            }
+            counts = positions.collect(() -> new int[codes],
+                    (partialCounts, position) -> countIcd(partialCounts, this.get(position), firstDay, lastDay),
+                    (partialCounts, otherCounts) -> {
+                        for (int code = 0; code < codes; code++) {
+                            partialCounts[code] += otherCounts[code];
+                        }
+                    });
+        } else {
+            counts = new int[codes];
+            Iterator<Patient> patients = this.scan();
+            while (patients.hasNext()) {
+                countIcd(counts, patients.next(), firstDay, lastDay);
+            }
+        }
+
+        int[] top = TopKHeap.select(codes, k, code -> counts[code] == 0 ? PatientRanking.UNRANKED : counts[code]);
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int code : top) {
+            result.put(dictionary.decode(code), counts[code]);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns a stamp, which changes whenever the result of a search for the passed property may change, because
+     * patients were added or removed or the property of a patient was changed.
+     *
+     * @param property Name of property on the patient, that gets searched.
+     * @return The stamp of the search results.
+     */
+    public long getVersion(String property) {
+        return this.version + Patient.getVersion(property);
+    }
+
+    /**
+     * @return Whether the patients are kept in memory, so the objects found by a search stay the patients of this list,
+     * which isn't the case, if the patients are loaded page by page or archived.
+     */
+    public boolean isInMemory() {
+        return this.store == null && this.archive == null;
+    }
+
+    /**
+     * @return Whether this list is the replica of a follower, which receives the patients from the primary and can't be
+     * persisted.
+     */
+    public boolean isReadOnly() {
+        return REPLICA;
+    }
+
+    /**
+     * Persists the patients of this list to the CSV-File.
+     * <p>
+     * If the patients are loaded page by page, the page directory gets rebuilt afterwards and the patients retained by
+     * the store get released. If the patients are stored tiered, the discharged patients get moved to the archive,
+     * before the archive and the other patients get persisted. If the patients are stored sharded, the shards get
+     * persisted in parallel and the single CSV-File, which was migrated to the shards, gets deleted. If patients were
+     * removed, the filter of the ids gets rebuilt.
+     *
+     * @throws IOException If an error while persisting the patients occurs or this list is the replica of a follower.
+     */
+    @Override
+    public void persist() throws IOException {
+        if (REPLICA) {
+            throw new IOException("Die Patienten einer Replik können nicht gespeichert werden!");
+        } else if (this.shards != null) {
+            this.shards.persist();
+            Files.deleteIfExists(this.getFilePath());
+            this.sequence.persist();
+            this.rollups.persist();
+            rebuildIdsIfStale();
+            return;
+        } else if (this.archive != null) {
+            archiveDischargedPatients();
+            this.archive.flush();
+        }
+
+        super.persist();
+        this.sequence.persist();
+        this.rollups.persist();
+
+        if (this.store != null) {
+            this.store.close();
+            this.ids = new BloomFilter(this.size(), ID_FILTER_FALSE_POSITIVE_RATE);
+            this.idsStale = false;
+            this.store = openStore(this.getFilePath(), new LoadProgress(), this.ids);
+            this.clear();
+            this.version++;
+        }
+
+        rebuildIdsIfStale();
+    }
+
+    /**
+     * Removes the passed patient from this list and publishes the change to the ChangeEventBus, if the patient was
+     * removed.
      *
      * @param patient Patient that should be removed from this list.
      */
     @Override
     public void remove(Patient patient) {
-        super.remove(patient);
-        if (patient.getId() == this.maxId) {
-            this.maxId = 0;
-            for (Patient currentPatient : this) {
-                if (currentPatient.getId() > this.maxId) {
-                    this.maxId = currentPatient.getId();
+        int size = this.size();
+        boolean removed = false;
+        if (this.shards != null) {
+            removed = this.shards.remove(patient);
+        } else if (this.store != null) {
+            removed = this.store.remove(patient);
+        } else if (this.archive != null) {
+            removed = this.archive.remove(patient.getId());
+        }
+
+        if (!removed) {
+            if (this.views != null) {
+                int position = this.indexOf(patient);
+                if (position != -1) {
+                    this.views.values().forEach(view -> view.removing(position));
                 }
             }
+            super.remove(patient);
+        }
+        this.idsStale = true;
+
+        if (this.size() < size) {
+            this.version++;
+            this.rollups.remove(patient);
+            ChangeEventBus.getInstance().publish(ChangeEvent.Type.REMOVED, patient);
         }
     }
 
+    /**
+     * Reserves the passed amount of consecutive ids for patients, which get imported in bulk afterwards.
+     *
+     * @param count The amount of ids to reserve.
+     * @return The first of the reserved ids.
+     */
+    public int reserveIds(int count) {
+        return this.sequence.nextBlock(count);
+    }
+
+    /**
+     * @return The amount of patients in this list.
+     */
+    @Override
+    public int size() {
+        if (this.shards != null) {
+            return this.shards.size();
+        } else if (this.store != null) {
+            return this.store.size() + super.size();
+        } else if (this.archive != null) {
+            return super.size() + this.archive.size();
+        }
+
+        return super.size();
+    }
+
     /**
      * Adds a new patient object with the information parsed from the passed String in CSV-Format to this PatientList.
      *
@@ -101,6 +739,187 @@ public class PatientList extends List<Patient> {
      */
     @Override
     protected void add(String csvLine) throws MalformedCsvLineException {
+        this.add(parse(csvLine));
+    }
+
+    /**
+     * Returns a string containing the line for a CSV-File for the passed patient object.
+     *
+     * @param patient The patient, that should be persisted.
+     * @return String in CSV-Format representing the patient object.
+     */
+    @Override
+    protected String getCsvLine(Patient patient) {
+        return format(patient);
+    }
+
+    /**
+     * Returns the amount of patients, the list gets pre-sized for while loading. If the patients are stored tiered or
+     * sharded, the list itself holds only a part of the patients, so it doesn't get pre-sized.
+     *
+     * @param estimatedRows The amount of rows in the CSV-File, which is estimated by the length of the first rows.
+     * @return The expected amount of patients in the list or 0, if the list shouldn't be pre-sized.
+     */
+    @Override
+    protected long getExpectedItems(long estimatedRows) {
+        return this.archive == null && this.shards == null ? estimatedRows : 0;
+    }
+
+    /**
+     * Returns a predicate, that checks whether the passed property of a patient has the passed value.
+     * <p>
+     * The names and the ICD get compared by their codes in the StringDictionary, the dates by their epoch days and the
+     * numbers directly, so only the other properties get read via reflection.
+     *
+     * @param property Name of property on the patient to check the value on.
+     * @param value    Value of the property to check.
+     * @return Predicate, that checks the property of a patient.
+     */
+    @Override
+    protected Predicate<Patient> getMatcher(String property, Object value) {
+        Predicate<Patient> matcher = createMatcher(property, value);
+        return matcher == null ? super.getMatcher(property, value) : matcher;
+    }
+
+    /**
+     * @return The patients, that get persisted to the CSV-File. If the patients are stored tiered, the archived
+     * patients get persisted to the archive instead.
+     */
+    @Override
+    protected Iterable<Patient> getPersistedItems() {
+        if (this.archive != null) {
+            return super::iterator;
+        }
+
+        return super.getPersistedItems();
+    }
+
+    /**
+     * Loads the patients from the CSV-File. If the patients should be loaded page by page, only the page directory
+     * gets built. If the patients should be stored tiered, the archive gets opened and the discharged patients of the
+     * CSV-File are written to the archive while reading it. If the patients should be stored sharded, the shards get loaded in parallel
+     * and the patients of an existing single CSV-File are migrated to the shards. The replica of a follower stays
+     * empty, because it receives the patients from the primary.
+     *
+     * @throws MalformedCsvLineException If some of the lines in the CSV-File contains errors.
+     * @throws IOException               If an error gets thrown while reading the CSV-File.
+     */
+    @Override
+    protected void loadItems() throws MalformedCsvLineException, IOException {
+        this.sequence = openSequence(this.getFilePath());
+        long size = Files.exists(this.getFilePath()) ? Files.size(this.getFilePath()) : 0;
+        this.ids = new BloomFilter((int) Math.min(size / ESTIMATED_LINE_LENGTH, Integer.MAX_VALUE), ID_FILTER_FALSE_POSITIVE_RATE);
+
+        if (REPLICA) {
+            return;
+        } else if ("sharded".equals(STORAGE)) {
+            this.shards = openShards(this.getFilePath(), this.getProgress());
+            this.sequence.advanceTo(this.shards.getMaxId());
+            this.shards.iterator().forEachRemaining(patient -> this.ids.add(patient.getId()));
+            // The single CSV-File is deleted, after it was migrated and the shards were persisted. If it still exists
+            // besides filled shards, persisting was interrupted and the shards contain its patients already.
+            if (Files.exists(this.getFilePath()) && this.shards.size() == 0) {
+                super.loadItems();
+                this.trimToSize();
+            }
+            return;
+        } else if ("tiered".equals(STORAGE)) {
+            this.archive = openArchive(this.getFilePath());
+            this.archive.forEachId(this.ids::add);
+            // The discharged patients are written to the archive while the CSV-File is read, so only a bounded amount
+            // of them is held in memory.
+            try {
+                super.loadItems();
+            } catch (IllegalStateException exception) {
+                if (exception.getCause() instanceof IOException) {
+                    throw (IOException) exception.getCause();
+                }
+                throw exception;
+            }
+            this.archive.flush();
+            this.sequence.advanceTo(this.archive.getMaxId());
+            return;
+        } else if (!"paged".equals(STORAGE) || Files.notExists(this.getFilePath())) {
+            super.loadItems();
+            return;
+        }
+
+        this.store = openStore(this.getFilePath(), this.getProgress(), this.ids);
+        this.sequence.advanceTo(this.store.getMaxId());
+    }
+
+    /**
+     * Returns a predicate, that checks whether the passed property of a patient has the passed value without
+     * reflection.
+     *
+     * @param property Name of property on the patient to check the value on.
+     * @param value    Value of the property to check.
+     * @return Predicate, that checks the property of a patient or null, if the property has to be read via reflection.
+     */
+    static Predicate<Patient> createMatcher(String property, Object value) {
+        if (value instanceof String || value == null) {
+            int code = StringDictionary.getInstance().lookup((String) value);
+            boolean known = value == null || code != StringDictionary.NULL;
+
+            switch (property) {
+                case "firstName":
+                    return patient -> known && patient.getFirstNameCode() == code;
+                case "lastName":
+                    return patient -> known && patient.getLastNameCode() == code;
+                case "icd":
+                    return patient -> known && patient.getIcdCode() == code;
+            }
+        } else if (value instanceof Integer) {
+            int number = (Integer) value;
+
+            switch (property) {
+                case "id":
+                    return patient -> patient.getId() == number;
+                case "age":
+                    return patient -> patient.getAge() == number;
+            }
+        } else if (value instanceof Date) {
+            int day = DateCodec.toEpochDay((Date) value);
+
+            switch (property) {
+                case "admissionDate":
+                    return patient -> patient.getAdmissionDay() == day;
+                case "dischargeDate":
+                    return patient -> patient.getDischargeDay() == day;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns a string containing the line for a CSV-File for the passed patient object.
+     *
+     * @param patient The patient, that should be formatted.
+     * @return String in CSV-Format representing the patient object.
+     */
+    static String format(Patient patient) {
+        String line = patient.getId() + ";";
+        line += patient.getFirstName() + ";";
+        line += patient.getLastName() + ";";
+        line += patient.getAge() + ";";
+
+        line += DateCodec.format(patient.getAdmissionDay()) + ";";
+        line += DateCodec.format(patient.getDischargeDay()) + ";";
+
+        line += patient.getIcd() == null ? "" : patient.getIcd();
+
+        return line;
+    }
+
+    /**
+     * Creates a patient object with the information parsed from the passed String in CSV-Format.
+     *
+     * @param csvLine The CSV-Formatted string to get the values for the new object from.
+     * @return The parsed patient.
+     * @throws MalformedCsvLineException If the passed csvLine contains errors.
+     */
+    static Patient parse(String csvLine) throws MalformedCsvLineException {
         String[] values = csvLine.split(";", -1);
 
         if (values.length != 7) {
@@ -112,10 +931,10 @@ public class PatientList extends List<Patient> {
             String firstName = values[1];
             String lastName = values[2];
             int age = Integer.parseInt(values[3]);
-            Date admissionDate = values[4].equals("") ? null : DateFormat.getDateInstance().parse(values[4]);
-            Date dischargeDate = values[5].equals("") ? null : DateFormat.getDateInstance().parse(values[5]);
+            int admissionDay = DateCodec.parse(values[4]);
+            int dischargeDay = DateCodec.parse(values[5]);
             String icd = values[6];
-            this.add(new Patient(id, firstName, lastName, age, icd, admissionDate, dischargeDate));
+            return new Patient(id, firstName, lastName, age, icd, admissionDay, dischargeDay);
         } catch (ParseException exception) {
             throw new MalformedCsvLineException("Beim Analysieren eines Datums in der Zeile (" + csvLine + ") ist ein Fehler aufgetreten (" + exception.getLocalizedMessage() + ")!");
         } catch (NumberFormatException exception) {
@@ -124,35 +943,308 @@ public class PatientList extends List<Patient> {
     }
 
     /**
-     * @return Path to the CSV-File where the patients should be persisted.
+     * Sets the discharge date of the passed patient of this list and moves the discharge in the rollups to the new day.
+     *
+     * @param patient       Patient of this list, whose discharge date gets set.
+     * @param dischargeDate Date of discharge to be set.
      */
-    @Override
-    protected Path getFilePath() {
-        return Paths.get("./data/patients.csv");
+    void setDischargeDate(Patient patient, Date dischargeDate) {
+        int previousDay = patient.getDischargeDay();
+        patient.setDischargeDate(dischargeDate);
+        this.rollups.discharged(patient, previousDay);
     }
 
     /**
-     * Returns a string containing the line for a CSV-File for the patient object at the passed index.
+     * Removes all patients from this list, before the replica of a follower receives the patients from the primary
+     * again.
      *
-     * @param index The index where to get the item, that should be persisted.
-     * @return String in CSV-Format representing this patient object.
+     * @param expectedSize The amount of patients, that are received.
      */
-    @Override
-    protected String getCsvLine(int index) {
-        Patient patient = this.get(index);
-        String line = patient.getId() + ";";
-        line += patient.getFirstName() + ";";
-        line += patient.getLastName() + ";";
-        line += patient.getAge() + ";";
+    void reset(int expectedSize) {
+        this.clear();
+        this.ids = new BloomFilter(expectedSize, ID_FILTER_FALSE_POSITIVE_RATE);
+        this.idsStale = false;
+        this.version++;
+        this.views = null;
+        this.rollups.rebuild(this);
+    }
 
-        Date admissionDate = patient.getAdmissionDate();
-        line += (admissionDate == null ? "" : DateFormat.getDateInstance().format(admissionDate)) + ";";
+    /**
+     * Returns an iterator, that iterates over the patients of the first and afterwards of the second iterator.
+     *
+     * @param first  The iterator to iterate over first.
+     * @param second The iterator to iterate over afterwards.
+     * @return The concatenated iterator.
+     */
+    private static Iterator<Patient> concat(Iterator<Patient> first, Iterator<Patient> second) {
+        return new Iterator<Patient>() {
+            @Override
+            public boolean hasNext() {
+                return first.hasNext() || second.hasNext();
+            }
 
-        Date dischargeDate = patient.getDischargeDate();
-        line += (dischargeDate == null ? "" : DateFormat.getDateInstance().format(dischargeDate)) + ";";
+            @Override
+            public Patient next() {
+                return first.hasNext() ? first.next() : second.next();
+            }
+        };
+    }
 
-        line += patient.getIcd() == null ? "" : patient.getIcd();
+    /**
+     * Counts the ICD of the passed patient, if the patient was admitted in the passed period.
+     *
+     * @param counts   The counters per code of the StringDictionary.
+     * @param patient  The patient to count.
+     * @param firstDay The first day of the period.
+     * @param lastDay  The last day of the period.
+     */
+    private static void countIcd(int[] counts, Patient patient, int firstDay, int lastDay) {
+        int day = patient.getAdmissionDay();
+        int icd = patient.getIcdCode();
+        // Codes, that were added by another thread during the pass, aren't counted.
+        if (day >= firstDay && day <= lastDay && icd != StringDictionary.NULL && icd < counts.length) {
+            counts[icd]++;
+        }
+    }
 
-        return line;
+    /**
+     * Opens the archive containing the discharged patients, which is stored next to the passed CSV-File.
+     *
+     * @param filePath Path to the CSV-File containing the patients, that aren't discharged.
+     * @return The opened archive.
+     * @throws IOException If an error gets thrown while reading the archive.
+     */
+    private static PatientArchive openArchive(Path filePath) throws IOException {
+        String fileName = filePath.getFileName().toString().replaceFirst("\\.csv$", "") + "-archive.csv";
+        CacheMetrics metrics = Metrics.cache("PatientList", "archive");
+        CacheMetrics indexMetrics = Metrics.cache("PatientList", "archiveIndex");
+        return new PatientArchive(filePath.resolveSibling(fileName), ARCHIVE_CACHE_SIZE, ARCHIVE_PENDING_SIZE, metrics, INDEX_CACHE_SIZE, indexMetrics);
+    }
+
+    /**
+     * Opens the rollups of the patients, which are persisted next to the passed CSV-File.
+     *
+     * @param filePath Path to the CSV-File containing the patients.
+     * @return The opened rollups.
+     * @throws IOException If the file of the rollups can't be read.
+     */
+    private static RollupStore openRollups(Path filePath) throws IOException {
+        String fileName = filePath.getFileName().toString().replaceFirst("\\.csv$", "") + "-rollups.bin";
+        return new RollupStore(filePath.resolveSibling(fileName));
+    }
+
+    /**
+     * Opens the sequence allocating the ids of the patients, which is stored next to the passed CSV-File.
+     *
+     * @param filePath Path to the CSV-File containing the patients.
+     * @return The opened sequence.
+     * @throws IOException If an error gets thrown while reading the sequence.
+     */
+    private static IdSequence openSequence(Path filePath) throws IOException {
+        String fileName = filePath.getFileName().toString().replaceFirst("\\.csv$", "") + ".seq";
+        return new IdSequence(filePath.resolveSibling(fileName));
+    }
+
+    /**
+     * Opens the shards containing the patients, which are stored next to the passed CSV-File.
+     *
+     * @param filePath     Path to the CSV-File, which was used before the patients were stored sharded.
+     * @param loadProgress Object the progress of loading the shards gets reported to.
+     * @return The opened shards.
+     * @throws MalformedCsvLineException If some of the lines in the shard files contains errors.
+     * @throws IOException               If an error gets thrown while reading the shard files.
+     */
+    private static PatientShards openShards(Path filePath, LoadProgress loadProgress) throws MalformedCsvLineException, IOException {
+        int shardCount = "year".equals(SHARD_BY) ? 0 : Math.max(SHARDS, 1);
+        int processors = Runtime.getRuntime().availableProcessors();
+        int threads = shardCount == 0 ? processors : Math.min(shardCount, processors);
+        return new PatientShards(filePath, shardCount, Math.max(SHARD_RANGE, 1), threads, loadProgress);
+    }
+
+    /**
+     * Opens the store loading the patients of the passed CSV-File page by page.
+     *
+     * @param filePath     Path to the CSV-File containing the patients.
+     * @param loadProgress Object the progress of building the page directory gets reported to.
+     * @param ids          The filter the ids of the patients of the CSV-File get added to.
+     * @return The opened store.
+     * @throws IOException If an error gets thrown while reading the CSV-File.
+     */
+    private static PagedPatientStore openStore(Path filePath, LoadProgress loadProgress, BloomFilter ids) throws IOException {
+        CacheMetrics metrics = Metrics.cache("PatientList", "pages");
+        return new PagedPatientStore(filePath, PAGE_SIZE, PAGE_CACHE_SIZE, loadProgress, metrics, ids::add);
+    }
+
+    /**
+     * Selects the patients with the k highest keys from the passed range of positions.
+     *
+     * @param source Function returning the patient at a position.
+     * @param size   The amount of positions starting at 0.
+     * @param k      The maximum amount of selected patients.
+     * @param key    Function returning the key of a patient or PatientRanking.UNRANKED, if it isn't selected.
+     * @return The selected patients starting with the highest key.
+     */
+    private static Patient[] selectTop(IntFunction<Patient> source, int size, int k, ToIntFunction<Patient> key) {
+        int[] positions = TopKHeap.select(size, k, position -> key.applyAsInt(source.apply(position)));
+        Patient[] top = new Patient[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            top[i] = source.apply(positions[i]);
+        }
+
+        return top;
+    }
+
+    /**
+     * Moves the discharged patients, that are kept in memory, to the archive.
+     */
+    private void archiveDischargedPatients() {
+        Patient[] patients = new Patient[super.size()];
+        int count = 0;
+
+        for (int i = 0; i < this.length() && this.get(i) != null; i++) {
+            Patient patient = this.get(i);
+            if (!patient.isDischarged()) {
+                patients[count++] = patient;
+            } else {
+                this.archive.add(patient);
+            }
+        }
+
+        if (count < patients.length) {
+            this.clear();
+            for (int i = 0; i < count; i++) {
+                super.add(patients[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the sorted view of the patients in the passed order and creates it, if it doesn't exist. The views are
+     * only used, if the patients are only kept in memory.
+     *
+     * @param order The order of the view.
+     * @return The sorted view.
+     */
+    private SortedPatientView getView(PatientOrder order) {
+        if (this.views == null) {
+            this.views = new EnumMap<>(PatientOrder.class);
+        }
+
+        SortedPatientView view = this.views.get(order);
+        if (view == null) {
+            long start = sortMetrics.start();
+            view = new SortedPatientView(order, this::get, super.size());
+            this.views.put(order, view);
+            sortMetrics.stop(start);
+        }
+
+        return view;
+    }
+
+    /**
+     * @return Whether the sorted views hold the positions of the patients in this list and get updated, when patients
+     * are added or removed, because the patients are only kept in memory.
+     */
+    private boolean hasIncrementalViews() {
+        return this.store == null && this.archive == null && this.shards == null;
+    }
+
+    /**
+     * Searches for the patient with the passed id in the patients kept in memory, the store, the archive or the shards.
+     *
+     * @param id The id of the searched patient.
+     * @return The patient with the passed id or null, if it doesn't exist.
+     */
+    private Patient findById(int id) {
+        if (this.shards != null) {
+            return this.shards.find("id", id);
+        } else if (this.store == null && this.archive == null) {
+            return super.find("id", id);
+        }
+
+        Patient patient = this.store == null ? null : this.store.findById(id);
+        for (int i = 0; patient == null && i < this.length() && this.get(i) != null; i++) {
+            if (this.get(i).getId() == id) {
+                patient = this.get(i);
+            }
+        }
+
+        if (patient == null && this.archive != null) {
+            patient = this.archive.findById(id);
+        }
+
+        return patient;
+    }
+
+    /**
+     * Rebuilds the filter of the ids, if patients were removed since it was built, so their ids get dropped.
+     */
+    private void rebuildIdsIfStale() {
+        if (!this.idsStale) {
+            return;
+        }
+
+        BloomFilter ids = new BloomFilter(this.size(), ID_FILTER_FALSE_POSITIVE_RATE);
+        if (this.archive != null) {
+            this.archive.forEachId(ids::add);
+            super.iterator().forEachRemaining(patient -> ids.add(patient.getId()));
+        } else {
+            this.iterator().forEachRemaining(patient -> ids.add(patient.getId()));
+        }
+
+        this.ids = ids;
+        this.idsStale = false;
+    }
+
+    /**
+     * Counts all patients in the rollups again, if the rollups don't match the amount of patients, e.g. because the
+     * CSV-File was changed by another program or the rollups weren't persisted yet. The hourly rollups are kept.
+     */
+    private void rebuildRollupsIfStale() {
+        if (this.rollups.getPatients() != this.size()) {
+            this.rollups.rebuild(this);
+        }
+    }
+
+    /**
+     * Returns an iterator over all patients for a scan, which reads the pages of the store, that aren't cached, without
+     * putting them into the cache, so a scan doesn't evict the pages of the recent lookups.
+     *
+     * @return Iterator over the patients in this list.
+     */
+    private Iterator<Patient> scan() {
+        if (this.store != null) {
+            return concat(this.store.scan(), super.iterator());
+        }
+
+        return this.iterator();
+    }
+
+    /**
+     * Selects the patients with the k highest keys from a scan over all patients. The patients are scanned in chunks,
+     * whereby the patients selected so far are selected again together with the next chunk, so only these are held at
+     * once.
+     *
+     * @param k   The maximum amount of selected patients.
+     * @param key Function returning the key of a patient or PatientRanking.UNRANKED, if it isn't selected.
+     * @return The selected patients starting with the highest key.
+     */
+    private Patient[] selectTopScanned(int k, ToIntFunction<Patient> key) {
+        // A chunk holds at least k patients, so every patient gets selected only a few times.
+        Patient[] chunk = new Patient[Math.max(SCAN_CHUNK_SIZE, Math.min(k, this.size()))];
+        Patient[] top = new Patient[0];
+        Iterator<Patient> patients = this.scan();
+        while (patients.hasNext()) {
+            int length = 0;
+            while (length < chunk.length && patients.hasNext()) {
+                chunk[length++] = patients.next();
+            }
+
+            Patient[] best = top;
+            top = selectTop(position -> position < best.length ? best[position] : chunk[position - best.length],
+                    best.length + length, k, key);
+        }
+
+        return top;
     }
 }
@@ -0,0 +1,25 @@
+package de.thm.stumm.patientmanager.model;
+
+/**
+ * The orders, in which the patients of a PatientList can be listed.
+ *
+ * Patients with the same value are listed in the order, in which they were added.
+ *
+ * @author Dennis Stumm
+ */
+public enum PatientOrder {
+    /**
+     * Ordered alphabetically by the last name.
+     */
+    LAST_NAME,
+
+    /**
+     * Ordered by the date of admission, starting with the earliest admission.
+     */
+    ADMISSION_DATE,
+
+    /**
+     * Ordered by the age, starting with the youngest patient.
+     */
+    AGE
+}
@@ -0,0 +1,47 @@
+package de.thm.stumm.patientmanager.model;
+
+/**
+ * The rankings, by which the top patients of a PatientList can be selected.
+ *
+ * The rankings only consider the patients, that aren't discharged. Patients with the same value are ranked in the
+ * order, in which they were added.
+ *
+ * @author Dennis Stumm
+ */
+public enum PatientRanking {
+    /**
+     * Ranked by the days since the admission, starting with the longest stay.
+     */
+    LONGEST_STAY,
+
+    /**
+     * Ranked by the age, starting with the oldest patient.
+     */
+    OLDEST;
+
+    /**
+     * The key of patients, that aren't ranked.
+     */
+    static final int UNRANKED = Integer.MIN_VALUE;
+
+    /**
+     * Returns the primitive key of the passed patient, whereby patients with higher keys are ranked higher.
+     *
+     * @param patient The patient to rank.
+     * @param today   The current day as days since 1970-01-01.
+     * @return The key of the patient or UNRANKED, if the patient isn't ranked.
+     */
+    int getKey(Patient patient, int today) {
+        if (patient.isDischarged()) {
+            return UNRANKED;
+        }
+
+        switch (this) {
+            case LONGEST_STAY:
+                int admissionDay = patient.getAdmissionDay();
+                return admissionDay == DateCodec.NO_DATE ? UNRANKED : today - admissionDay;
+            default:
+                return patient.getAge();
+        }
+    }
+}
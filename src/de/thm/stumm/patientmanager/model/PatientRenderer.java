@@ -0,0 +1,176 @@
+package de.thm.stumm.patientmanager.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Renders patients as text straight into a caller-supplied Appendable or StringBuilder.
+ *
+ * Besides the detailed multi-line format of `Patient.toString` there is a compact tabular format with one line per
+ * patient for listing many patients. Rendering doesn't create temporary strings, because the names and ICDs are shared
+ * by the StringDictionary, the dates are cached by the DateCodec and the numbers are written digit by digit.
+ *
+ * @author Dennis Stumm
+ */
+public final class PatientRenderer {
+    /**
+     * The line surrounding the detailed format of a patient.
+     */
+    private static final String BORDER = "**************************************************";
+
+    /**
+     * The widths of the columns of the tabular format.
+     */
+    private static final int[] COLUMN_WIDTHS = {8, 16, 16, 6, 12, 12};
+
+    /**
+     * The titles of the columns of the tabular format.
+     */
+    private static final String[] COLUMN_TITLES = {"ID", "Vorname", "Name", "Alter", "Aufnahme", "Entlassung", "ICD"};
+
+    /**
+     * This class only provides static methods.
+     */
+    private PatientRenderer() {
+    }
+
+    /**
+     * Appends the passed patient in the detailed multi-line format without a trailing line break.
+     *
+     * @param patient The patient to render.
+     * @param builder The builder to append the patient to.
+     * @return The passed builder.
+     */
+    public static StringBuilder appendDetails(Patient patient, StringBuilder builder) {
+        try {
+            appendDetails(patient, (Appendable) builder);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+
+        return builder;
+    }
+
+    /**
+     * Appends the passed patient in the detailed multi-line format without a trailing line break.
+     *
+     * @param patient The patient to render.
+     * @param target  The target to append the patient to.
+     * @throws IOException If the target can't be appended to.
+     */
+    public static void appendDetails(Patient patient, Appendable target) throws IOException {
+        target.append(BORDER).append('\n');
+        target.append("ID: ");
+        appendInt(patient.getId(), target);
+        target.append('\n');
+        target.append("Vorname: ").append(patient.getFirstName()).append('\n');
+        target.append("Name: ").append(patient.getLastName()).append('\n');
+        target.append("Alter: ");
+        appendInt(patient.getAge(), target);
+        target.append('\n');
+        target.append("Aufnahmedatum: ").append(formatDay(patient.getAdmissionDay(), "-")).append('\n');
+        target.append("Entlassungsdatum: ").append(formatDay(patient.getDischargeDay(), "-")).append('\n');
+        target.append("ICD: ").append(patient.getIcd()).append('\n');
+        target.append(BORDER);
+    }
+
+    /**
+     * Appends the line with the titles of the columns of the tabular format including the line break.
+     *
+     * @param builder The builder to append the header to.
+     * @return The passed builder.
+     */
+    public static StringBuilder appendHeader(StringBuilder builder) {
+        for (int i = 0; i < COLUMN_WIDTHS.length; i++) {
+            appendPadded(COLUMN_TITLES[i], COLUMN_WIDTHS[i], builder);
+        }
+
+        return builder.append(COLUMN_TITLES[COLUMN_TITLES.length - 1]).append('\n');
+    }
+
+    /**
+     * Appends the passed patient as a line of the tabular format including the line break.
+     *
+     * @param patient The patient to render.
+     * @param builder The builder to append the patient to.
+     * @return The passed builder.
+     */
+    public static StringBuilder appendRow(Patient patient, StringBuilder builder) {
+        int start = builder.length();
+        builder.append(patient.getId());
+        pad(builder, start + COLUMN_WIDTHS[0]);
+        appendPadded(patient.getFirstName(), COLUMN_WIDTHS[1], builder);
+        appendPadded(patient.getLastName(), COLUMN_WIDTHS[2], builder);
+
+        start = builder.length();
+        builder.append(patient.getAge());
+        pad(builder, start + COLUMN_WIDTHS[3]);
+        appendPadded(formatDay(patient.getAdmissionDay(), "-"), COLUMN_WIDTHS[4], builder);
+        appendPadded(formatDay(patient.getDischargeDay(), "-"), COLUMN_WIDTHS[5], builder);
+
+        String icd = patient.getIcd();
+        return builder.append(icd == null || icd.isEmpty() ? "-" : icd).append('\n');
+    }
+
+    /**
+     * Appends the passed number digit by digit, so no string gets created.
+     *
+     * @param value  The number to append.
+     * @param target The target to append the number to.
+     * @throws IOException If the target can't be appended to.
+     */
+    private static void appendInt(int value, Appendable target) throws IOException {
+        if (value < 0) {
+            if (value == Integer.MIN_VALUE) {
+                target.append("-2147483648");
+                return;
+            }
+            target.append('-');
+            value = -value;
+        }
+
+        int divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            target.append((char) ('0' + value / divisor % 10));
+        }
+    }
+
+    /**
+     * Appends the passed value and fills the column with spaces. Values, that are longer than the column, get cut, so
+     * the columns stay aligned.
+     *
+     * @param value   The value to append.
+     * @param width   The width of the column including at least one separating space.
+     * @param builder The builder to append the value to.
+     */
+    private static void appendPadded(String value, int width, StringBuilder builder) {
+        int start = builder.length();
+        String text = value == null || value.isEmpty() ? "-" : value;
+        builder.append(text, 0, Math.min(text.length(), width - 1));
+        pad(builder, start + width);
+    }
+
+    /**
+     * @param epochDay The epoch day to format.
+     * @param missing  The text representing a date, that is not set.
+     * @return The formatted date or the passed text, if the date is not set.
+     */
+    private static String formatDay(int epochDay, String missing) {
+        return epochDay == DateCodec.NO_DATE ? missing : DateCodec.format(epochDay);
+    }
+
+    /**
+     * Appends spaces to the passed builder until it has the passed length, but at least one space.
+     *
+     * @param builder The builder to append the spaces to.
+     * @param length  The length the builder should have.
+     */
+    private static void pad(StringBuilder builder, int length) {
+        do {
+            builder.append(' ');
+        } while (builder.length() < length);
+    }
+}
@@ -0,0 +1,58 @@
+package de.thm.stumm.patientmanager.model;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Predicate;
+
+/**
+ * List containing the patients of one shard file, if the patients are stored sharded.
+ *
+ * @author Dennis Stumm
+ */
+class PatientShard extends List<Patient> {
+    /**
+     * Initializes the shard and loads the patients of the passed CSV-File.
+     *
+     * @param filePath Path to the CSV-File of the shard.
+     * @throws MalformedCsvLineException If some of the lines in the CSV-File contains errors.
+     * @throws IOException               If an error gets thrown while reading the CSV-File.
+     */
+    PatientShard(Path filePath) throws MalformedCsvLineException, IOException {
+        super(filePath);
+    }
+
+    /**
+     * Adds a new patient object with the information parsed from the passed String in CSV-Format to this shard.
+     *
+     * @param csvLine The CSV-Formatted string to get the values for the new object from.
+     * @throws MalformedCsvLineException If the passed csvLine contains errors.
+     */
+    @Override
+    protected void add(String csvLine) throws MalformedCsvLineException {
+        this.add(PatientList.parse(csvLine));
+    }
+
+    /**
+     * Returns a string containing the line for a CSV-File for the passed patient object.
+     *
+     * @param patient The patient, that should be persisted.
+     * @return String in CSV-Format representing the patient object.
+     */
+    @Override
+    protected String getCsvLine(Patient patient) {
+        return PatientList.format(patient);
+    }
+
+    /**
+     * Returns a predicate, that checks whether the passed property of a patient has the passed value.
+     *
+     * @param property Name of property on the patient to check the value on.
+     * @param value    Value of the property to check.
+     * @return Predicate, that checks the property of a patient.
+     */
+    @Override
+    protected Predicate<Patient> getMatcher(String property, Object value) {
+        Predicate<Patient> matcher = PatientList.createMatcher(property, value);
+        return matcher == null ? super.getMatcher(property, value) : matcher;
+    }
+}
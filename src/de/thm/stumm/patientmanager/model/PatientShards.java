@@ -0,0 +1,451 @@
+package de.thm.stumm.patientmanager.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Partitions the patients into shard files, which are loaded, persisted and queried in parallel.
+ *
+ * The patients get assigned to the shards either by ranges of their ids, which are distributed round robin over a
+ * fixed amount of shards, or by the year of their admission, whereby every year gets its own shard. The shard files
+ * are stored next to the CSV-File of the PatientList and named like `patients-shard-2023.csv`.
+ *
+ * @author Dennis Stumm
+ */
+class PatientShards implements Closeable {
+    /**
+     * The key of the shard containing the patients without admission date, if the patients are sharded by year.
+     */
+    private static final int UNKNOWN_YEAR = 0;
+
+    /**
+     * The shards by their keys.
+     */
+    private final Map<Integer, PatientShard> shards = new ConcurrentSkipListMap<>();
+
+    /**
+     * The directory containing the shard files.
+     */
+    private final Path directory;
+
+    /**
+     * The name of the shard files without the key and the extension.
+     */
+    private final String prefix;
+
+    /**
+     * The amount of shards, if the patients are sharded by id, or zero, if they are sharded by year.
+     */
+    private final int shardCount;
+
+    /**
+     * The amount of consecutive ids, that get assigned to the same shard, if the patients are sharded by id.
+     */
+    private final int rangeSize;
+
+    /**
+     * Executor running the operations on the shards in parallel.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Opens the shards stored next to the passed CSV-File and loads them in parallel.
+     *
+     * @param filePath   Path to the CSV-File of the PatientList.
+     * @param shardCount The amount of shards, if the patients should be sharded by id, or zero, if they should be
+     *                   sharded by year.
+     * @param rangeSize  The amount of consecutive ids, that get assigned to the same shard.
+     * @param threads    The amount of threads used to work on the shards in parallel.
+     * @param progress   Object the progress of loading the shard files gets reported to.
+     * @throws MalformedCsvLineException If some of the lines in the shard files contains errors.
+     * @throws IOException               If an error gets thrown while reading the shard files.
+     */
+    PatientShards(Path filePath, int shardCount, int rangeSize, int threads, LoadProgress progress)
+            throws MalformedCsvLineException, IOException {
+        this.directory = filePath.toAbsolutePath().getParent();
+        this.prefix = filePath.getFileName().toString().replaceFirst("\\.csv$", "") + "-shard-";
+        this.shardCount = shardCount;
+        this.rangeSize = rangeSize;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "patient-shard-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        java.util.List<Integer> keys = new ArrayList<>();
+        for (int key = 0; key < shardCount; key++) {
+            keys.add(key);
+        }
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*.csv")) {
+                for (Path file : files) {
+                    String key = file.getFileName().toString().substring(prefix.length()).replaceFirst("\\.csv$", "");
+                    if (key.matches("\\d+") && !keys.contains(Integer.parseInt(key))) {
+                        keys.add(Integer.parseInt(key));
+                    }
+                }
+            }
+        }
+
+        long totalBytes = 0;
+        java.util.List<Future<PatientShard>> futures = new ArrayList<>();
+        for (Integer key : keys) {
+            totalBytes += Files.exists(getShardPath(key)) ? Files.size(getShardPath(key)) : 0;
+            futures.add(executor.submit(() -> new PatientShard(getShardPath(key))));
+        }
+
+        progress.start(totalBytes);
+        int rows = 0;
+        long readBytes = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            PatientShard shard = await(futures.get(i));
+            shards.put(keys.get(i), shard);
+            rows += shard.size();
+            Path file = getShardPath(keys.get(i));
+            readBytes += Files.exists(file) ? Files.size(file) : 0;
+            progress.update(rows, readBytes);
+        }
+
+        redistribute();
+    }
+
+    /**
+     * Stops the threads working on the shards.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Adds the passed patient to its shard.
+     *
+     * @param patient The patient to add.
+     */
+    void add(Patient patient) {
+        getShard(patient).add(patient);
+    }
+
+    /**
+     * @return The size of the arrays backing all shards.
+     */
+    int capacity() {
+        int capacity = 0;
+        for (PatientShard shard : shards.values()) {
+            capacity += shard.capacity();
+        }
+
+        return capacity;
+    }
+
+    /**
+     * Searches the shards in parallel for the first patient, where the passed property has the passed value. If the
+     * patients are sharded by id, a search for an id only searches the shard of the id.
+     *
+     * @param property Name of property on the patient to check the value on.
+     * @param value    Value of the property to search the patient with.
+     * @return The first occurrence in the order of the shards, where the passed property has the passed value.
+     */
+    Patient find(String property, Object value) {
+        if (shardCount > 0 && "id".equals(property) && value instanceof Integer) {
+            PatientShard shard = shards.get(getKey((Integer) value));
+            Patient patient = shard.find(property, value);
+            return patient == null ? findInAll(property, value) : patient;
+        }
+
+        return findInAll(property, value);
+    }
+
+    /**
+     * Searches the shards in parallel for all patients, where the passed property has the passed value.
+     *
+     * @param property Name of property on the patient to check the value on.
+     * @param value    Value of the property to search the patients with.
+     * @return Array containing all found patients in the order of the shards.
+     */
+    Object[] findAll(String property, Object value) {
+        java.util.List<Future<Object[]>> futures = new ArrayList<>();
+        for (PatientShard shard : shards.values()) {
+            futures.add(executor.submit(() -> shard.findAll(property, value)));
+        }
+
+        Object[] result = new Object[0];
+        for (Future<Object[]> future : futures) {
+            Object[] found = awaitUnchecked(future);
+            if (found.length > 0) {
+                int length = result.length;
+                result = Arrays.copyOf(result, length + found.length);
+                System.arraycopy(found, 0, result, length, found.length);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return The highest id of a patient in the shards.
+     */
+    int getMaxId() {
+        int maxId = 0;
+        for (PatientShard shard : shards.values()) {
+            for (Patient patient : shard) {
+                maxId = Math.max(maxId, patient.getId());
+            }
+        }
+
+        return maxId;
+    }
+
+    /**
+     * @return Iterator over the patients of all shards in the order of the shards.
+     */
+    Iterator<Patient> iterator() {
+        Iterator<PatientShard> shardIterator = shards.values().iterator();
+
+        return new Iterator<Patient>() {
+            private Iterator<Patient> current = java.util.Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && shardIterator.hasNext()) {
+                    current = shardIterator.next().iterator();
+                }
+
+                return current.hasNext();
+            }
+
+            @Override
+            public Patient next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                return current.next();
+            }
+        };
+    }
+
+    /**
+     * Persists the shards in parallel. Empty shards, which aren't needed for the configured amount of shards anymore,
+     * get deleted.
+     *
+     * @throws IOException If an error gets thrown while writing a shard file.
+     */
+    void persist() throws IOException {
+        for (Map.Entry<Integer, PatientShard> entry : shards.entrySet()) {
+            if (entry.getValue().size() == 0 && (shardCount == 0 || entry.getKey() >= shardCount)) {
+                shards.remove(entry.getKey());
+                Files.deleteIfExists(getShardPath(entry.getKey()));
+            }
+        }
+
+        java.util.List<Future<PatientShard>> futures = new ArrayList<>();
+        for (PatientShard shard : shards.values()) {
+            futures.add(executor.submit(() -> {
+                shard.persist();
+                return shard;
+            }));
+        }
+
+        IOException failure = null;
+        for (Future<PatientShard> future : futures) {
+            try {
+                await(future);
+            } catch (IOException | MalformedCsvLineException exception) {
+                if (failure == null) {
+                    failure = exception instanceof IOException ? (IOException) exception : new IOException(exception);
+                } else {
+                    failure.addSuppressed(exception);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Removes the passed patient from its shard. If the patient isn't found there, because the shards were configured
+     * differently, when the patient was added, all shards are searched.
+     *
+     * @param patient The patient to remove.
+     * @return Boolean value, that indicates whether the patient was removed.
+     */
+    boolean remove(Patient patient) {
+        PatientShard shard = getShard(patient);
+        int size = shard.size();
+        shard.remove(patient);
+        if (shard.size() < size) {
+            return true;
+        }
+
+        for (PatientShard otherShard : shards.values()) {
+            size = otherShard.size();
+            otherShard.remove(patient);
+            if (otherShard.size() < size) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return The amount of patients in all shards.
+     */
+    int size() {
+        int size = 0;
+        for (PatientShard shard : shards.values()) {
+            size += shard.size();
+        }
+
+        return size;
+    }
+
+    /**
+     * Waits for the passed operation on a shard and unwraps its exceptions.
+     *
+     * @param future The operation to wait for.
+     * @param <T>    The type of the result of the operation.
+     * @return The result of the operation.
+     * @throws MalformedCsvLineException If the operation failed because of an invalid CSV-File.
+     * @throws IOException               If the operation failed while reading or writing.
+     */
+    private static <T> T await(Future<T> future) throws MalformedCsvLineException, IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Die Bearbeitung der Shards wurde unterbrochen!", exception);
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof MalformedCsvLineException) {
+                throw (MalformedCsvLineException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Waits for the passed operation on a shard, which doesn't throw checked exceptions.
+     *
+     * @param future The operation to wait for.
+     * @param <T>    The type of the result of the operation.
+     * @return The result of the operation.
+     */
+    private static <T> T awaitUnchecked(Future<T> future) {
+        try {
+            return await(future);
+        } catch (MalformedCsvLineException | IOException exception) {
+            throw new IllegalStateException(exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Searches all shards in parallel for the first patient, where the passed property has the passed value.
+     *
+     * @param property Name of property on the patient to check the value on.
+     * @param value    Value of the property to search the patient with.
+     * @return The first occurrence in the order of the shards, where the passed property has the passed value.
+     */
+    private Patient findInAll(String property, Object value) {
+        java.util.List<Future<Patient>> futures = new ArrayList<>();
+        for (PatientShard shard : shards.values()) {
+            futures.add(executor.submit(() -> shard.find(property, value)));
+        }
+
+        Patient found = null;
+        for (Future<Patient> future : futures) {
+            Patient patient = awaitUnchecked(future);
+            if (found == null) {
+                found = patient;
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * @param id The id of a patient.
+     * @return The key of the shard of the passed id, if the patients are sharded by id.
+     */
+    private int getKey(int id) {
+        return Math.floorMod(Math.max(id - 1, 0) / rangeSize, shardCount);
+    }
+
+    /**
+     * Returns the shard of the passed patient and creates the shard, if it doesn't exist yet.
+     *
+     * @param patient The patient to get the shard for.
+     * @return The shard of the patient.
+     */
+    private PatientShard getShard(Patient patient) {
+        if (shardCount > 0) {
+            return shards.get(getKey(patient.getId()));
+        }
+
+        int day = patient.getAdmissionDay();
+        int year = day == DateCodec.NO_DATE ? UNKNOWN_YEAR : LocalDate.ofEpochDay(day).getYear();
+        return shards.computeIfAbsent(year, key -> {
+            try {
+                // The shard files of all years were loaded on opening, so the new shard starts empty.
+                return new PatientShard(getShardPath(key));
+            } catch (MalformedCsvLineException exception) {
+                throw new IllegalStateException(exception.getMessage(), exception);
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        });
+    }
+
+    /**
+     * @param key The key of the shard.
+     * @return The path to the file of the shard with the passed key.
+     */
+    private Path getShardPath(int key) {
+        return directory.resolve(prefix + key + ".csv");
+    }
+
+    /**
+     * Moves the patients, that are stored in another shard than their own, e.g. because the amount of shards or the
+     * property the patients get assigned by was changed, to their own shards.
+     */
+    private void redistribute() {
+        for (PatientShard shard : new ArrayList<>(shards.values())) {
+            java.util.List<Patient> kept = new ArrayList<>();
+            java.util.List<Patient> moved = new ArrayList<>();
+            for (Patient patient : shard) {
+                (getShard(patient) == shard ? kept : moved).add(patient);
+            }
+
+            if (!moved.isEmpty()) {
+                shard.clear();
+                kept.forEach(shard::add);
+                moved.forEach(this::add);
+            }
+        }
+    }
+}
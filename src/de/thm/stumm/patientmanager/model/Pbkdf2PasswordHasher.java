@@ -0,0 +1,184 @@
+package de.thm.stumm.patientmanager.model;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Hasher creating salted PBKDF2 (HMAC-SHA256) hashes with an adjustable amount of iterations.
+ *
+ * The hashes are stored in the format `pbkdf2$iterations$salt$hash`, whereby salt and hash are Base64 encoded. Because
+ * the iterations are part of the stored hash, the cost can be raised for new passwords without breaking existing ones.
+ *
+ * @author Dennis Stumm
+ */
+public class Pbkdf2PasswordHasher implements PasswordHasher {
+    /**
+     * Prefix of all hashes created by this hasher.
+     */
+    static final String PREFIX = "pbkdf2$";
+
+    /**
+     * The minimum amount of iterations, that gets used for new hashes.
+     */
+    private static final int MIN_ITERATIONS = 10000;
+
+    /**
+     * Hasher used for verifying stored hashes, which take the iterations from the stored hash.
+     */
+    static final Pbkdf2PasswordHasher VERIFIER = new Pbkdf2PasswordHasher(MIN_ITERATIONS);
+
+    /**
+     * The default time in milliseconds, that hashing a new password may take.
+     */
+    private static final long DEFAULT_BUDGET_MILLIS = 100;
+
+    /**
+     * Length of the salt in bytes.
+     */
+    private static final int SALT_LENGTH = 16;
+
+    /**
+     * Length of the hash in bits.
+     */
+    private static final int HASH_LENGTH = 256;
+
+    /**
+     * Source for the salts.
+     */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * The calibrated hasher returned by `getCalibrated`, null until the first call.
+     */
+    private static Pbkdf2PasswordHasher calibrated;
+
+    /**
+     * The amount of iterations for new hashes.
+     */
+    private int iterations;
+
+    /**
+     * Initializes the hasher with the passed amount of iterations for new hashes.
+     *
+     * @param iterations The amount of iterations for new hashes.
+     */
+    public Pbkdf2PasswordHasher(int iterations) {
+        this.iterations = Math.max(iterations, MIN_ITERATIONS);
+    }
+
+    /**
+     * Returns the hasher whose iterations are calibrated to the time budget set in the system property
+     * `patientmanager.passwordHashBudget` and calibrates it on the first call.
+     *
+     * @return The calibrated hasher.
+     */
+    static synchronized Pbkdf2PasswordHasher getCalibrated() {
+        if (calibrated == null) {
+            long budget = Long.getLong(HASH_BUDGET_PROPERTY, DEFAULT_BUDGET_MILLIS);
+            calibrated = new Pbkdf2PasswordHasher(calibrate(budget));
+        }
+
+        return calibrated;
+    }
+
+    /**
+     * Determines the amount of iterations, for which hashing a password takes about the passed time on this machine.
+     *
+     * The hashing gets measured with a increasing amount of iterations until a measurement takes a noticeable time,
+     * afterwards the iterations get scaled linearly to the budget.
+     *
+     * @param budgetMillis The time in milliseconds, that hashing a password may take.
+     * @return The amount of iterations, that fits the budget, but at least the minimum amount of iterations.
+     */
+    public static int calibrate(long budgetMillis) {
+        int probeIterations = MIN_ITERATIONS;
+        long elapsed;
+
+        // The first rounds warm up the JIT compiler, so that only the later measurements are representative.
+        do {
+            long start = System.nanoTime();
+            derive("calibration".toCharArray(), new byte[SALT_LENGTH], probeIterations);
+            elapsed = System.nanoTime() - start;
+            if (elapsed < 20000000L) {
+                probeIterations *= 2;
+            }
+        } while (elapsed < 20000000L && probeIterations < Integer.MAX_VALUE / 2);
+
+        long iterations = probeIterations * (budgetMillis * 1000000L) / elapsed;
+        return (int) Math.max(MIN_ITERATIONS, Math.min(iterations, Integer.MAX_VALUE));
+    }
+
+    /**
+     * @return The amount of iterations for new hashes.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Hashes the passed password with a new random salt.
+     *
+     * @param password The password in plain text.
+     * @return The hash of the password in the format `pbkdf2$iterations$salt$hash`.
+     */
+    @Override
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_LENGTH];
+        RANDOM.nextBytes(salt);
+        byte[] hash = derive(password.toCharArray(), salt, iterations);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+
+        return PREFIX + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+
+    /**
+     * Checks whether the passed password matches the passed hash, using the salt and iterations of the stored hash.
+     *
+     * @param password   The password in plain text.
+     * @param storedHash The hash in the format `pbkdf2$iterations$salt$hash`, that is stored for the user.
+     * @return true if the password matches the hash, false otherwise or if the stored hash is malformed.
+     */
+    @Override
+    public boolean verify(String password, String storedHash) {
+        String[] parts = storedHash.split("\\$");
+
+        if (parts.length != 4 || !storedHash.startsWith(PREFIX)) {
+            return false;
+        }
+
+        try {
+            int storedIterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+
+            return storedIterations > 0
+                    && MessageDigest.isEqual(expected, derive(password.toCharArray(), salt, storedIterations));
+        } catch (IllegalArgumentException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Derives the hash for the passed password and salt with PBKDF2.
+     *
+     * @param password   The password in plain text.
+     * @param salt       The salt for the hash.
+     * @param iterations The amount of iterations.
+     * @return The derived hash.
+     */
+    private static byte[] derive(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, HASH_LENGTH);
+
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException(exception);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package de.thm.stumm.patientmanager.model;
+
+import de.thm.stumm.patientmanager.metrics.Metrics;
+import de.thm.stumm.patientmanager.metrics.ReplicationMetricsMXBean;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.Date;
+
+/**
+ * Client of a follower, which receives the patients and the users from the ReplicationServer of the primary and
+ * applies their changes to the replicas, so the follower answers read-only queries without loading the primary.
+ *
+ * The changes get applied, while the replica of the changed list is locked, so readers of the replicas have to lock
+ * them as well. Applying a change twice doesn't change the result, so the changes published during the snapshot can be
+ * applied again. If the connection to the primary gets lost, the client connects again and receives a new snapshot.
+ * The replicas are only replaced, when the whole snapshot was received, so they keep answering from the last complete
+ * snapshot, while the primary isn't reachable.
+ *
+ * @author Dennis Stumm
+ */
+class ReplicationClient {
+    /**
+     * The time between two attempts to connect to the primary again in milliseconds.
+     */
+    private static final long RECONNECT_MILLIS = 1000;
+
+    /**
+     * The amount of missed heartbeats, after which the connection to the primary is considered to be lost.
+     */
+    private static final int MISSED_HEARTBEATS = 5;
+
+    /**
+     * The size of the buffer for reading the stream from the primary in characters.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The replica of the patients.
+     */
+    private final PatientList patients;
+
+    /**
+     * The replica of the users.
+     */
+    private final UserList users;
+
+    /**
+     * Object the progress of receiving a snapshot gets reported to.
+     */
+    private final LoadProgress loadProgress;
+
+    /**
+     * The sequence of the last change, that was applied.
+     */
+    private volatile long appliedSequence = -1;
+
+    /**
+     * The sequence of the last change, that was published by the primary as far as known.
+     */
+    private volatile long primarySequence = -1;
+
+    /**
+     * The time between publishing and applying the last applied change in milliseconds.
+     */
+    private volatile long lagMillis;
+
+    /**
+     * The time of the last line received from the primary in milliseconds since 1970-01-01.
+     */
+    private volatile long lastContact;
+
+    /**
+     * The amount of received snapshots.
+     */
+    private volatile long snapshots;
+
+    /**
+     * Whether the client is connected to the primary.
+     */
+    private volatile boolean connected;
+
+    /**
+     * Creates the client for the passed replicas and registers its metrics.
+     *
+     * @param patients     The replica of the patients, which is empty.
+     * @param users        The replica of the users, which is empty.
+     * @param loadProgress Object the progress of receiving a snapshot gets reported to.
+     */
+    ReplicationClient(PatientList patients, UserList users, LoadProgress loadProgress) {
+        this.patients = patients;
+        this.users = users;
+        this.loadProgress = loadProgress;
+
+        Metrics.register(Metrics.DOMAIN + ":type=Replication,name=follower", new ReplicationMetricsMXBean() {
+            @Override
+            public long getAppliedSequence() {
+                return appliedSequence;
+            }
+
+            @Override
+            public long getPrimarySequence() {
+                return primarySequence;
+            }
+
+            @Override
+            public long getSequenceLag() {
+                return Math.max(primarySequence - appliedSequence, 0);
+            }
+
+            @Override
+            public long getLagMillis() {
+                return connected ? lagMillis : System.currentTimeMillis() - lastContact;
+            }
+
+            @Override
+            public long getSnapshots() {
+                return snapshots;
+            }
+
+            @Override
+            public boolean isConnected() {
+                return connected;
+            }
+        });
+    }
+
+    /**
+     * Connects to the primary, receives the snapshot and starts applying the changes on a daemon thread afterwards.
+     *
+     * @throws IOException If the primary isn't reachable or the snapshot can't be received.
+     */
+    void start() throws IOException {
+        BufferedReader reader;
+        try {
+            reader = connect();
+        } catch (IOException exception) {
+            throw new IOException("Der Primärserver auf Port " + ReplicationServer.PORT + " ist nicht erreichbar (" + exception.getLocalizedMessage() + ")!", exception);
+        }
+
+        Thread thread = new Thread(() -> run(reader), "replication-client");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Applies the passed change received from the primary to the replicas.
+     *
+     * @param line The change in the format of the ChangeLogSink.
+     * @throws IOException If the change contains errors.
+     */
+    private void apply(String line) throws IOException {
+        String[] values = line.split(";", 5);
+        if (values.length < 4) {
+            throw new IOException("Die Änderung (" + line + ") enthält zu wenig spalten!");
+        }
+        String value = values.length == 5 ? values[4] : "";
+
+        try {
+            long sequence = Long.parseLong(values[0]);
+            long timestamp = Long.parseLong(values[1]);
+
+            switch (ChangeEvent.Type.valueOf(values[2])) {
+                case ADDED:
+                    Patient patient = PatientList.parse(value);
+                    synchronized (patients) {
+                        removePatient(patient.getId());
+                        patients.add(patient);
+                    }
+                    break;
+                case REMOVED:
+                    synchronized (patients) {
+                        removePatient(Integer.parseInt(values[3]));
+                    }
+                    break;
+                case ICD_CHANGED:
+                    synchronized (patients) {
+                        Patient changed = patients.find("id", Integer.parseInt(values[3]));
+                        if (changed != null) {
+                            patients.changeIcd(changed, value);
+                        }
+                    }
+                    break;
+                case DISCHARGED:
+                    Date dischargeDate = DateCodec.toDate(DateCodec.parse(value));
+                    synchronized (patients) {
+                        Patient discharged = patients.find("id", Integer.parseInt(values[3]));
+                        if (discharged != null) {
+                            patients.setDischargeDate(discharged, dischargeDate);
+                        }
+                    }
+                    break;
+                case USER_ADDED:
+                    User user = UserList.parse(value);
+                    synchronized (users) {
+                        removeUser(user.getUsername());
+                        users.add(user);
+                    }
+                    break;
+                case USER_REMOVED:
+                    synchronized (users) {
+                        removeUser(values[3]);
+                    }
+                    break;
+                default:
+                    break;
+            }
+
+            appliedSequence = sequence;
+            primarySequence = Math.max(primarySequence, sequence);
+            lagMillis = Math.max(System.currentTimeMillis() - timestamp, 0);
+        } catch (MalformedCsvLineException | ParseException | IllegalArgumentException exception) {
+            throw new IOException("Die Änderung (" + line + ") enthält Fehler (" + exception.getLocalizedMessage() + ")!", exception);
+        }
+    }
+
+    /**
+     * Connects to the primary and receives the snapshot into the replicas.
+     *
+     * @return The reader of the stream of the changes, which follow the snapshot.
+     * @throws IOException If the primary isn't reachable or the snapshot can't be received.
+     */
+    private BufferedReader connect() throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), ReplicationServer.PORT);
+        try {
+            socket.setSoTimeout((int) (ReplicationServer.HEARTBEAT_MILLIS * MISSED_HEARTBEATS));
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), BUFFER_SIZE);
+            receiveSnapshot(reader);
+            connected = true;
+
+            return reader;
+        } catch (IOException exception) {
+            socket.close();
+            throw exception;
+        } catch (RuntimeException exception) {
+            socket.close();
+            throw new IOException("Der Snapshot des Primärservers enthält Fehler (" + exception.getLocalizedMessage() + ")!", exception);
+        }
+    }
+
+    /**
+     * Reads the next line from the primary.
+     *
+     * @param reader The reader of the stream.
+     * @return The read line.
+     * @throws IOException If the line can't be read or the primary closed the connection.
+     */
+    private String readLine(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            throw new EOFException("Der Primärserver hat die Verbindung beendet!");
+        }
+        lastContact = System.currentTimeMillis();
+
+        return line;
+    }
+
+    /**
+     * Reads the next line from the primary, which must start with the passed prefix.
+     *
+     * @param reader The reader of the stream.
+     * @param prefix The expected prefix of the line.
+     * @return The line without the prefix.
+     * @throws IOException If the line can't be read or doesn't start with the prefix.
+     */
+    private String readRecord(BufferedReader reader, String prefix) throws IOException {
+        String line = readLine(reader);
+        if (!line.startsWith(prefix)) {
+            throw new IOException("Der Snapshot des Primärservers ist unvollständig (" + line + ")!");
+        }
+
+        return line.substring(prefix.length());
+    }
+
+    /**
+     * Receives the snapshot of all patients and users, which replaces the content of the replicas. The snapshot is
+     * received completely, before the replicas are locked and replaced, so a snapshot, that gets interrupted, leaves
+     * the replicas unchanged.
+     *
+     * @param reader The reader of the stream.
+     * @throws IOException If the snapshot can't be received or contains errors.
+     */
+    private void receiveSnapshot(BufferedReader reader) throws IOException {
+        String[] header = readLine(reader).split(";");
+        if (header.length != 3 || !header[0].equals("SNAPSHOT")) {
+            throw new IOException("Der Primärserver hat keinen Snapshot gesendet!");
+        }
+        int patientCount = Integer.parseInt(header[1]);
+        int userCount = Integer.parseInt(header[2]);
+        Patient[] snapshotPatients = new Patient[patientCount];
+        User[] snapshotUsers = new User[userCount];
+
+        loadProgress.start(patientCount);
+        try {
+            for (int i = 0; i < patientCount; i++) {
+                snapshotPatients[i] = PatientList.parse(readRecord(reader, "P;"));
+                if ((i & 4095) == 0) {
+                    loadProgress.update(i, i);
+                }
+            }
+            for (int i = 0; i < userCount; i++) {
+                snapshotUsers[i] = UserList.parse(readRecord(reader, "U;"));
+            }
+        } catch (MalformedCsvLineException exception) {
+            throw new IOException("Der Snapshot des Primärservers enthält Fehler (" + exception.getMessage() + ")!", exception);
+        }
+        String[] end = readRecord(reader, "END;").split(";");
+        long sequence = Long.parseLong(end[0]);
+
+        synchronized (patients) {
+            synchronized (users) {
+                patients.reset(patientCount);
+                users.reset();
+                for (Patient patient : snapshotPatients) {
+                    patients.add(patient);
+                }
+                for (User user : snapshotUsers) {
+                    users.add(user);
+                }
+            }
+        }
+        loadProgress.update(patientCount, patientCount);
+
+        appliedSequence = sequence;
+        primarySequence = appliedSequence;
+        lagMillis = 0;
+        snapshots++;
+    }
+
+    /**
+     * Removes the patient with the passed id from the replica, if it exists.
+     *
+     * @param id The id of the patient to remove.
+     */
+    private void removePatient(int id) {
+        Patient patient = patients.find("id", id);
+        if (patient != null) {
+            patients.remove(patient);
+        }
+    }
+
+    /**
+     * Removes the user with the passed username from the replica, if it exists.
+     *
+     * @param username The name of the user to remove.
+     */
+    private void removeUser(String username) {
+        User user = users.findByUsername(username);
+        if (user != null) {
+            users.remove(user);
+        }
+    }
+
+    /**
+     * Applies the changes streamed by the primary and connects again, whenever the connection gets lost.
+     *
+     * @param reader The reader of the stream following the first snapshot.
+     */
+    private void run(BufferedReader reader) {
+        while (true) {
+            try {
+                stream(reader);
+            } catch (IOException | RuntimeException exception) {
+                connected = false;
+                System.err.println("Die Verbindung zum Primärserver wurde unterbrochen (" + exception.getLocalizedMessage() + ")!");
+            }
+
+            try {
+                reader.close();
+            } catch (IOException exception) {
+                // The connection is lost already.
+            }
+
+            reader = null;
+            while (reader == null) {
+                try {
+                    Thread.sleep(RECONNECT_MILLIS);
+                    reader = connect();
+                } catch (IOException exception) {
+                    // The primary isn't reachable yet, so the follower keeps answering from the replicas.
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the changes and heartbeats streamed by the primary, until the connection gets lost.
+     *
+     * @param reader The reader of the stream.
+     * @throws IOException If the connection gets lost or the primary sends an invalid line.
+     */
+    private void stream(BufferedReader reader) throws IOException {
+        while (true) {
+            String line = readLine(reader);
+
+            if (line.startsWith("E;")) {
+                apply(line.substring(2));
+            } else if (line.startsWith("H;")) {
+                long sequence = Long.parseLong(line.split(";")[1]);
+                primarySequence = Math.max(primarySequence, sequence);
+                if (appliedSequence >= sequence) {
+                    lagMillis = 0;
+                }
+            } else {
+                throw new IOException("Der Primärserver hat eine unbekannte Zeile gesendet (" + line + ")!");
+            }
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package de.thm.stumm.patientmanager.model;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server of the primary, which streams the patients and the users to followers on the same machine, so they keep a
+ * warm copy of the data, that answers read-only queries.
+ *
+ * Every follower, that connects to the local port, receives a snapshot of all patients and users first, followed by
+ * the changes published by the ChangeEventBus since the snapshot and by a heartbeat every second, which contains the
+ * sequence of the last published change. The lines of the stream are:
+ * <ul>
+ * <li>`SNAPSHOT;patients;users` announcing the amount of patients and users in the snapshot</li>
+ * <li>`P;line` and `U;line` containing the CSV-Line of a patient or a user of the snapshot</li>
+ * <li>`END;sequence;timestamp` finishing the snapshot, which contains all changes up to the sequence</li>
+ * <li>`E;event` containing a change in the format of the ChangeLogSink</li>
+ * <li>`H;sequence;timestamp` containing the sequence of the last change published by the primary</li>
+ * </ul>
+ *
+ * The snapshot is consistent, as long as the patients and the users are only added and removed, while their lists are
+ * locked. Changes of the ICD and the discharge date, which are published during the snapshot, are contained in the
+ * snapshot and the stream, but applying them twice doesn't change the result.
+ *
+ * A follower, that stops reading, must never block the publishers of the changes. Therefore the changes are only put
+ * into a bounded queue of the follower, which gets written by the thread of the follower. A follower gets disconnected,
+ * if its queue is full or writing to it blocks longer than five heartbeats. It receives a new snapshot, when it
+ * connects again.
+ *
+ * @author Dennis Stumm
+ */
+public class ReplicationServer implements Closeable {
+    /**
+     * The local port, where the primary accepts followers and the followers connect to.
+     */
+    static final int PORT = Integer.getInteger("patientmanager.replicationPort", 7410);
+
+    /**
+     * The time between two heartbeats sent to a follower in milliseconds.
+     */
+    static final long HEARTBEAT_MILLIS = 1000;
+
+    /**
+     * The maximum amount of changes, that are queued for a follower, before it gets disconnected.
+     */
+    private static final int QUEUE_SIZE = Integer.getInteger("patientmanager.replicationQueue", 65536);
+
+    /**
+     * The maximum time in milliseconds, that writing to a follower may block, before it gets disconnected.
+     */
+    private static final long MAX_BLOCKED_MILLIS = 5 * HEARTBEAT_MILLIS;
+
+    /**
+     * The size of the buffer for writing the stream to a follower in characters.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The patients, that get streamed to the followers.
+     */
+    private final PatientList patients;
+
+    /**
+     * The users, that get streamed to the followers.
+     */
+    private final UserList users;
+
+    /**
+     * The socket accepting the followers on the local port.
+     */
+    private final ServerSocket serverSocket;
+
+    /**
+     * The streams of the connected followers.
+     */
+    private final Set<FollowerStream> followers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The executor disconnecting the followers, whose writes block too long.
+     */
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replication-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Opens the local port for streaming the passed patients and users to followers.
+     *
+     * @param patients The patients, that get streamed to the followers.
+     * @param users    The users, that get streamed to the followers.
+     * @throws IOException If the port can't be opened.
+     */
+    public ReplicationServer(PatientList patients, UserList users) throws IOException {
+        this.patients = patients;
+        this.users = users;
+        this.serverSocket = new ServerSocket(PORT, 0, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * Closes the local port and disconnects the connected followers.
+     *
+     * @throws IOException If an error gets thrown while closing the port.
+     */
+    @Override
+    public void close() throws IOException {
+        watchdog.shutdownNow();
+        serverSocket.close();
+        followers.forEach(FollowerStream::disconnect);
+    }
+
+    /**
+     * Starts accepting followers on a daemon thread.
+     */
+    public void start() {
+        Thread acceptor = new Thread(this::accept, "replication-server");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        watchdog.scheduleWithFixedDelay(() -> {
+            for (FollowerStream follower : followers) {
+                if (follower.getBlockedMillis() > MAX_BLOCKED_MILLIS) {
+                    follower.disconnect();
+                }
+            }
+        }, HEARTBEAT_MILLIS, HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Copies the items of the passed list into the passed array.
+     *
+     * @param list  The list to copy the items of.
+     * @param items The array with the size of the list, which gets filled.
+     * @param <T>   The type of the items.
+     * @return The filled array.
+     */
+    private static <T> T[] copy(Iterable<T> list, T[] items) {
+        int index = 0;
+        for (T item : list) {
+            items[index++] = item;
+        }
+
+        return items;
+    }
+
+    /**
+     * Accepts followers and streams the data to each of them on its own daemon thread, until the port gets closed.
+     */
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread follower = new Thread(() -> serve(socket), "replication-follower-" + socket.getPort());
+                follower.setDaemon(true);
+                follower.start();
+            } catch (IOException exception) {
+                if (!serverSocket.isClosed()) {
+                    exception.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends the snapshot, the changes since the snapshot and the heartbeats to the follower connected to the passed
+     * socket, until the follower disconnects or gets disconnected.
+     *
+     * @param socket The socket connected to the follower.
+     */
+    private void serve(Socket socket) {
+        ChangeEventBus bus = ChangeEventBus.getInstance();
+        FollowerStream stream = new FollowerStream(socket);
+        ChangeEventBus.Subscription subscription = null;
+        followers.add(stream);
+
+        try {
+            socket.setTcpNoDelay(true);
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(stream.output, StandardCharsets.UTF_8), BUFFER_SIZE);
+            Patient[] snapshotPatients;
+            User[] snapshotUsers;
+            long sequence;
+
+            // The changes are streamed from the sequence of the snapshot, so no patient or user is added or removed in
+            // between. The changes are queued, until the snapshot was sent.
+            synchronized (patients) {
+                synchronized (users) {
+                    subscription = bus.subscribe("replication-" + socket.getPort(), stream);
+                    sequence = bus.getCursor();
+                    snapshotPatients = copy(patients, new Patient[patients.size()]);
+                    snapshotUsers = copy(users, new User[users.size()]);
+                }
+            }
+
+            writer.write("SNAPSHOT;" + snapshotPatients.length + ";" + snapshotUsers.length);
+            writer.newLine();
+            for (Patient patient : snapshotPatients) {
+                writer.write("P;");
+                writer.write(PatientList.format(patient));
+                writer.newLine();
+            }
+            for (User user : snapshotUsers) {
+                writer.write("U;");
+                writer.write(UserList.format(user));
+                writer.newLine();
+            }
+            writer.write("END;" + sequence + ";" + System.currentTimeMillis());
+            writer.newLine();
+            writer.flush();
+
+            while (!stream.disconnected) {
+                String line = stream.queue.poll(HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+                if (line == null) {
+                    writer.write("H;" + bus.getCursor() + ";" + System.currentTimeMillis());
+                    writer.newLine();
+                } else {
+                    do {
+                        writer.write(line);
+                        writer.newLine();
+                        line = stream.queue.poll();
+                    } while (line != null);
+                }
+                writer.flush();
+            }
+        } catch (IOException exception) {
+            // The follower disconnected, it receives a new snapshot, when it connects again.
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stream.disconnect();
+            followers.remove(stream);
+            if (subscription != null) {
+                subscription.close();
+            }
+        }
+    }
+
+    /**
+     * Listener queueing the changes for a follower, which get written by the thread serving the follower.
+     */
+    private static final class FollowerStream implements ChangeListener {
+        /**
+         * The socket connected to the follower.
+         */
+        private final Socket socket;
+
+        /**
+         * The stream of the socket, which tracks how long the current write blocks.
+         */
+        private final WatchedOutputStream output;
+
+        /**
+         * The changes, that weren't written to the follower yet, formatted as lines of the stream.
+         */
+        private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+
+        /**
+         * Whether the follower was disconnected.
+         */
+        private volatile boolean disconnected;
+
+        /**
+         * Creates the listener for the follower connected to the passed socket.
+         *
+         * @param socket The socket connected to the follower.
+         */
+        private FollowerStream(Socket socket) {
+            this.socket = socket;
+            WatchedOutputStream output;
+            try {
+                output = new WatchedOutputStream(socket.getOutputStream());
+            } catch (IOException exception) {
+                // The follower disconnected already, so the stream only gets closed.
+                output = new WatchedOutputStream(OutputStream.nullOutputStream());
+                disconnect();
+            }
+            this.output = output;
+        }
+
+        /**
+         * Queues the passed change for the follower without blocking. If the queue is full, the follower gets
+         * disconnected.
+         *
+         * @param event      The change to stream.
+         * @param endOfBatch Boolean value, that indicates whether this is the last change of the current batch.
+         * @throws IOException If the change can't be formatted.
+         */
+        @Override
+        public void onEvent(ChangeEvent event, boolean endOfBatch) throws IOException {
+            if (disconnected) {
+                return;
+            }
+
+            StringWriter line = new StringWriter();
+            line.write("E;");
+            event.write(line);
+            if (!queue.offer(line.toString())) {
+                disconnect();
+            }
+        }
+
+        /**
+         * Disconnects the follower, which releases a write blocking the thread serving the follower.
+         */
+        private void disconnect() {
+            disconnected = true;
+            try {
+                socket.close();
+            } catch (IOException exception) {
+                // The follower is disconnected anyway.
+            }
+        }
+
+        /**
+         * @return The time in milliseconds, that the current write to the follower blocks, or 0, if it doesn't write.
+         */
+        private long getBlockedMillis() {
+            long since = output.writingSince;
+            return since == 0 ? 0 : System.currentTimeMillis() - since;
+        }
+    }
+
+    /**
+     * Stream remembering since when the current write to the underlying stream blocks.
+     */
+    private static final class WatchedOutputStream extends FilterOutputStream {
+        /**
+         * The time of the start of the current write in milliseconds since 1970-01-01 or 0, if no write is running.
+         */
+        private volatile long writingSince;
+
+        /**
+         * Creates the stream writing to the passed stream.
+         *
+         * @param out The underlying stream.
+         */
+        private WatchedOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        /**
+         * Writes the passed byte to the underlying stream.
+         *
+         * @param b The byte to write.
+         * @throws IOException If the byte can't be written.
+         */
+        @Override
+        public void write(int b) throws IOException {
+            writingSince = System.currentTimeMillis();
+            try {
+                out.write(b);
+            } finally {
+                writingSince = 0;
+            }
+        }
+
+        /**
+         * Writes the passed range of bytes to the underlying stream at once.
+         *
+         * @param b   The bytes to write.
+         * @param off The offset of the first byte to write.
+         * @param len The amount of bytes to write.
+         * @throws IOException If the bytes can't be written.
+         */
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            writingSince = System.currentTimeMillis();
+            try {
+                out.write(b, off, len);
+            } finally {
+                writingSince = 0;
+            }
+        }
+
+        /**
+         * Flushes the underlying stream.
+         *
+         * @throws IOException If the stream can't be flushed.
+         */
+        @Override
+        public void flush() throws IOException {
+            writingSince = System.currentTimeMillis();
+            try {
+                out.flush();
+            } finally {
+                writingSince = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package de.thm.stumm.patientmanager.model;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Immutable result of a report, which consists of the titles of the columns and the formatted rows.
+ *
+ * @author Dennis Stumm
+ */
+public final class Report {
+    /**
+     * The type of the report.
+     */
+    private final ReportType type;
+
+    /**
+     * The titles of the columns.
+     */
+    private final String[] columns;
+
+    /**
+     * The rows, which contain a formatted value for every column.
+     */
+    private final String[][] rows;
+
+    /**
+     * Creates the report.
+     *
+     * @param type    The type of the report.
+     * @param columns The titles of the columns.
+     * @param rows    The rows, which contain a formatted value for every column.
+     */
+    Report(ReportType type, String[] columns, String[][] rows) {
+        this.type = type;
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    /**
+     * @return The titles of the columns.
+     */
+    public String[] getColumns() {
+        return columns.clone();
+    }
+
+    /**
+     * @return The rows, which contain a formatted value for every column.
+     */
+    public String[][] getRows() {
+        return rows.clone();
+    }
+
+    /**
+     * @return The type of the report.
+     */
+    public ReportType getType() {
+        return type;
+    }
+
+    /**
+     * Writes the report into the passed file in the format of the CSV-Files, whereby the first line contains the
+     * titles of the columns.
+     *
+     * @param filePath Path to the file, where the report should be written to.
+     * @throws IOException If the file can't be written.
+     */
+    public void writeCsv(Path filePath) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(filePath, StandardCharsets.UTF_8)) {
+            writeLine(writer, columns);
+            for (String[] row : rows) {
+                writeLine(writer, row);
+            }
+        }
+    }
+
+    /**
+     * Writes the passed values separated by semicolons as a line.
+     *
+     * @param writer The writer of the file.
+     * @param values The values of the line.
+     * @throws IOException If the line can't be written.
+     */
+    private static void writeLine(BufferedWriter writer, String[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(';');
+            }
+            writer.write(values[i]);
+        }
+        writer.newLine();
+    }
+}
@@ -0,0 +1,593 @@
+package de.thm.stumm.patientmanager.model;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Engine creating the group-by reports over all patients of a PatientList.
+ *
+ * The positions of the patients get split into ranges by a fork/join task, until the ranges are small enough to be
+ * aggregated on a single thread. Every range gets aggregated into its own primitive counters, so the threads don't
+ * share any state, and the counters of the ranges get merged, when the tasks are joined. The tasks run in the common
+ * fork/join pool, so the report uses all cores.
+ *
+ * If the patients can't be accessed by their positions without copying all of them, because they aren't only kept in
+ * memory, they get scanned in chunks instead, which get aggregated one after another the same way. So only a single
+ * chunk of patients is held at once.
+ *
+ * @author Dennis Stumm
+ */
+final class ReportEngine {
+    /**
+     * The maximum amount of positions, that get aggregated by a single task without splitting.
+     */
+    private static final int RANGE_SIZE = 16384;
+
+    /**
+     * The amount of scanned patients, that get aggregated at once.
+     */
+    private static final int CHUNK_SIZE = 16 * RANGE_SIZE;
+
+    /**
+     * The width of an age band in years.
+     */
+    private static final int AGE_BAND_WIDTH = 10;
+
+    /**
+     * The amount of age bands, whereby the last one contains all higher ages.
+     */
+    private static final int AGE_BANDS = 10;
+
+    /**
+     * The chapters of the ICD-10-GM with the first and the last category of each chapter.
+     */
+    private static final String[][] ICD_CHAPTERS = {
+            {"I", "A00", "B99"},
+            {"II", "C00", "D48"},
+            {"III", "D50", "D90"},
+            {"IV", "E00", "E90"},
+            {"V", "F00", "F99"},
+            {"VI", "G00", "G99"},
+            {"VII", "H00", "H59"},
+            {"VIII", "H60", "H95"},
+            {"IX", "I00", "I99"},
+            {"X", "J00", "J99"},
+            {"XI", "K00", "K93"},
+            {"XII", "L00", "L99"},
+            {"XIII", "M00", "M99"},
+            {"XIV", "N00", "N99"},
+            {"XV", "O00", "O99"},
+            {"XVI", "P00", "P96"},
+            {"XVII", "Q00", "Q99"},
+            {"XVIII", "R00", "R99"},
+            {"XIX", "S00", "T98"},
+            {"XX", "V01", "Y84"},
+            {"XXI", "Z00", "Z99"},
+            {"XXII", "U00", "U99"}
+    };
+
+    /**
+     * The index of the chapter of ICDs, that don't belong to any chapter.
+     */
+    private static final int UNKNOWN_CHAPTER = ICD_CHAPTERS.length;
+
+    /**
+     * This class only provides static methods.
+     */
+    private ReportEngine() {
+    }
+
+    /**
+     * Creates the report of the passed type over the passed range of positions.
+     *
+     * @param type   The type of the report.
+     * @param source Function returning the patient at a position.
+     * @param size   The amount of positions starting at 0.
+     * @return The created report.
+     */
+    static Report create(ReportType type, IntFunction<Patient> source, int size) {
+        return create(type, new Patients() {
+            @Override
+            public <A extends Accumulator<A>> A aggregate(Supplier<A> factory) {
+                return ForkJoinPool.commonPool().invoke(new AggregateTask<>(source, 0, size, factory));
+            }
+        });
+    }
+
+    /**
+     * Creates the report of the passed type over the patients returned by the passed iterator, which get aggregated
+     * in chunks.
+     *
+     * @param type     The type of the report.
+     * @param patients Iterator over the patients.
+     * @return The created report.
+     */
+    static Report create(ReportType type, Iterator<Patient> patients) {
+        return create(type, new Patients() {
+            @Override
+            public <A extends Accumulator<A>> A aggregate(Supplier<A> factory) {
+                A accumulator = factory.get();
+                Patient[] chunk = new Patient[CHUNK_SIZE];
+                while (patients.hasNext()) {
+                    int length = 0;
+                    while (length < chunk.length && patients.hasNext()) {
+                        chunk[length++] = patients.next();
+                    }
+                    accumulator.merge(ForkJoinPool.commonPool().invoke(new AggregateTask<>(position -> chunk[position], 0, length, factory)));
+                }
+
+                return accumulator;
+            }
+        });
+    }
+
+    /**
+     * Creates the report of the passed type over the passed patients.
+     *
+     * @param type     The type of the report.
+     * @param patients The patients, that get aggregated.
+     * @return The created report.
+     */
+    private static Report create(ReportType type, Patients patients) {
+        switch (type) {
+            case ADMISSIONS_PER_DAY:
+                return createAdmissionsPerDay(patients);
+            case DISCHARGES_PER_ICD_CHAPTER:
+                return createDischargesPerIcdChapter(patients);
+            case AGE_BANDS_PER_DIAGNOSIS:
+                return createAgeBandsPerDiagnosis(patients);
+            default:
+                throw new IllegalArgumentException("Unknown report " + type);
+        }
+    }
+
+    /**
+     * Creates the report of the admissions and discharges per day.
+     *
+     * @param patients The patients, that get aggregated.
+     * @return The created report.
+     */
+    private static Report createAdmissionsPerDay(Patients patients) {
+        DayCounts counts = patients.aggregate(DayCounts::new);
+
+        int first = 0;
+        int last = counts.admissions.length - 1;
+        while (first <= last && counts.admissions[first] == 0 && counts.discharges[first] == 0) {
+            first++;
+        }
+        while (last >= first && counts.admissions[last] == 0 && counts.discharges[last] == 0) {
+            last--;
+        }
+
+        String[][] rows = new String[Math.max(last - first + 1, 0)][];
+        for (int offset = first; offset <= last; offset++) {
+            rows[offset - first] = new String[]{
+                    DateCodec.format(counts.firstDay + offset),
+                    Integer.toString(counts.admissions[offset]),
+                    Integer.toString(counts.discharges[offset])
+            };
+        }
+
+        return new Report(ReportType.ADMISSIONS_PER_DAY, new String[]{"Tag", "Aufnahmen", "Entlassungen"}, rows);
+    }
+
+    /**
+     * Creates the report of the amount of patients per ICD in age bands.
+     *
+     * @param patients The patients, that get aggregated.
+     * @return The created report.
+     */
+    private static Report createAgeBandsPerDiagnosis(Patients patients) {
+        StringDictionary dictionary = StringDictionary.getInstance();
+        int codes = dictionary.size();
+        AgeBandCounts counts = patients.aggregate(() -> new AgeBandCounts(codes));
+
+        int[] totals = new int[codes];
+        int rowCount = 0;
+        for (int code = 0; code < codes; code++) {
+            for (int band = 0; band < AGE_BANDS; band++) {
+                totals[code] += counts.counts[code * AGE_BANDS + band];
+            }
+            if (totals[code] > 0) {
+                rowCount++;
+            }
+        }
+
+        String[][] rows = new String[rowCount][];
+        int row = 0;
+        for (int code = 0; code < codes; code++) {
+            if (totals[code] > 0) {
+                String[] values = new String[AGE_BANDS + 2];
+                String icd = dictionary.decode(code);
+                values[0] = icd.isEmpty() ? "-" : icd;
+                for (int band = 0; band < AGE_BANDS; band++) {
+                    values[band + 1] = Integer.toString(counts.counts[code * AGE_BANDS + band]);
+                }
+                values[AGE_BANDS + 1] = Integer.toString(totals[code]);
+                rows[row++] = values;
+            }
+        }
+        Arrays.sort(rows, (first, second) -> first[0].compareTo(second[0]));
+
+        String[] columns = new String[AGE_BANDS + 2];
+        columns[0] = "ICD";
+        for (int band = 0; band < AGE_BANDS; band++) {
+            int from = band * AGE_BAND_WIDTH;
+            columns[band + 1] = band == AGE_BANDS - 1 ? from + "+" : from + "-" + (from + AGE_BAND_WIDTH - 1);
+        }
+        columns[AGE_BANDS + 1] = "Gesamt";
+
+        return new Report(ReportType.AGE_BANDS_PER_DIAGNOSIS, columns, rows);
+    }
+
+    /**
+     * Creates the report of the discharges and the average length of stay per chapter of the ICD-10.
+     *
+     * @param patients The patients, that get aggregated.
+     * @return The created report.
+     */
+    private static Report createDischargesPerIcdChapter(Patients patients) {
+        StringDictionary dictionary = StringDictionary.getInstance();
+        int[] chapters = new int[dictionary.size()];
+        for (int code = 0; code < chapters.length; code++) {
+            chapters[code] = getChapter(dictionary.decode(code));
+        }
+        ChapterCounts counts = patients.aggregate(() -> new ChapterCounts(chapters));
+
+        String[][] rows = new String[UNKNOWN_CHAPTER + 1][];
+        for (int chapter = 0; chapter <= UNKNOWN_CHAPTER; chapter++) {
+            int discharges = counts.discharges[chapter];
+            double averageStay = discharges == 0 ? 0 : (double) counts.stayDays[chapter] / discharges;
+            rows[chapter] = new String[]{
+                    chapter == UNKNOWN_CHAPTER ? "-" : ICD_CHAPTERS[chapter][0],
+                    chapter == UNKNOWN_CHAPTER ? "Unbekannt" : ICD_CHAPTERS[chapter][1] + "-" + ICD_CHAPTERS[chapter][2],
+                    Integer.toString(discharges),
+                    String.format(Locale.GERMAN, "%.1f", averageStay)
+            };
+        }
+
+        return new Report(ReportType.DISCHARGES_PER_ICD_CHAPTER, new String[]{"Kapitel", "Bereich", "Entlassungen", "Verweildauer"}, rows);
+    }
+
+    /**
+     * Returns the chapter of the passed ICD, which is determined by the letter and the two digits of its category.
+     *
+     * @param icd The ICD.
+     * @return The index of the chapter in ICD_CHAPTERS or UNKNOWN_CHAPTER, if the ICD doesn't belong to any chapter.
+     */
+    private static int getChapter(String icd) {
+        if (icd == null || icd.length() < 3 || icd.charAt(0) < 'A' || icd.charAt(0) > 'Z'
+                || !Character.isDigit(icd.charAt(1)) || !Character.isDigit(icd.charAt(2))) {
+            return UNKNOWN_CHAPTER;
+        }
+
+        String category = icd.substring(0, 3);
+        for (int chapter = 0; chapter < ICD_CHAPTERS.length; chapter++) {
+            if (category.compareTo(ICD_CHAPTERS[chapter][1]) >= 0 && category.compareTo(ICD_CHAPTERS[chapter][2]) <= 0) {
+                return chapter;
+            }
+        }
+
+        return UNKNOWN_CHAPTER;
+    }
+
+    /**
+     * Primitive counters of a range of positions, which can be merged with the counters of another range.
+     *
+     * @param <A> The type of the accumulator itself.
+     */
+    private interface Accumulator<A> {
+        /**
+         * Counts the passed patient.
+         *
+         * @param patient The patient to count.
+         */
+        void add(Patient patient);
+
+        /**
+         * Adds the counters of the passed accumulator to the counters of this accumulator.
+         *
+         * @param other The accumulator of another range.
+         */
+        void merge(A other);
+    }
+
+    /**
+     * Patients of a report, which get aggregated into accumulators.
+     */
+    private interface Patients {
+        /**
+         * Aggregates all patients into the accumulators created by the passed factory.
+         *
+         * @param factory Factory creating an empty accumulator.
+         * @param <A>     The type of the accumulators.
+         * @return The merged accumulator of all patients.
+         */
+        <A extends Accumulator<A>> A aggregate(Supplier<A> factory);
+    }
+
+    /**
+     * Task aggregating a range of positions, which gets split in halves, until it's small enough.
+     *
+     * The task is never serialized, it only inherits the interface from the ForkJoinTask.
+     *
+     * @param <A> The type of the accumulators.
+     */
+    @SuppressWarnings("serial")
+    private static final class AggregateTask<A extends Accumulator<A>> extends RecursiveTask<A> {
+        /**
+         * Function returning the patient at a position.
+         */
+        private final IntFunction<Patient> source;
+
+        /**
+         * The first position of the range.
+         */
+        private final int from;
+
+        /**
+         * The position after the last position of the range.
+         */
+        private final int to;
+
+        /**
+         * Factory creating an empty accumulator.
+         */
+        private final Supplier<A> factory;
+
+        /**
+         * Creates the task for the passed range.
+         *
+         * @param source  Function returning the patient at a position.
+         * @param from    The first position of the range.
+         * @param to      The position after the last position of the range.
+         * @param factory Factory creating an empty accumulator.
+         */
+        private AggregateTask(IntFunction<Patient> source, int from, int to, Supplier<A> factory) {
+            this.source = source;
+            this.from = from;
+            this.to = to;
+            this.factory = factory;
+        }
+
+        /**
+         * Aggregates the range directly, if it's small enough, or splits it in halves and merges their accumulators.
+         *
+         * @return The accumulator of the range.
+         */
+        @Override
+        protected A compute() {
+            if (to - from <= RANGE_SIZE) {
+                A accumulator = factory.get();
+                for (int position = from; position < to; position++) {
+                    accumulator.add(source.apply(position));
+                }
+
+                return accumulator;
+            }
+
+            int middle = (from + to) >>> 1;
+            AggregateTask<A> left = new AggregateTask<>(source, from, middle, factory);
+            left.fork();
+            A right = new AggregateTask<>(source, middle, to, factory).compute();
+            A accumulator = left.join();
+            accumulator.merge(right);
+
+            return accumulator;
+        }
+    }
+
+    /**
+     * Counters of the patients per ICD and age band.
+     */
+    private static final class AgeBandCounts implements Accumulator<AgeBandCounts> {
+        /**
+         * The amount of codes of the StringDictionary, that get counted.
+         */
+        private final int codes;
+
+        /**
+         * The counters of the age bands of each code, which are stored consecutively.
+         */
+        private final int[] counts;
+
+        /**
+         * Creates empty counters.
+         *
+         * @param codes The amount of codes of the StringDictionary, that get counted.
+         */
+        private AgeBandCounts(int codes) {
+            this.codes = codes;
+            this.counts = new int[codes * AGE_BANDS];
+        }
+
+        /**
+         * Counts the passed patient.
+         *
+         * @param patient The patient to count.
+         */
+        @Override
+        public void add(Patient patient) {
+            int icd = patient.getIcdCode();
+            // Codes, that were added by another thread during the report, aren't counted.
+            if (icd != StringDictionary.NULL && icd < codes) {
+                int band = Math.min(Math.max(patient.getAge(), 0) / AGE_BAND_WIDTH, AGE_BANDS - 1);
+                counts[icd * AGE_BANDS + band]++;
+            }
+        }
+
+        /**
+         * Adds the counters of the passed accumulator to these counters.
+         *
+         * @param other The counters of another range.
+         */
+        @Override
+        public void merge(AgeBandCounts other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+        }
+    }
+
+    /**
+     * Counters of the discharges and their days of stay per chapter of the ICD-10.
+     */
+    private static final class ChapterCounts implements Accumulator<ChapterCounts> {
+        /**
+         * The chapters of the codes of the StringDictionary, which are shared by all accumulators.
+         */
+        private final int[] chapters;
+
+        /**
+         * The amount of discharges per chapter.
+         */
+        private final int[] discharges = new int[UNKNOWN_CHAPTER + 1];
+
+        /**
+         * The sum of the days of stay of the discharges per chapter.
+         */
+        private final long[] stayDays = new long[UNKNOWN_CHAPTER + 1];
+
+        /**
+         * Creates empty counters.
+         *
+         * @param chapters The chapters of the codes of the StringDictionary.
+         */
+        private ChapterCounts(int[] chapters) {
+            this.chapters = chapters;
+        }
+
+        /**
+         * Counts the passed patient.
+         *
+         * @param patient The patient to count.
+         */
+        @Override
+        public void add(Patient patient) {
+            int dischargeDay = patient.getDischargeDay();
+            if (dischargeDay == DateCodec.NO_DATE) {
+                return;
+            }
+
+            int icd = patient.getIcdCode();
+            int chapter = icd != StringDictionary.NULL && icd < chapters.length ? chapters[icd] : UNKNOWN_CHAPTER;
+            discharges[chapter]++;
+            stayDays[chapter] += Math.max(dischargeDay - patient.getAdmissionDay(), 0);
+        }
+
+        /**
+         * Adds the counters of the passed accumulator to these counters.
+         *
+         * @param other The counters of another range.
+         */
+        @Override
+        public void merge(ChapterCounts other) {
+            for (int chapter = 0; chapter <= UNKNOWN_CHAPTER; chapter++) {
+                discharges[chapter] += other.discharges[chapter];
+                stayDays[chapter] += other.stayDays[chapter];
+            }
+        }
+    }
+
+    /**
+     * Counters of the admissions and discharges per day, which grow to the range of the counted days.
+     */
+    private static final class DayCounts implements Accumulator<DayCounts> {
+        /**
+         * The day of the first counters as days since 1970-01-01.
+         */
+        private int firstDay;
+
+        /**
+         * The amount of admissions per day starting at the first day.
+         */
+        private int[] admissions = new int[0];
+
+        /**
+         * The amount of discharges per day starting at the first day.
+         */
+        private int[] discharges = new int[0];
+
+        /**
+         * Counts the passed patient.
+         *
+         * @param patient The patient to count.
+         */
+        @Override
+        public void add(Patient patient) {
+            int admissionDay = patient.getAdmissionDay();
+            if (admissionDay != DateCodec.NO_DATE) {
+                int offset = ensureCapacity(admissionDay);
+                admissions[offset]++;
+            }
+
+            int dischargeDay = patient.getDischargeDay();
+            if (dischargeDay != DateCodec.NO_DATE) {
+                int offset = ensureCapacity(dischargeDay);
+                discharges[offset]++;
+            }
+        }
+
+        /**
+         * Adds the counters of the passed accumulator to these counters.
+         *
+         * @param other The counters of another range.
+         */
+        @Override
+        public void merge(DayCounts other) {
+            if (other.admissions.length == 0) {
+                return;
+            }
+
+            int offset = ensureCapacity(other.firstDay);
+            ensureCapacity(other.firstDay + other.admissions.length - 1);
+            for (int i = 0; i < other.admissions.length; i++) {
+                admissions[offset + i] += other.admissions[i];
+                discharges[offset + i] += other.discharges[i];
+            }
+        }
+
+        /**
+         * Grows the counters, so they contain the passed day. The counters at least double their size, so growing
+         * them costs O(1) amortized.
+         *
+         * @param day The day as days since 1970-01-01.
+         * @return The offset of the counters of the day.
+         */
+        private int ensureCapacity(int day) {
+            int length = admissions.length;
+            if (length == 0) {
+                firstDay = day;
+                admissions = new int[64];
+                discharges = new int[64];
+                return 0;
+            }
+
+            if (day >= firstDay && day < firstDay + length) {
+                return day - firstDay;
+            }
+
+            int newFirstDay = day < firstDay ? Math.min(day, firstDay - length) : firstDay;
+            int newLength = Math.max(firstDay + length - newFirstDay, day - newFirstDay + 1);
+            if (day >= firstDay) {
+                newLength = Math.max(newLength, length * 2);
+            }
+
+            int shift = firstDay - newFirstDay;
+            int[] newAdmissions = new int[newLength];
+            int[] newDischarges = new int[newLength];
+            System.arraycopy(admissions, 0, newAdmissions, shift, length);
+            System.arraycopy(discharges, 0, newDischarges, shift, length);
+            firstDay = newFirstDay;
+            admissions = newAdmissions;
+            discharges = newDischarges;
+
+            return day - firstDay;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package de.thm.stumm.patientmanager.model;
+
+/**
+ * The reports, that can be created over the whole history of a PatientList.
+ *
+ * @author Dennis Stumm
+ */
+public enum ReportType {
+    /**
+     * The amount of admissions and discharges per day from the first to the last day of the history.
+     */
+    ADMISSIONS_PER_DAY,
+
+    /**
+     * The amount of discharges and the average length of stay per chapter of the ICD-10.
+     */
+    DISCHARGES_PER_ICD_CHAPTER,
+
+    /**
+     * The amount of patients per ICD in age bands of ten years.
+     */
+    AGE_BANDS_PER_DIAGNOSIS
+}
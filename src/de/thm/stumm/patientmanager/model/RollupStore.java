@@ -0,0 +1,484 @@
+package de.thm.stumm.patientmanager.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+
+/**
+ * Store of the pre-aggregated admissions, discharges and occupancy of the patients per day and per hour, which is
+ * persisted to a file next to the data.
+ *
+ * The counters are kept in primitive arrays indexed by the epoch day relative to the first stored day and get updated
+ * incrementally, when patients are added, removed or discharged, so trends are queried in O(range) without reading any
+ * patient. The occupancy is the sum of the admissions minus the discharges up to a day, which is kept in a Fenwick
+ * tree, so the occupancy at the start of a range costs O(log days).
+ *
+ * The CSV-Files only contain the dates of the admissions and discharges, so the hourly counters only contain the
+ * patients, that were admitted or discharged by this application, and aren't corrected, when a patient is removed.
+ *
+ * @author Dennis Stumm
+ */
+class RollupStore {
+    /**
+     * The magic number at the start of the file.
+     */
+    private static final int MAGIC = 0x524f4c4c;
+
+    /**
+     * The version of the format of the file.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The amount of days, for which the counters are allocated at first.
+     */
+    private static final int INITIAL_DAYS = 64;
+
+    /**
+     * The amount of hours of a day.
+     */
+    private static final int HOURS = 24;
+
+    /**
+     * Path to the file where the counters get persisted.
+     */
+    private final Path filePath;
+
+    /**
+     * The amount of counted patients.
+     */
+    private int patients;
+
+    /**
+     * The first day of the counters as days since 1970-01-01.
+     */
+    private int firstDay;
+
+    /**
+     * The amount of days, for which the counters are allocated.
+     */
+    private int days;
+
+    /**
+     * The amount of admissions per day.
+     */
+    private int[] admissions = new int[0];
+
+    /**
+     * The amount of discharges per day.
+     */
+    private int[] discharges = new int[0];
+
+    /**
+     * The amount of admissions per hour, whereby the hours of a day are stored consecutively.
+     */
+    private int[] hourlyAdmissions = new int[0];
+
+    /**
+     * The amount of discharges per hour, whereby the hours of a day are stored consecutively.
+     */
+    private int[] hourlyDischarges = new int[0];
+
+    /**
+     * The Fenwick tree of the admissions minus the discharges per day, which starts at index 1.
+     */
+    private int[] occupancyTree = new int[1];
+
+    /**
+     * Opens the counters persisted in the passed file, which are empty, if the file doesn't exist.
+     *
+     * @param filePath Path to the file where the counters are persisted.
+     * @throws IOException If the file can't be read or doesn't contain counters.
+     */
+    RollupStore(Path filePath) throws IOException {
+        this.filePath = filePath;
+
+        if (Files.exists(filePath)) {
+            read();
+        }
+    }
+
+    /**
+     * Counts the admission and the discharge of the passed patient on their days.
+     *
+     * @param patient The patient, that was added.
+     */
+    synchronized void add(Patient patient) {
+        count(patient, 1);
+    }
+
+    /**
+     * Counts the admission of a patient at the passed time in its hour.
+     *
+     * @param millis The time of the admission in milliseconds since 1970-01-01.
+     */
+    synchronized void addAdmissionHour(long millis) {
+        addHour(millis, true);
+    }
+
+    /**
+     * Counts the discharge of a patient at the passed time in its hour.
+     *
+     * @param millis The time of the discharge in milliseconds since 1970-01-01.
+     */
+    synchronized void addDischargeHour(long millis) {
+        addHour(millis, false);
+    }
+
+    /**
+     * Moves the discharge of the passed patient from the passed previous day to its current discharge day.
+     *
+     * @param patient     The patient, that was discharged.
+     * @param previousDay The previous discharge day of the patient as days since 1970-01-01 or DateCodec.NO_DATE.
+     */
+    synchronized void discharged(Patient patient, int previousDay) {
+        if (patient.getAdmissionDay() == DateCodec.NO_DATE) {
+            return;
+        }
+
+        if (previousDay != DateCodec.NO_DATE) {
+            countDischarge(previousDay, -1);
+        }
+        if (patient.getDischargeDay() != DateCodec.NO_DATE) {
+            countDischarge(patient.getDischargeDay(), 1);
+        }
+    }
+
+    /**
+     * Returns the admissions, discharges and the occupancy per day in the passed range.
+     *
+     * @param fromDay The first day of the range as days since 1970-01-01.
+     * @param toDay   The last day of the range as days since 1970-01-01.
+     * @return The trend of the days in the range.
+     */
+    synchronized OccupancyTrend getDailyTrend(int fromDay, int toDay) {
+        int length = Math.max(toDay - fromDay + 1, 0);
+        int[] dailyAdmissions = new int[length];
+        int[] dailyDischarges = new int[length];
+        int[] occupancy = new int[length];
+
+        int current = getOccupancy(fromDay - 1);
+        for (int i = 0; i < length; i++) {
+            int index = fromDay + i - firstDay;
+            if (index >= 0 && index < days) {
+                dailyAdmissions[i] = admissions[index];
+                dailyDischarges[i] = discharges[index];
+                current += admissions[index] - discharges[index];
+            }
+            occupancy[i] = current;
+        }
+
+        return new OccupancyTrend(fromDay, false, dailyAdmissions, dailyDischarges, occupancy);
+    }
+
+    /**
+     * Returns the admissions, discharges and the occupancy per hour of the passed day. The occupancy of an hour is the
+     * occupancy at the end of the previous day plus the admissions and minus the discharges counted hourly up to the
+     * hour.
+     *
+     * @param day The day as days since 1970-01-01.
+     * @return The trend of the hours of the day.
+     */
+    synchronized OccupancyTrend getHourlyTrend(int day) {
+        int[] hourAdmissions = new int[HOURS];
+        int[] hourDischarges = new int[HOURS];
+        int[] occupancy = new int[HOURS];
+
+        int current = getOccupancy(day - 1);
+        int index = day - firstDay;
+        for (int hour = 0; hour < HOURS; hour++) {
+            if (index >= 0 && index < days) {
+                hourAdmissions[hour] = hourlyAdmissions[index * HOURS + hour];
+                hourDischarges[hour] = hourlyDischarges[index * HOURS + hour];
+                current += hourAdmissions[hour] - hourDischarges[hour];
+            }
+            occupancy[hour] = current;
+        }
+
+        return new OccupancyTrend(day, true, hourAdmissions, hourDischarges, occupancy);
+    }
+
+    /**
+     * @return The amount of counted patients, which differs from the amount of patients, if the counters are stale.
+     */
+    synchronized int getPatients() {
+        return patients;
+    }
+
+    /**
+     * Persists the counters to the file.
+     *
+     * @throws IOException If an error gets thrown while writing the file.
+     */
+    synchronized void persist() throws IOException {
+        Path directory = filePath.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        Path temporaryFile = Files.createTempFile(directory, filePath.getFileName().toString(), ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(patients);
+            output.writeInt(firstDay);
+            output.writeInt(days);
+            writeInts(output, admissions, days);
+            writeInts(output, discharges, days);
+            writeInts(output, hourlyAdmissions, days * HOURS);
+            writeInts(output, hourlyDischarges, days * HOURS);
+        }
+        Files.move(temporaryFile, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Counts the passed patients again instead of the counted admissions and discharges. The hourly counters are kept,
+     * because they can't be restored from the patients.
+     *
+     * @param patients The patients to count.
+     */
+    synchronized void rebuild(Iterable<Patient> patients) {
+        this.patients = 0;
+        Arrays.fill(admissions, 0);
+        Arrays.fill(discharges, 0);
+        Arrays.fill(occupancyTree, 0);
+
+        for (Patient patient : patients) {
+            count(patient, 1);
+        }
+    }
+
+    /**
+     * Removes the admission and the discharge of the passed patient from the counters of their days.
+     *
+     * @param patient The patient, that was removed.
+     */
+    synchronized void remove(Patient patient) {
+        count(patient, -1);
+    }
+
+    /**
+     * Reads the passed amount of ints from the passed stream.
+     *
+     * @param input  The stream to read from.
+     * @param length The amount of ints.
+     * @return The read ints.
+     * @throws IOException If the ints can't be read.
+     */
+    private static int[] readInts(DataInputStream input, int length) throws IOException {
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = input.readInt();
+        }
+
+        return values;
+    }
+
+    /**
+     * Copies the passed counters into a new array at the passed offset.
+     *
+     * @param counters The counters to copy.
+     * @param length   The amount of counters to copy.
+     * @param offset   The index of the first counter in the new array.
+     * @param size     The size of the new array.
+     * @return The new array.
+     */
+    private static int[] shift(int[] counters, int length, int offset, int size) {
+        int[] shifted = new int[size];
+        if (length > 0) {
+            System.arraycopy(counters, 0, shifted, offset, length);
+        }
+
+        return shifted;
+    }
+
+    /**
+     * Writes the passed amount of ints of the passed array to the passed stream.
+     *
+     * @param output The stream to write to.
+     * @param values The ints to write.
+     * @param length The amount of ints.
+     * @throws IOException If the ints can't be written.
+     */
+    private static void writeInts(DataOutputStream output, int[] values, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            output.writeInt(values[i]);
+        }
+    }
+
+    /**
+     * Counts an admission or a discharge at the passed time in its hour.
+     *
+     * @param millis    The time in milliseconds since 1970-01-01.
+     * @param admission Whether an admission gets counted instead of a discharge.
+     */
+    private void addHour(long millis, boolean admission) {
+        ZonedDateTime time = Instant.ofEpochMilli(millis).atZone(ZoneId.systemDefault());
+        int index = ensureCapacity((int) time.toLocalDate().toEpochDay());
+        int[] counters = admission ? hourlyAdmissions : hourlyDischarges;
+        counters[index * HOURS + time.getHour()]++;
+    }
+
+    /**
+     * Adds the passed delta to the counters of the admission and the discharge of the passed patient. Patients without
+     * an admission are only counted as patients, because they aren't in house.
+     *
+     * @param patient The patient to count.
+     * @param delta   1 for counting the patient or -1 for removing the patient from the counters.
+     */
+    private void count(Patient patient, int delta) {
+        patients += delta;
+
+        int admissionDay = patient.getAdmissionDay();
+        if (admissionDay == DateCodec.NO_DATE) {
+            return;
+        }
+
+        int index = ensureCapacity(admissionDay);
+        admissions[index] += delta;
+        updateOccupancy(index, delta);
+
+        if (patient.getDischargeDay() != DateCodec.NO_DATE) {
+            countDischarge(patient.getDischargeDay(), delta);
+        }
+    }
+
+    /**
+     * Adds the passed delta to the counter of the discharges of the passed day.
+     *
+     * @param day   The discharge day as days since 1970-01-01.
+     * @param delta The amount of discharges to add.
+     */
+    private void countDischarge(int day, int delta) {
+        int index = ensureCapacity(day);
+        discharges[index] += delta;
+        updateOccupancy(index, -delta);
+    }
+
+    /**
+     * Grows the counters, so they contain the passed day. The counters at least double their size, so growing them
+     * costs O(1) amortized, although the Fenwick tree gets rebuilt.
+     *
+     * @param day The day as days since 1970-01-01.
+     * @return The index of the counters of the day.
+     */
+    private int ensureCapacity(int day) {
+        if (days == 0) {
+            resize(day, INITIAL_DAYS);
+            return 0;
+        }
+
+        if (day >= firstDay && day < firstDay + days) {
+            return day - firstDay;
+        }
+
+        int newFirstDay = day < firstDay ? Math.min(day, firstDay - days) : firstDay;
+        int newDays = Math.max(firstDay + days - newFirstDay, day - newFirstDay + 1);
+        if (day >= firstDay) {
+            newDays = Math.max(newDays, days * 2);
+        }
+        resize(newFirstDay, newDays);
+
+        return day - firstDay;
+    }
+
+    /**
+     * Returns the occupancy at the end of the passed day.
+     *
+     * @param day The day as days since 1970-01-01.
+     * @return The sum of the admissions minus the discharges up to the day.
+     */
+    private int getOccupancy(int day) {
+        if (days == 0 || day < firstDay) {
+            return 0;
+        }
+
+        int occupancy = 0;
+        for (int node = Math.min(day - firstDay, days - 1) + 1; node > 0; node -= node & -node) {
+            occupancy += occupancyTree[node];
+        }
+
+        return occupancy;
+    }
+
+    /**
+     * Reads the counters from the file.
+     *
+     * @throws IOException If the file can't be read or doesn't contain counters.
+     */
+    private void read() throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(filePath)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IOException("Die Datei " + filePath + " enthält keine Rollups!");
+            }
+
+            int patients = input.readInt();
+            int firstDay = input.readInt();
+            int days = input.readInt();
+            if (days < 0 || days > Integer.MAX_VALUE / HOURS) {
+                throw new IOException("Die Datei " + filePath + " enthält eine ungültige Anzahl an Tagen (" + days + ")!");
+            }
+
+            this.admissions = readInts(input, days);
+            this.discharges = readInts(input, days);
+            this.hourlyAdmissions = readInts(input, days * HOURS);
+            this.hourlyDischarges = readInts(input, days * HOURS);
+            this.patients = patients;
+            this.firstDay = firstDay;
+            this.days = days;
+        }
+
+        rebuildOccupancy();
+    }
+
+    /**
+     * Builds the Fenwick tree of the admissions minus the discharges per day in O(days).
+     */
+    private void rebuildOccupancy() {
+        occupancyTree = new int[days + 1];
+        for (int index = 0; index < days; index++) {
+            occupancyTree[index + 1] += admissions[index] - discharges[index];
+            int parent = index + 1 + ((index + 1) & -(index + 1));
+            if (parent <= days) {
+                occupancyTree[parent] += occupancyTree[index + 1];
+            }
+        }
+    }
+
+    /**
+     * Copies the counters into arrays for the passed range of days and rebuilds the Fenwick tree.
+     *
+     * @param newFirstDay The first day of the range as days since 1970-01-01.
+     * @param newDays     The amount of days of the range, which contains all days of the counters.
+     */
+    private void resize(int newFirstDay, int newDays) {
+        int shift = firstDay - newFirstDay;
+        admissions = shift(admissions, days, shift, newDays);
+        discharges = shift(discharges, days, shift, newDays);
+        hourlyAdmissions = shift(hourlyAdmissions, days * HOURS, shift * HOURS, newDays * HOURS);
+        hourlyDischarges = shift(hourlyDischarges, days * HOURS, shift * HOURS, newDays * HOURS);
+        firstDay = newFirstDay;
+        days = newDays;
+
+        rebuildOccupancy();
+    }
+
+    /**
+     * Adds the passed delta to the occupancy of the passed day and all following days in the Fenwick tree.
+     *
+     * @param index The index of the day.
+     * @param delta The amount of patients to add.
+     */
+    private void updateOccupancy(int index, int delta) {
+        for (int node = index + 1; node <= days; node += node & -node) {
+            occupancyTree[node] += delta;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package de.thm.stumm.patientmanager.model;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hasher creating unsalted SHA1 hashes in hex format, as they were stored for all users before the introduction of
+ * stronger hashes.
+ *
+ * The MessageDigest objects are kept per thread and get reused for every password.
+ *
+ * @author Dennis Stumm
+ */
+public class Sha1PasswordHasher implements PasswordHasher {
+    /**
+     * The instance of this hasher.
+     */
+    public static final Sha1PasswordHasher INSTANCE = new Sha1PasswordHasher();
+
+    /**
+     * Characters used for the hex format of the hash.
+     */
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * MessageDigest objects for SHA1 of each thread.
+     */
+    private static final ThreadLocal<MessageDigest> DIGESTS = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    });
+
+    /**
+     * Initializes the hasher. Use INSTANCE instead of creating new objects.
+     */
+    private Sha1PasswordHasher() {
+    }
+
+    /**
+     * Hashes the passed password with SHA1 and returns the hash in hex format.
+     *
+     * @param password The password in plain text.
+     * @return The SHA1 hash of the password in hex format.
+     */
+    @Override
+    public String hash(String password) {
+        byte[] digest = digest(password);
+        char[] hex = new char[digest.length * 2];
+
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[digest[i] & 0xF];
+        }
+
+        return new String(hex);
+    }
+
+    /**
+     * Checks whether the SHA1 hash of the passed password equals the passed hex formatted hash.
+     *
+     * The bytes of the hashes are compared instead of their hex representations.
+     *
+     * @param password   The password in plain text.
+     * @param storedHash The SHA1 hash in hex format, that is stored for the user.
+     * @return true if the password matches the hash, false otherwise.
+     */
+    @Override
+    public boolean verify(String password, String storedHash) {
+        byte[] expected = new byte[storedHash.length() / 2];
+        boolean valid = storedHash.length() % 2 == 0;
+
+        for (int i = 0; i < expected.length; i++) {
+            int high = Character.digit(storedHash.charAt(i * 2), 16);
+            int low = Character.digit(storedHash.charAt(i * 2 + 1), 16);
+            valid &= high >= 0 && low >= 0;
+            expected[i] = (byte) ((high << 4) | low);
+        }
+
+        return MessageDigest.isEqual(expected, digest(password)) && valid;
+    }
+
+    /**
+     * @param password The password in plain text.
+     * @return The SHA1 digest of the ISO-8859-1 encoded password.
+     */
+    private byte[] digest(String password) {
+        return DIGESTS.get().digest(password.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
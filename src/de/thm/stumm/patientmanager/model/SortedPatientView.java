@@ -0,0 +1,230 @@
+package de.thm.stumm.patientmanager.model;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * View listing the patients of a list in a PatientOrder without copying or moving the patients.
+ *
+ * The view holds the positions of the patients in the list as a permutation sorted by a primitive key of each patient,
+ * which is built once with a parallel sort. Afterwards patients appended to or removed from the list are inserted into
+ * or removed from the permutation by a binary search, so the list doesn't get sorted again for every listing.
+ *
+ * @author Dennis Stumm
+ */
+class SortedPatientView {
+    /**
+     * The order of the view.
+     */
+    private final PatientOrder order;
+
+    /**
+     * Function returning the patient at a position of the list.
+     */
+    private final IntFunction<Patient> source;
+
+    /**
+     * The positions of the patients in the list in the order of the view.
+     */
+    private int[] positions;
+
+    /**
+     * The amount of patients in the view.
+     */
+    private int size;
+
+    /**
+     * The alphabetical ranks of the strings in the StringDictionary by their codes, if the view is ordered by the last
+     * name, otherwise null.
+     */
+    private int[] nameRanks;
+
+    /**
+     * Creates the view and sorts the passed amount of patients of the list.
+     *
+     * @param order  The order of the view.
+     * @param source Function returning the patient at a position of the list.
+     * @param size   The amount of patients in the list.
+     */
+    SortedPatientView(PatientOrder order, IntFunction<Patient> source, int size) {
+        this.order = order;
+        this.source = source;
+        build(size);
+    }
+
+    /**
+     * @param rank The position of the patient in the order of the view.
+     * @return The patient at the passed position.
+     */
+    Patient get(int rank) {
+        return source.apply(positions[rank]);
+    }
+
+    /**
+     * Inserts the patient, that was appended to the list, into the view.
+     *
+     * @param position The position of the appended patient in the list, which is behind all other patients.
+     */
+    void inserted(int position) {
+        Patient patient = source.apply(position);
+        if (order == PatientOrder.LAST_NAME && patient.getLastNameCode() >= nameRanks.length) {
+            // The name is new, so the names get ranked again. The order of the other names stays the same, so the
+            // positions don't have to be sorted again.
+            nameRanks = rankNames();
+        }
+
+        if (size == positions.length) {
+            positions = Arrays.copyOf(positions, Math.max(size + (size >> 1), 16));
+        }
+
+        // The patient is the last one with its key, because it has the highest position.
+        int key = getKey(patient);
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getKey(source.apply(positions[middle])) <= key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        System.arraycopy(positions, low, positions, low + 1, size - low);
+        positions[low] = position;
+        size++;
+    }
+
+    /**
+     * Removes the patient, that is about to be removed from the list, from the view and moves the positions of the
+     * patients behind it forward.
+     *
+     * @param position The position of the patient in the list, which is still in the list.
+     */
+    void removing(int position) {
+        long packed = pack(getKey(source.apply(position)), position);
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (pack(getKey(source.apply(positions[middle])), positions[middle]) < packed) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        System.arraycopy(positions, low + 1, positions, low, size - low - 1);
+        size--;
+        for (int i = 0; i < size; i++) {
+            if (positions[i] > position) {
+                positions[i]--;
+            }
+        }
+    }
+
+    /**
+     * @return The amount of patients in the view.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the function returning the primitive key of a patient, by which the patients are ordered in the passed
+     * order, for sorting patients without a view.
+     *
+     * @param order The order of the patients.
+     * @return The function returning the key of a patient.
+     */
+    static ToIntFunction<Patient> getKey(PatientOrder order) {
+        int[] nameRanks = order == PatientOrder.LAST_NAME ? rankNames() : null;
+        return patient -> getKey(order, nameRanks, patient);
+    }
+
+    /**
+     * @param order     The order of the patients.
+     * @param nameRanks The alphabetical ranks of the strings in the StringDictionary by their codes, if the patients are
+     *                  ordered by the last name, otherwise null.
+     * @param patient   The patient to get the key of.
+     * @return The primitive key of the patient, by which the patients are ordered.
+     */
+    private static int getKey(PatientOrder order, int[] nameRanks, Patient patient) {
+        switch (order) {
+            case LAST_NAME:
+                int code = patient.getLastNameCode();
+                return code == StringDictionary.NULL ? -1 : nameRanks[code];
+            case ADMISSION_DATE:
+                return patient.getAdmissionDay();
+            default:
+                return patient.getAge();
+        }
+    }
+
+    /**
+     * Packs the passed key and position into a long, whose order is the order of the key and of the position for
+     * patients with the same key.
+     *
+     * @param key      The key of the patient.
+     * @param position The position of the patient in the list.
+     * @return The packed key and position.
+     */
+    private static long pack(int key, int position) {
+        return ((long) key << 32) | position;
+    }
+
+    /**
+     * @return The alphabetical ranks of all strings in the StringDictionary by their codes.
+     */
+    private static int[] rankNames() {
+        StringDictionary dictionary = StringDictionary.getInstance();
+        Collator collator = Collator.getInstance(Locale.GERMAN);
+        CollationKey[] keys = new CollationKey[dictionary.size()];
+        Arrays.parallelSetAll(keys, code -> collator.getCollationKey(dictionary.decode(code)));
+
+        Integer[] codes = new Integer[keys.length];
+        Arrays.setAll(codes, code -> code);
+        Arrays.parallelSort(codes, (first, second) -> keys[first].compareTo(keys[second]));
+
+        int[] ranks = new int[codes.length];
+        for (int rank = 0; rank < codes.length; rank++) {
+            ranks[codes[rank]] = rank;
+        }
+
+        return ranks;
+    }
+
+    /**
+     * Sorts the passed amount of patients of the list by packing their keys and positions into longs, which get sorted
+     * in parallel.
+     *
+     * @param size The amount of patients in the list.
+     */
+    private void build(int size) {
+        if (order == PatientOrder.LAST_NAME) {
+            nameRanks = rankNames();
+        }
+
+        long[] packed = new long[size];
+        Arrays.parallelSetAll(packed, position -> pack(getKey(source.apply(position)), position));
+        Arrays.parallelSort(packed);
+
+        positions = new int[Math.max(size, 16)];
+        for (int i = 0; i < size; i++) {
+            positions[i] = (int) packed[i];
+        }
+        this.size = size;
+    }
+
+    /**
+     * @param patient The patient to get the key of.
+     * @return The primitive key of the patient, by which the view is ordered.
+     */
+    private int getKey(Patient patient) {
+        return getKey(order, nameRanks, patient);
+    }
+}
@@ -0,0 +1,119 @@
+package de.thm.stumm.patientmanager.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Singleton that encodes the strings of the patients, like the names and the ICDs, as ints.
+ *
+ * Thousands of patients share the same ICDs and names, so every distinct string is kept only once and the patients
+ * hold the codes of their strings instead. Besides saving memory, this allows to compare the strings by their codes.
+ * The codes are never removed, so they are stable for the lifetime of the application.
+ *
+ * @author Dennis Stumm
+ */
+final class StringDictionary {
+    /**
+     * The code representing null.
+     */
+    static final int NULL = -1;
+
+    /**
+     * The instance of the singleton.
+     */
+    private static final StringDictionary instance = new StringDictionary();
+
+    /**
+     * The codes of the strings.
+     */
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+
+    /**
+     * The strings by their codes. The array gets replaced after every change, so a decoding thread always sees the
+     * string of a code, it got from another thread.
+     */
+    private volatile String[] values = new String[1024];
+
+    /**
+     * The amount of strings in the dictionary.
+     */
+    private int size;
+
+    /**
+     * This class is a singleton.
+     */
+    private StringDictionary() {
+    }
+
+    /**
+     * @return The instance of the singleton.
+     */
+    static StringDictionary getInstance() {
+        return instance;
+    }
+
+    /**
+     * @param code The code of the string.
+     * @return The string of the passed code.
+     */
+    String decode(int code) {
+        return code == NULL ? null : values[code];
+    }
+
+    /**
+     * Returns the code of the passed string and adds the string to the dictionary if necessary.
+     *
+     * @param value The string to encode.
+     * @return The code of the string.
+     */
+    int encode(String value) {
+        if (value == null) {
+            return NULL;
+        }
+
+        Integer code = codes.get(value);
+        return code == null ? add(value) : code;
+    }
+
+    /**
+     * Returns the code of the passed string without adding the string to the dictionary.
+     *
+     * @param value The string to look up.
+     * @return The code of the string or NULL, if the dictionary doesn't contain the string.
+     */
+    int lookup(String value) {
+        Integer code = value == null ? null : codes.get(value);
+        return code == null ? NULL : code;
+    }
+
+    /**
+     * @return The amount of strings in the dictionary.
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Adds the passed string to the dictionary, if it wasn't added by another thread in the meantime.
+     *
+     * @param value The string to add.
+     * @return The code of the string.
+     */
+    private synchronized int add(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+
+        String[] values = this.values;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[size] = value;
+        this.values = values;
+        codes.put(value, size);
+
+        return size++;
+    }
+}
@@ -0,0 +1,139 @@
+package de.thm.stumm.patientmanager.model;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Bounded min-heap selecting the positions with the k highest primitive keys in a single pass.
+ *
+ * Every key gets packed with its position into a long, so the heap doesn't allocate per element and compares only
+ * primitives. Offering n keys costs O(n log k). The keys of large ranges are offered in parallel to one heap per
+ * thread, which get merged afterwards.
+ *
+ * @author Dennis Stumm
+ */
+final class TopKHeap {
+    /**
+     * The amount of positions, from which on the keys are offered in parallel.
+     */
+    private static final int PARALLEL_THRESHOLD = 65536;
+
+    /**
+     * The packed keys and positions, whereby the lowest one is at the root.
+     */
+    private final long[] heap;
+
+    /**
+     * The amount of packed keys in the heap.
+     */
+    private int size;
+
+    /**
+     * Creates an empty heap.
+     *
+     * @param k The maximum amount of keys kept in the heap.
+     */
+    private TopKHeap(int k) {
+        this.heap = new long[k];
+    }
+
+    /**
+     * Selects the positions with the k highest keys from the passed range of positions. Keys equal to
+     * PatientRanking.UNRANKED are skipped. Of equal keys the lower positions are selected first.
+     *
+     * @param size The amount of positions starting at 0.
+     * @param k    The maximum amount of selected positions.
+     * @param key  Function returning the key of a position.
+     * @return The selected positions starting with the highest key.
+     */
+    static int[] select(int size, int k, IntUnaryOperator key) {
+        int capacity = Math.min(k, size);
+        if (capacity <= 0) {
+            return new int[0];
+        }
+
+        IntStream positions = IntStream.range(0, size);
+        if (size >= PARALLEL_THRESHOLD) {
+            positions = positions.parallel();
+        }
+
+        TopKHeap heap = positions.collect(() -> new TopKHeap(capacity), (selection, position) -> {
+            int value = key.applyAsInt(position);
+            if (value != PatientRanking.UNRANKED) {
+                selection.offer(pack(value, position));
+            }
+        }, TopKHeap::merge);
+
+        long[] selected = Arrays.copyOf(heap.heap, heap.size);
+        Arrays.sort(selected);
+
+        int[] result = new int[selected.length];
+        for (int i = 0; i < selected.length; i++) {
+            result[i] = Integer.MAX_VALUE - (int) selected[selected.length - 1 - i];
+        }
+
+        return result;
+    }
+
+    /**
+     * Packs the passed key and position into a long, which is higher for higher keys and for lower positions with the
+     * same key.
+     *
+     * @param key      The key of the position.
+     * @param position The position.
+     * @return The packed key and position.
+     */
+    private static long pack(int key, int position) {
+        return ((long) key << 32) | (Integer.MAX_VALUE - position);
+    }
+
+    /**
+     * Offers all packed keys of the passed heap to this heap.
+     *
+     * @param other The heap to merge into this heap.
+     */
+    private void merge(TopKHeap other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.heap[i]);
+        }
+    }
+
+    /**
+     * Adds the passed packed key to the heap, if the heap isn't full or the key is higher than the lowest key in the
+     * heap, which gets replaced in this case.
+     *
+     * @param packed The packed key and position.
+     */
+    private void offer(long packed) {
+        if (size < heap.length) {
+            int child = size++;
+            while (child > 0) {
+                int parent = (child - 1) >>> 1;
+                if (heap[parent] <= packed) {
+                    break;
+                }
+                heap[child] = heap[parent];
+                child = parent;
+            }
+            heap[child] = packed;
+        } else if (packed > heap[0]) {
+            int parent = 0;
+            while (true) {
+                int child = 2 * parent + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (heap[child] >= packed) {
+                    break;
+                }
+                heap[parent] = heap[child];
+                parent = child;
+            }
+            heap[parent] = packed;
+        }
+    }
+}
@@ -12,7 +12,7 @@ public class User {
     private String username;
 
     /**
-     * The SHA1 hashed password of the user.
+     * The hashed password of the user in the format of the PasswordHasher, that created it.
      */
     private String password;
 
@@ -20,7 +20,7 @@ public class User {
      * Initializes the user object by setting the passed values as the values of the object properties.
      *
      * @param username The name of the user.
-     * @param password The SHA1 hashed password of the user.
+     * @param password The hashed password of the user.
      */
     public User(String username, String password) {
         this.username = username;
@@ -28,7 +28,7 @@ public class User {
     }
 
     /**
-     * @return The SHA1 hashed password of the user.
+     * @return The hashed password of the user.
      */
     public String getPassword() {
         return this.password;
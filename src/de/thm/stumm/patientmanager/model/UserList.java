@@ -1,9 +1,14 @@
 package de.thm.stumm.patientmanager.model;
 
+import de.thm.stumm.patientmanager.metrics.Metrics;
+
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
 
 /**
  * Singleton that contains all existing users in the system.
@@ -11,13 +16,47 @@ import java.util.Iterator;
  * @author Dennis Stumm
  */
 public class UserList extends List<User> {
+    /**
+     * Path to the CSV-File where the users of the singleton get persisted.
+     */
+    private static final Path FILE_PATH = Paths.get("./data/user.csv");
+
+    /**
+     * Whether this process is the follower of a replication, so the users are received from the primary instead of
+     * being loaded from the CSV-File and can't be persisted.
+     */
+    private static final boolean REPLICA = "follower".equals(System.getProperty("patientmanager.replication"));
+
     /**
      * Instance of the UserList.
      */
     private static UserList instance;
 
+    /**
+     * Hash which gets verified instead of the password of a user, when no user exists for a username.
+     *
+     * It is created by the default hasher from a random password on the first login of an unknown user, so the login
+     * of unknown users takes about the same time as the login of users with a password hashed by the default hasher.
+     */
+    private static String unknownUserHash;
+
+    /**
+     * Index mapping the username of each user in this list to the user object.
+     *
+     * The index gets created on the first access, because the items get loaded by the constructor of the super class
+     * before the fields of this class are initialized.
+     */
+    private Map<String, User> index;
+
+    /**
+     * Whether the users were loaded and seeded, so the changes of this list get published to the ChangeEventBus.
+     */
+    private boolean loaded;
+
     /**
      * Array with default users that should be created if no users exist (the users.csv does not exist).
+     *
+     * The passwords of these users are stored as SHA1 hashes.
      */
     private final User[] userSeed = {
             new User("max", "3e5c5f0ee799eb1965756f590546061b77167f43"),
@@ -29,12 +68,14 @@ public class UserList extends List<User> {
     /**
      * Initializes the UserList object by seeding the user objects if the user.csv is missing.
      *
+     * @param filePath Path to the CSV-File where the users should be persisted.
      * @throws MalformedCsvLineException If some of the lines in the CSV-File contains errors.
      * @throws IOException If an error gets thrown while reading the CSV-File.
      */
-    private UserList() throws MalformedCsvLineException, IOException {
-        super();
+    private UserList(Path filePath) throws MalformedCsvLineException, IOException {
+        super(filePath);
         this.seedItemsIfNecessary();
+        this.loaded = true;
     }
 
     /**
@@ -44,21 +85,199 @@ public class UserList extends List<User> {
      * @throws MalformedCsvLineException If some of the lines in the CSV-File contains errors.
      * @throws IOException If an error gets thrown while reading the CSV-File.
      */
-    public static UserList getInstance() throws MalformedCsvLineException, IOException {
+    public static synchronized UserList getInstance() throws MalformedCsvLineException, IOException {
         if (instance == null) {
-            instance = new UserList();
+            instance = new UserList(FILE_PATH);
+            Metrics.registerList("UserList", instance::size, instance::capacity);
         }
 
         return instance;
     }
 
+    /**
+     * Creates a new UserList independent of the singleton, which uses the passed CSV-File.
+     *
+     * This is meant for tools and benchmarks, which must not touch the data of the application.
+     *
+     * @param filePath Path to the CSV-File where the users should be loaded from and persisted to.
+     * @return The new UserList containing the users of the passed file or the default users, if it does not exist.
+     * @throws MalformedCsvLineException If some of the lines in the CSV-File contains errors.
+     * @throws IOException If an error gets thrown while reading the CSV-File.
+     */
+    public static UserList open(Path filePath) throws MalformedCsvLineException, IOException {
+        return new UserList(filePath);
+    }
+
+    /**
+     * Adds the passed user to this list and publishes the change to the ChangeEventBus, if the users were loaded
+     * already.
+     *
+     * @param user User that should be added to this list.
+     * @throws IllegalArgumentException If a user with the same username already exists in this list.
+     */
+    @Override
+    public void add(User user) {
+        if (getIndex().containsKey(user.getUsername())) {
+            throw new IllegalArgumentException("Der Benutzername '" + user.getUsername() + "' existiert bereits!");
+        }
+
+        super.add(user);
+        getIndex().put(user.getUsername(), user);
+
+        if (this.loaded) {
+            ChangeEventBus.getInstance().publish(ChangeEvent.Type.USER_ADDED, user);
+        }
+    }
+
+    /**
+     * Checks whether a user with the passed username exists and the passed password matches the stored hash.
+     *
+     * The user gets looked up by the username index and the password gets verified by the hasher, that created the
+     * stored hash, in constant time.
+     *
+     * @param username The name of the user to authenticate.
+     * @param password The password of the user in plain text.
+     * @return true if the user exists and the password matches, false otherwise.
+     */
+    public boolean authenticate(String username, String password) {
+        User user = getIndex().get(username);
+        String storedHash = user == null ? getUnknownUserHash() : user.getPassword();
+        boolean matches = PasswordHasher.forHash(storedHash).verify(password, storedHash);
+
+        return user != null && matches;
+    }
+
+    /**
+     * Searches for the first user, where the passed property has the passed value.
+     *
+     * Searches by the username are answered by the username index, all other searches by the super class.
+     *
+     * @param property Name of property on the object to check the value on.
+     * @param value    Value of the property to search the item with.
+     * @return The first occurrence, where the passed property has the passed value.
+     */
+    @Override
+    public User find(String property, Object value) {
+        if (property.equals("username")) {
+            return getIndex().get(value);
+        }
+
+        return super.find(property, value);
+    }
+
+    /**
+     * Searches for the user with the passed username.
+     *
+     * @param username The name of the user to search for.
+     * @return The found user or null if no user has the passed username.
+     */
+    public User findByUsername(String username) {
+        return getIndex().get(username);
+    }
+
+    /**
+     * @return Whether this list is the replica of a follower, which receives the users from the primary and can't be
+     * persisted.
+     */
+    public boolean isReadOnly() {
+        return REPLICA;
+    }
+
+    /**
+     * Persists the users of this list to the CSV-File.
+     *
+     * @throws IOException If an error while persisting the users occurs or this list is the replica of a follower.
+     */
+    @Override
+    public void persist() throws IOException {
+        if (REPLICA) {
+            throw new IOException("Die Benutzer einer Replik können nicht gespeichert werden!");
+        }
+
+        super.persist();
+    }
+
+    /**
+     * Removes the passed user from this list and publishes the change to the ChangeEventBus, if the user was removed.
+     *
+     * @param user User that should be removed from this list.
+     */
+    @Override
+    public void remove(User user) {
+        User indexedUser = getIndex().get(user.getUsername());
+
+        if (user.equals(indexedUser)) {
+            super.remove(indexedUser);
+            getIndex().remove(user.getUsername());
+            ChangeEventBus.getInstance().publish(ChangeEvent.Type.USER_REMOVED, indexedUser);
+        }
+    }
+
+    /**
+     * Returns a String containing the line for a CSV-File for the passed user object.
+     *
+     * @param user The user, for which the CSV-Line should be generated.
+     * @return String in CSV-Format representing this user object.
+     */
+    static String format(User user) {
+        return user.getUsername() + ";" + user.getPassword();
+    }
+
+    /**
+     * Creates a new user object with the information parsed from the passed String in CSV-Format.
+     *
+     * @param csvLine Line in the CSV-Format to parse and get the user information from.
+     * @return The parsed user.
+     * @throws MalformedCsvLineException If the passed csvLine contains errors.
+     */
+    static User parse(String csvLine) throws MalformedCsvLineException {
+        String[] values = csvLine.split(";", -1);
+
+        if (values.length != 2) {
+            throw new MalformedCsvLineException("Die Zeile (" + csvLine + ") enthält zu wenig bzw. zu viel spalten!");
+        }
+
+        return new User(values[0], values[1]);
+    }
+
+    /**
+     * Removes all users from this list, before the replica of a follower receives the users from the primary again.
+     */
+    void reset() {
+        this.clear();
+        this.index = null;
+    }
+
+    /**
+     * @return The hash, which gets verified instead of the password of a user, when no user exists for a username.
+     */
+    private static synchronized String getUnknownUserHash() {
+        if (unknownUserHash == null) {
+            unknownUserHash = PasswordHasher.getDefault().hash(UUID.randomUUID().toString());
+        }
+
+        return unknownUserHash;
+    }
+
+    /**
+     * @return The index mapping the username of each user to the user object.
+     */
+    private Map<String, User> getIndex() {
+        if (index == null) {
+            index = new HashMap<>();
+        }
+
+        return index;
+    }
+
     /**
      * Checks if the user.csv is missing, in that case the user objects from the userSeed gets added to the UserList.
+     * The replica of a follower doesn't get seeded, because it receives the users from the primary.
      */
     private void seedItemsIfNecessary() {
         Iterator iterator = iterator();
 
-        if (!iterator.hasNext()) {
+        if (!REPLICA && !iterator.hasNext()) {
             for (User user : userSeed) {
                 this.add(user);
             }
@@ -73,32 +292,37 @@ public class UserList extends List<User> {
      */
     @Override
     protected void add(String csvLine) throws MalformedCsvLineException {
-        String[] values = csvLine.split(";", -1);
+        User user = parse(csvLine);
 
-        if (values.length != 2) {
-            throw new MalformedCsvLineException("Die Zeile (" + csvLine + ") enthält zu wenig bzw. zu viel spalten!");
+        if (getIndex().containsKey(user.getUsername())) {
+            throw new MalformedCsvLineException("Der Benutzername in der Zeile (" + csvLine + ") existiert bereits!");
         }
 
-        this.add(new User(values[0], values[1]));
+        this.add(user);
     }
 
     /**
-     * @return Path to the CSV-File where the users of the application should be persisted.
+     * Returns a String containing the line for a CSV-File for the passed user object.
+     *
+     * @param user The user, for which the CSV-Line should be generated.
+     * @return String in CSV-Format representing this user object.
      */
     @Override
-    protected Path getFilePath() {
-        return Paths.get("./data/user.csv");
+    protected String getCsvLine(User user) {
+        return format(user);
     }
 
     /**
-     * Returns a String containing the line for a CSV-File for the user object at the passed index.
+     * Loads the users from the CSV-File, unless this list is the replica of a follower, which receives the users from
+     * the primary.
      *
-     * @param index Index for which user the CSV-Line should be generated.
-     * @return String in CSV-Format representing this user object.
+     * @throws MalformedCsvLineException If some of the lines in the CSV-File contains errors.
+     * @throws IOException               If an error gets thrown while reading the CSV-File.
      */
     @Override
-    protected String getCsvLine(int index) {
-        User user = this.get(index);
-        return user.getUsername() + ";" + user.getPassword();
+    protected void loadItems() throws MalformedCsvLineException, IOException {
+        if (!REPLICA) {
+            super.loadItems();
+        }
     }
 }
@@ -1,8 +1,6 @@
 package de.thm.stumm.patientmanager.view;
 
-import de.thm.Sha1;
 import de.thm.stumm.patientmanager.controller.LoginController;
-import de.thm.stumm.patientmanager.model.User;
 
 import java.util.Scanner;
 
@@ -46,9 +44,8 @@ public class LoginView extends View {
         String username = sc.nextLine();
         System.out.print("Passwort: ");
         String password = sc.nextLine();
-        password = new Sha1().getHash(password);
 
-        if (!this.controller.login(new User(username, password))) {
+        if (!this.controller.login(username, password)) {
             System.out.println("Der eingegebene Benutzername oder das Passwort ist falsch!");
             System.out.println("Drücken Sie Enter um den Login erneut zu versuchen!");
             sc.nextLine();
@@ -1,14 +1,28 @@
 package de.thm.stumm.patientmanager.view;
 
-import de.thm.Sha1;
 import de.thm.stumm.patientmanager.controller.PatientController;
+import de.thm.stumm.patientmanager.model.OccupancyTrend;
 import de.thm.stumm.patientmanager.model.Patient;
+import de.thm.stumm.patientmanager.model.PatientOrder;
+import de.thm.stumm.patientmanager.model.PatientRanking;
+import de.thm.stumm.patientmanager.model.PatientRenderer;
+import de.thm.stumm.patientmanager.model.Report;
+import de.thm.stumm.patientmanager.model.ReportType;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.text.DateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.InputMismatchException;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
 
 /**
  * View containing methods for managing patients and users of the application.
@@ -16,13 +30,28 @@ import java.util.Scanner;
  * @author Dennis Stumm
  */
 public class PatientView extends View {
+    /**
+     * The amount of characters, that get collected before they are printed out, when many patients are listed.
+     */
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The amount of patients on a page, when sorted patients are listed.
+     */
+    private static final int PAGE_SIZE = 50;
+
+    /**
+     * The width of the bar showing the occupancy of the highest occupied day or hour of a trend.
+     */
+    private static final int TREND_BAR_WIDTH = 40;
+
     /**
      * Nested string array with the actions of this view.
      * <p>
      * Each element of the array is an array of strings containing as the first element a description and as the second
      * element the name of the method to be called when the user selects the corresponding action.
      */
-    private final String[][] actions = {
+    private static final String[][] ACTIONS = {
             {"einen Patienten anzulegen", "createPatient"},
             {"einen Patienten anhand seiner ID zu finden", "searchPatientById"},
             {"Patienten anhand des Namens zu finden", "searchPatientsByName"},
@@ -30,11 +59,23 @@ public class PatientView extends View {
             {"einen Patienten zu entlassen", "dischargePatient"},
             {"einem Patienten eine Diagnose hinzuzufügen", "editIcdOfPatient"},
             {"alle Patienten auszugeben", "printPatients"},
+            {"die längsten Aufenthalte, die ältesten Patienten oder die häufigsten Diagnosen auszugeben", "printTopLists"},
+            {"die Belegung der letzten Tage oder der heutigen Stunden auszugeben", "printTrend"},
+            {"einen Bericht über alle Patienten zu erstellen", "printReport"},
+            {"alle Patienten zu exportieren", "exportPatients"},
             {"einen Benutzer hinzuzufügen", "createUser"},
             {"einen Benutzer zu löschen", "deleteUser"},
             {"das Programm zu beenden", "exit"}
     };
 
+    /**
+     * The names of the methods of the actions, that change the patients or users and aren't offered, if the patients
+     * and users are read-only replicas.
+     */
+    private static final Set<String> WRITING_ACTIONS = new HashSet<>(Arrays.asList(
+            "createPatient", "deletePatient", "dischargePatient", "editIcdOfPatient", "createUser", "deleteUser"
+    ));
+
     /**
      * Controller that handles the user interactions and communicates with the models.
      */
@@ -55,6 +96,16 @@ public class PatientView extends View {
         scanner = new Scanner(System.in);
     }
 
+    /**
+     * Prints the progress of loading the patients to the console, overwriting the progress printed before.
+     *
+     * @param fraction The fraction of the patients file, that was loaded so far, between 0 and 1.
+     * @param rows     The amount of patients, that were loaded so far.
+     */
+    public void printLoadProgress(double fraction, int rows) {
+        System.out.printf("\rPatienten werden geladen... %3d%% (%d Patienten)", Math.round(fraction * 100), rows);
+    }
+
     /**
      * Renders the main menu for the patient view on the console.
      */
@@ -63,6 +114,33 @@ public class PatientView extends View {
         this.showActionSelect();
     }
 
+    /**
+     * Appends the passed values of a report as a line, whereby the first column is left-aligned and the other columns
+     * are right-aligned to the passed widths.
+     *
+     * @param buffer The buffer, the line gets appended to.
+     * @param values The values of the line.
+     * @param widths The widths of the columns.
+     */
+    private void appendReportLine(StringBuilder buffer, String[] values, int[] widths) {
+        for (int column = 0; column < values.length; column++) {
+            int padding = widths[column] - values[column].length();
+            if (column > 0) {
+                buffer.append("  ");
+                for (int i = 0; i < padding; i++) {
+                    buffer.append(' ');
+                }
+            }
+            buffer.append(values[column]);
+            if (column == 0) {
+                for (int i = 0; i < padding; i++) {
+                    buffer.append(' ');
+                }
+            }
+        }
+        buffer.append(System.lineSeparator());
+    }
+
     /**
      * Renders the view for creating a new patient, reads the inputs and calls the necessary method on the controller.
      */
@@ -85,9 +163,10 @@ public class PatientView extends View {
         printTitle("Benutzer anlegen");
         String username = readString("Benutzername: ", false);
         String password = readString("Passwort: ", false);
-        password = new Sha1().getHash(password);
-        controller.createUser(username, password);
-        returnToMainMenu("Der Benutzer wurde erfolgreich angelegt!");
+        boolean success = controller.createUser(username, password);
+        String message = "Der Benutzer wurde erfolgreich angelegt!";
+        message = success ? message : "Der Benutzer mit dem Benutzernamen '" + username + "' existiert bereits!";
+        returnToMainMenu(message);
     }
 
     /**
@@ -123,10 +202,9 @@ public class PatientView extends View {
     private void dischargePatient() {
         printTitle("Patienten entlassen");
         Patient patient = getPatient();
-        if (patient.getDischargeDate() != null) {
+        if (!controller.dischargePatient(patient)) {
             returnToMainMenu("Der Patient wurde bereits entlassen!");
         } else {
-            patient.setDischargeDate(new Date());
             returnToMainMenu("Der Patient wurde mit dem heutigen Datum erfolgreich entlassen!");
         }
     }
@@ -141,26 +219,36 @@ public class PatientView extends View {
         Patient patient = getPatient();
         System.out.println();
         System.out.println("Alter Wert: " + patient.getIcd());
-        patient.setIcd(readString("Neuer Wert: ", true));
+        controller.changeIcd(patient, readString("Neuer Wert: ", true));
         returnToMainMenu("Der ICD des Patienten wurde erfolgreich aktualisiert!");
     }
 
     /**
-     * Calls the methods to persisting the data and finishes the program.
+     * Calls the methods to persisting the data and finishes the program. Read-only replicas don't get persisted.
      */
     @SuppressWarnings("unused")
     private void exit() {
-        try {
-            System.out.print("Benutzer werden gespeichert...");
-            controller.persistUsers();
-            System.out.println("fertig");
-        } catch (IOException e) {
-            System.out.println("Fehler (" + e.getLocalizedMessage() + ")");
+        if (!controller.isReadOnly()) {
+            try {
+                System.out.print("Benutzer werden gespeichert...");
+                controller.persistUsers();
+                System.out.println("fertig");
+            } catch (IOException e) {
+                System.out.println("Fehler (" + e.getLocalizedMessage() + ")");
+            }
+
+            try {
+                System.out.print("Patienten werden gespeichert...");
+                controller.persistPatients();
+                System.out.println("fertig");
+            } catch (IOException e) {
+                System.out.println("Fehler (" + e.getLocalizedMessage() + ")");
+            }
         }
 
         try {
-            System.out.print("Patienten werden gespeichert...");
-            controller.persistPatients();
+            System.out.print("Exporte werden abgeschlossen...");
+            controller.finishExports();
             System.out.println("fertig");
         } catch (IOException e) {
             System.out.println("Fehler (" + e.getLocalizedMessage() + ")");
@@ -169,6 +257,42 @@ public class PatientView extends View {
         System.out.println("Auf wiedersehen!");
     }
 
+    /**
+     * Renders the view for exporting all patients, reads the inputs and starts the export in the background by calling
+     * the necessary method on the controller.
+     */
+    @SuppressWarnings("unused")
+    private void exportPatients() {
+        printTitle("Patienten exportieren");
+        System.out.println("1: JSON Lines");
+        System.out.println("2: Spaltenorientiertes Binärformat");
+        int format = readInt("Format: ", 1, 2);
+        String file = readString("Datei: ", false);
+
+        try {
+            if (format == 1) {
+                controller.exportPatientsAsJsonLines(Paths.get(file));
+            } else {
+                controller.exportPatientsAsColumnar(Paths.get(file));
+            }
+            returnToMainMenu("Der Export wurde gestartet und läuft im Hintergrund!");
+        } catch (IOException | InvalidPathException e) {
+            returnToMainMenu("Der Export konnte nicht gestartet werden (" + e.getLocalizedMessage() + ")!");
+        }
+    }
+
+    /**
+     * @return The actions offered by this view, which are all actions or only the actions, that don't change the
+     * patients or users, if they are read-only replicas.
+     */
+    private String[][] getActions() {
+        if (!controller.isReadOnly()) {
+            return ACTIONS;
+        }
+
+        return Arrays.stream(ACTIONS).filter(action -> !WRITING_ACTIONS.contains(action[1])).toArray(String[][]::new);
+    }
+
     /**
      * Reads the id of a patient from the user input and searches the patient with the given id.
      * <p>
@@ -195,8 +319,9 @@ public class PatientView extends View {
      * After determining the necessary method it gets called dynamically.
      */
     private void handleActionSelection() {
-        int selection = readInt("", 1, 10);
-        String method = this.actions[selection - 1][1];
+        String[][] actions = getActions();
+        int selection = readInt("", 1, actions.length);
+        String method = actions[selection - 1][1];
         System.out.println();
         try {
             this.getClass().getDeclaredMethod(method).invoke(this);
@@ -205,16 +330,193 @@ public class PatientView extends View {
         }
     }
 
+    /**
+     * Prints out the passed patients to the console as a table with one line per patient.
+     * <p>
+     * The lines are rendered into a reused buffer, which gets printed in chunks, so listing many patients doesn't
+     * create temporary strings for every patient.
+     *
+     * @param patients The patients to print.
+     */
+    private void printPatientTable(Iterable<Patient> patients) {
+        StringBuilder buffer = new StringBuilder(OUTPUT_BUFFER_SIZE + 256);
+        PatientRenderer.appendHeader(buffer);
+
+        for (Patient patient : patients) {
+            PatientRenderer.appendRow(patient, buffer);
+            if (buffer.length() >= OUTPUT_BUFFER_SIZE) {
+                System.out.append(buffer);
+                buffer.setLength(0);
+            }
+        }
+
+        System.out.append(buffer);
+        System.out.flush();
+    }
+
     /**
      * Prints out to the console all patients that are available in this application.
+     * <p>
+     * The patients can be listed in the order, in which they were added, or sorted by a property. Sorted patients are
+     * listed page by page.
      */
     @SuppressWarnings("unused")
     private void printPatients() {
         printTitle("Patienten");
-        for (Patient patient : controller.getPatients()) {
-            System.out.println(patient);
+        System.out.println("1: Reihenfolge der Aufnahme in die Liste");
+        System.out.println("2: Name");
+        System.out.println("3: Aufnahmedatum");
+        System.out.println("4: Alter");
+        int selection = readInt("Sortierung: ", 1, 4);
+
+        if (selection == 1) {
+            printPatientTable(controller.getPatients());
+            returnToMainMenu("");
+            return;
+        }
+
+        PatientOrder order = PatientOrder.values()[selection - 2];
+        int pages = (controller.countPatients() + PAGE_SIZE - 1) / PAGE_SIZE;
+        for (int page = 0; page < pages; page++) {
             System.out.println();
+            printPatientTable(Arrays.asList(controller.getSortedPatients(order, page, PAGE_SIZE)));
+            System.out.println("Seite " + (page + 1) + " von " + pages);
+            if (page + 1 < pages && !readString("Weiter mit Enter, zurück zum Menü mit q: ", true).isEmpty()) {
+                break;
+            }
+        }
+
+        returnToMainMenu("");
+    }
+
+    /**
+     * Renders the view for the reports, reads the inputs and prints out the selected report over all patients as a
+     * table or writes it into a CSV-File.
+     */
+    @SuppressWarnings("unused")
+    private void printReport() {
+        printTitle("Berichte");
+        System.out.println("1: Aufnahmen und Entlassungen pro Tag");
+        System.out.println("2: Entlassungen pro ICD-Kapitel");
+        System.out.println("3: Altersgruppen pro Diagnose");
+        ReportType type = ReportType.values()[readInt("Bericht: ", 1, 3) - 1];
+        String file = readString("Datei (leer für die Ausgabe auf der Konsole): ", true);
+
+        Report report = controller.createReport(type);
+        if (!file.isEmpty()) {
+            try {
+                report.writeCsv(Paths.get(file));
+                returnToMainMenu("Der Bericht wurde mit " + report.getRows().length + " Zeilen gespeichert!");
+            } catch (IOException | InvalidPathException e) {
+                returnToMainMenu("Der Bericht konnte nicht gespeichert werden (" + e.getLocalizedMessage() + ")!");
+            }
+            return;
+        }
+
+        String[] columns = report.getColumns();
+        String[][] rows = report.getRows();
+        int[] widths = new int[columns.length];
+        for (int column = 0; column < columns.length; column++) {
+            widths[column] = columns[column].length();
+            for (String[] row : rows) {
+                widths[column] = Math.max(widths[column], row[column].length());
+            }
+        }
+
+        StringBuilder buffer = new StringBuilder(OUTPUT_BUFFER_SIZE + 256);
+        System.out.println();
+        appendReportLine(buffer, columns, widths);
+        for (String[] row : rows) {
+            appendReportLine(buffer, row, widths);
+            if (buffer.length() >= OUTPUT_BUFFER_SIZE) {
+                System.out.append(buffer);
+                buffer.setLength(0);
+            }
+        }
+        System.out.append(buffer);
+        System.out.flush();
+
+        returnToMainMenu("");
+    }
+
+    /**
+     * Renders the view for the trends, reads the inputs and prints out the admissions, discharges and the occupancy of
+     * the last days or the hours of the current day with a bar per day or hour.
+     */
+    @SuppressWarnings("unused")
+    private void printTrend() {
+        printTitle("Belegung");
+        System.out.println("1: Letzte Tage");
+        System.out.println("2: Heutige Stunden");
+        int selection = readInt("Verlauf: ", 1, 2);
+
+        LocalDate today = LocalDate.now();
+        ZoneId zone = ZoneId.systemDefault();
+        OccupancyTrend trend;
+        DateFormat format;
+        if (selection == 1) {
+            int days = readInt("Anzahl der Tage: ", 1, 3660);
+            Date from = Date.from(today.minusDays(days - 1).atStartOfDay(zone).toInstant());
+            trend = controller.getDailyTrend(from, Date.from(today.atStartOfDay(zone).toInstant()));
+            format = DateFormat.getDateInstance();
+        } else {
+            trend = controller.getHourlyTrend(Date.from(today.atStartOfDay(zone).toInstant()));
+            format = DateFormat.getTimeInstance(DateFormat.SHORT);
+        }
+
+        int maximum = 1;
+        for (int i = 0; i < trend.size(); i++) {
+            maximum = Math.max(maximum, trend.getOccupancy(i));
+        }
+
+        StringBuilder buffer = new StringBuilder(OUTPUT_BUFFER_SIZE + 256);
+        buffer.append(System.lineSeparator());
+        buffer.append(String.format("%-10s %9s %12s %8s%n", "Zeit", "Aufnahmen", "Entlassungen", "Belegung"));
+        for (int i = 0; i < trend.size(); i++) {
+            int occupancy = trend.getOccupancy(i);
+            buffer.append(String.format("%-10s %9d %12d %8d ", format.format(trend.getStart(i)), trend.getAdmissions(i), trend.getDischarges(i), occupancy));
+            for (int bar = (int) ((long) Math.max(occupancy, 0) * TREND_BAR_WIDTH / maximum); bar > 0; bar--) {
+                buffer.append('#');
+            }
+            buffer.append(System.lineSeparator());
+            if (buffer.length() >= OUTPUT_BUFFER_SIZE) {
+                System.out.append(buffer);
+                buffer.setLength(0);
+            }
         }
+        System.out.append(buffer);
+        System.out.flush();
+
+        returnToMainMenu("");
+    }
+
+    /**
+     * Renders the view for the top lists, reads the inputs and prints out the top patients of a ranking or the most
+     * frequent ICDs of the patients admitted in the current month.
+     */
+    @SuppressWarnings("unused")
+    private void printTopLists() {
+        printTitle("Ranglisten");
+        System.out.println("1: Längste aktuelle Aufenthalte");
+        System.out.println("2: Älteste aktuelle Patienten");
+        System.out.println("3: Häufigste Diagnosen der Aufnahmen in diesem Monat");
+        int selection = readInt("Rangliste: ", 1, 3);
+        int k = readInt("Anzahl: ", 1, 10000);
+        System.out.println();
+
+        if (selection < 3) {
+            PatientRanking ranking = selection == 1 ? PatientRanking.LONGEST_STAY : PatientRanking.OLDEST;
+            printPatientTable(Arrays.asList(controller.getTopPatients(ranking, k)));
+        } else {
+            LocalDate today = LocalDate.now();
+            ZoneId zone = ZoneId.systemDefault();
+            Date from = Date.from(today.withDayOfMonth(1).atStartOfDay(zone).toInstant());
+            Date to = Date.from(today.atStartOfDay(zone).toInstant());
+            for (Map.Entry<String, Integer> entry : controller.getTopIcds(k, from, to).entrySet()) {
+                System.out.printf("%-10s %8d%n", entry.getKey(), entry.getValue());
+            }
+        }
+
         returnToMainMenu("");
     }
 
@@ -319,11 +621,8 @@ public class PatientView extends View {
 
         if (patients.length == 0) {
             System.out.println("Es wurde kein Patient gefunden!");
-        }
-
-        for (Patient patient : patients) {
-            System.out.println(patient);
-            System.out.println();
+        } else {
+            printPatientTable(Arrays.asList(patients));
         }
 
         returnToMainMenu("");
@@ -333,8 +632,9 @@ public class PatientView extends View {
      * Renders the main menu on the console.
      */
     private void showActionSelect() {
-        for (int i = 0; i < this.actions.length; i++) {
-            System.out.println("Drücken Sie die " + (i + 1) + " um " + this.actions[i][0] + "!");
+        String[][] actions = getActions();
+        for (int i = 0; i < actions.length; i++) {
+            System.out.println("Drücken Sie die " + (i + 1) + " um " + actions[i][0] + "!");
         }
         this.handleActionSelection();
     }